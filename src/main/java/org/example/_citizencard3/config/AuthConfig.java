@@ -0,0 +1,35 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "auth")
+@Data
+public class AuthConfig {
+    // 最後登入資訊與 updated_at 批次寫回資料庫的間隔(1秒)
+    private long writeBehindFlushInterval = 1000;
+
+    // 每批寫回的最大筆數，待寫回的使用者達到此數量時提前寫回
+    private int writeBehindBatchSize = 500;
+
+    // 待寫回使用者的上限，超過時由呼叫端同步寫回
+    private int writeBehindCapacity = 20000;
+
+    // 密碼雜湊執行緒數，0 表示使用 CPU 核心數的一半
+    private int hashThreads = 0;
+
+    // 等待雜湊的佇列長度，佇列滿時回應 429
+    private int hashQueueCapacity = 64;
+
+    // 固定的 BCrypt cost，0 表示啟動時依 hashTargetMillis 自動校正
+    private int hashCost = 0;
+
+    // 自動校正時單次雜湊的目標耗時(毫秒)
+    private long hashTargetMillis = 100;
+
+    // 自動校正的 cost 範圍
+    private int hashMinCost = 10;
+    private int hashMaxCost = 14;
+}
@@ -0,0 +1,19 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "catalogue-cache")
+@Data
+public class CatalogueCacheConfig {
+    // 是否啟用電影目錄快取
+    private boolean enabled = true;
+
+    // 快取的 JSON 總大小上限(16MB)
+    private long maxBytes = 16L * 1024 * 1024;
+
+    // 快取項目的存活時間(60秒)，上映/下檔依日期變化，不能永久快取
+    private long ttl = 60000;
+}
@@ -0,0 +1,19 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coupon-campaign")
+@Data
+public class CouponCampaignConfig {
+    // 寫入優惠券的執行緒數，每個執行緒同時佔用一條資料庫連線，需小於連線池大小
+    private int threads = 4;
+
+    // 每個區塊發放的使用者數，一個區塊為一個交易
+    private int chunkSize = 1000;
+
+    // 已讀取但尚未寫入完成的區塊上限，避免讀取速度超過寫入時在記憶體堆積
+    private int maxInFlightChunks = 8;
+}
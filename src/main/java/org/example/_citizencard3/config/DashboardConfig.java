@@ -0,0 +1,22 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "dashboard")
+@Data
+public class DashboardConfig {
+    // 並行查詢的執行緒數，每個執行緒同時佔用一條資料庫連線，需小於連線池大小
+    private int threads = 4;
+
+    // 等待執行的查詢上限，佇列滿時改由請求執行緒自行查詢
+    private int queueCapacity = 64;
+
+    // 最近電影票與優惠券各取幾筆
+    private int recentLimit = 10;
+
+    // 等待全部查詢完成的上限(3秒)
+    private long timeoutMillis = 3000;
+}
@@ -11,12 +11,18 @@ public class JwtConfig {
     // JWT 密鑰 (至少256位)
     private String secret = "citycardSecretKey123456789citycardSecretKey123456789";
 
-    // 訪問Token過期時間 (24小時)
-    private long expiration = 86400000;
+    // 訪問Token過期時間 (15分鐘)，到期後以刷新Token換發
+    private long expiration = 900000;
 
-    // 刷新Token過期時間 (7天)
+    // 刷新Token過期時間 (7天)，每次輪替重新計算
     private long refreshExpiration = 604800000;
 
+    // 清除過期刷新Token的間隔(1小時)
+    private long refreshSweepInterval = 3600000;
+
+    // 每次刪除的過期刷新Token筆數上限
+    private int refreshSweepBatchSize = 1000;
+
     // Token前綴
     private String tokenPrefix = "Bearer ";
 
@@ -35,6 +41,15 @@ public class JwtConfig {
     // Token黑名單快取時間(秒)
     private int blacklistCacheExpiry = 3600;
 
+    // 已驗證令牌快取的最大筆數
+    private int verifiedTokenCacheSize = 10000;
+
+    // 撤銷令牌記錄檔路徑 (重新啟動時用於復原)
+    private String revocationLogPath = "data/revoked-tokens.log";
+
+    // 清除已到期撤銷項目的間隔(5分鐘)
+    private long revocationSweepInterval = 300000;
+
     // Token最小刷新間隔(5分鐘)
     private long minimumRefreshInterval = 300000;
 
@@ -67,4 +82,6 @@ public class JwtConfig {
     private String usernameKey = "sub";
     private String authoritiesKey = "roles";
     private String tokenTypeKey = "type";
+    private String roleKey = "role";
+    private String securityVersionKey = "sv";
 }
\ No newline at end of file
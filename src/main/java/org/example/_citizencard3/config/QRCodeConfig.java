@@ -0,0 +1,37 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "qrcode")
+@Data
+public class QRCodeConfig {
+    // QR碼內容簽章金鑰 (HMAC-SHA256，離線驗票機需使用相同金鑰)
+    private String signingSecret = "citycardQRCodeSigningKey123456789citycardQRCodeSigningKey";
+
+    // 簽章截斷後保留的位元組數 (10位元組 = 80位元)
+    private int signatureLength = 10;
+
+    // 每個模組(黑白方塊)的像素大小
+    private int moduleSize = 6;
+
+    // 四周留白的模組數 (QR碼規格建議至少4)
+    private int quietZone = 4;
+
+    // 錯誤修正等級 (L、M、Q、H)
+    private String errorCorrection = "L";
+
+    // 圖片快取的位元組上限(8MB)
+    private long imageCacheMaxBytes = 8 * 1024 * 1024;
+
+    // 瀏覽器快取時間(秒)
+    private long imageMaxAge = 86400;
+
+    // 閘門批次驗票每次最多筆數
+    private int maxScanBatchSize = 200;
+
+    // 離線掃描可回溯的最長時間(24小時)，超過則以伺服器時間判斷有效期限
+    private long maxOfflineScanAge = 86400000;
+}
@@ -0,0 +1,22 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "schedule")
+@Data
+public class ScheduleConfig {
+    // 每場結束後的清場時間(分鐘)，影廳被占用的時段為 放映時間 ~ 放映時間 + 片長 + 清場時間
+    private int cleaningBuffer = 15;
+
+    // 批次驗證與建立單次最多的場次數
+    private int maxBatchSize = 2000;
+
+    // 自動排片單次最多的天數
+    private int maxTimetableDays = 31;
+
+    // 每日重建場次衝突索引的時間(清除過期場次之後)，移除已結束的場次
+    private String conflictIndexRebuildCron = "0 30 1 * * ?";
+}
@@ -0,0 +1,25 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "seat")
+@Data
+public class SeatInventoryConfig {
+    // 每排座位數 (座位編號 A1~A20、B1~B20 ...)
+    private int seatsPerRow = 20;
+
+    // 保留座位的有效時間(10分鐘)
+    private long holdTtl = 600000;
+
+    // 單次最多可保留的座位數
+    private int maxSeatsPerHold = 10;
+
+    // 清除逾時保留的間隔(5秒)
+    private long holdSweepInterval = 5000;
+
+    // 可用座位數批次寫回資料庫的間隔(500毫秒)
+    private long flushInterval = 500;
+}
@@ -1,22 +1,29 @@
 package org.example._citizencard3.config;
 
 import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.security.BoundedPasswordEncoder;
+import org.example._citizencard3.security.JwtAuthenticationCache;
 import org.example._citizencard3.security.JwtAuthenticationFilter;
 import org.example._citizencard3.security.JwtTokenProvider;
-import org.example._citizencard3.security.UserDetailsServiceImpl;
+import org.example._citizencard3.security.RouteRules;
+import org.example._citizencard3.security.RouteTable;
+import org.example._citizencard3.security.TokenRevocationStore;
+import org.example._citizencard3.security.UserSecurityVersions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -32,7 +39,9 @@ import java.util.Collections;
 public class SecurityConfig {
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final JwtAuthenticationCache jwtAuthenticationCache;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final UserSecurityVersions userSecurityVersions;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -41,29 +50,9 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // 端點權限由 RouteRules 統一定義
                 .authorizeHttpRequests(auth -> auth
-                        // 公開端點
-                        .requestMatchers("/auth/**").permitAll()
-                        .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-
-                        // 公開資源端點
-                        .requestMatchers(HttpMethod.GET, "/movies/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/schedules/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/stores/**").permitAll()
-
-                        // 需要用戶認證的端點
-                        .requestMatchers("/users/**").authenticated()
-                        .requestMatchers("/wallets/**").authenticated()
-                        .requestMatchers("/movie-tickets/**").authenticated()
-                        .requestMatchers("/movie-ticket-qrcodes/**").authenticated()
-                        .requestMatchers("/discount-coupons/**").authenticated()
-                        .requestMatchers("/discount-coupon-qrcodes/**").authenticated()
-
-                        // 管理員專用端點
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
-
-                        // 其他所有請求都需要認證
-                        .anyRequest().authenticated()
+                        .anyRequest().access(routeAuthorizationManager())
                 )
                 .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
                 .exceptionHandling(exceptions -> exceptions
@@ -102,8 +91,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(AuthConfig authConfig) {
+        return new BoundedPasswordEncoder(authConfig);
     }
 
     @Bean
@@ -114,6 +103,20 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService);
+        return new JwtAuthenticationFilter(jwtTokenProvider, jwtAuthenticationCache, tokenRevocationStore,
+                userSecurityVersions, RouteRules.tokenSkipTable());
+    }
+
+    // 依分類表決定每個請求需要的權限
+    private AuthorizationManager<RequestAuthorizationContext> routeAuthorizationManager() {
+        RouteTable routeTable = RouteRules.authorizationTable();
+        AuthorizationManager<RequestAuthorizationContext> authenticated = AuthenticatedAuthorizationManager.authenticated();
+        AuthorizationManager<RequestAuthorizationContext> admin = AuthorityAuthorizationManager.hasRole("ADMIN");
+        AuthorizationDecision permit = new AuthorizationDecision(true);
+        return (authentication, context) -> switch (routeTable.classify(context.getRequest())) {
+            case PUBLIC -> permit;
+            case AUTHENTICATED -> authenticated.check(authentication, context);
+            case ADMIN -> admin.check(authentication, context);
+        };
     }
 }
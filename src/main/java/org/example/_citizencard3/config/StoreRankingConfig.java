@@ -0,0 +1,19 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "store-ranking")
+@Data
+public class StoreRankingConfig {
+    // 熱門與推薦商店單次最多回傳筆數
+    private int maxLimit = 50;
+
+    // 每個排行榜保留的筆數，超過 maxLimit 的部分讓商店被刪除或分數下降後不必立即重建
+    private int capacity = 200;
+
+    // 定期從資料庫完整重建的間隔(10分鐘)，修正增量更新遺漏的異動
+    private long rebuildInterval = 600000;
+}
@@ -0,0 +1,25 @@
+package org.example._citizencard3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "store-rating")
+@Data
+public class StoreRatingConfig {
+    // 評分累加值寫回 stores 的間隔(1秒)
+    private long flushInterval = 1000;
+
+    // 每次 JDBC batch 寫回的商店數
+    private int batchSize = 500;
+
+    // 累加器的分段數，越多則並行評分時的鎖競爭越少
+    private int stripes = 64;
+
+    // 依 store_ratings 校正 stores 總分與筆數的排程(每10分鐘)，啟動時也會校正一次
+    private String reconcileCron = "0 */10 * * * ?";
+
+    // 這段時間內仍有評分的商店延後校正，避免與尚未寫回的累加值重複計算(5分鐘)
+    private long reconcileQuietPeriod = 300000;
+}
@@ -0,0 +1,61 @@
+package org.example._citizencard3.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.security.BoundedPasswordEncoder;
+import org.example._citizencard3.service.MovieCatalogueCache;
+import org.example._citizencard3.service.StoreRatingService;
+import org.example._citizencard3.service.UserWriteBehind;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 快取、執行緒池與延後寫入的運作統計，僅供管理員查詢
+@RestController
+@RequestMapping("/admin/system")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminSystemController {
+
+    private final MovieCatalogueCache movieCatalogueCache;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserWriteBehind userWriteBehind;
+    private final StoreRatingService storeRatingService;
+
+    // 電影目錄快取的命中、未命中與淘汰統計
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("movieCatalogue", movieCatalogueCache.stats());
+        stats.put("success", true);
+        return ResponseEntity.ok(stats);
+    }
+
+    // 密碼雜湊執行緒池的佇列深度、拒絕次數與耗時
+    @GetMapping("/password-hash-stats")
+    public ResponseEntity<Map<String, Object>> getPasswordHashStats() {
+        Map<String, Object> stats = new HashMap<>(passwordEncoder.stats());
+        stats.put("success", true);
+        return ResponseEntity.ok(stats);
+    }
+
+    // 使用者延後寫入佇列的待寫回數量、合併比例與背壓次數
+    @GetMapping("/write-behind-stats")
+    public ResponseEntity<Map<String, Object>> getWriteBehindStats() {
+        Map<String, Object> stats = new HashMap<>(userWriteBehind.stats());
+        stats.put("success", true);
+        return ResponseEntity.ok(stats);
+    }
+
+    // 商店評分累加器的待寫回商店數與寫回次數
+    @GetMapping("/store-rating-stats")
+    public ResponseEntity<Map<String, Object>> getStoreRatingStats() {
+        Map<String, Object> stats = new HashMap<>(storeRatingService.stats());
+        stats.put("success", true);
+        return ResponseEntity.ok(stats);
+    }
+}
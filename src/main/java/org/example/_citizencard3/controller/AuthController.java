@@ -3,6 +3,7 @@ package org.example._citizencard3.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example._citizencard3.dto.request.LoginRequest;
+import org.example._citizencard3.dto.request.RefreshTokenRequest;
 import org.example._citizencard3.dto.request.RegisterRequest;
 import org.example._citizencard3.dto.response.LoginResponse;
 import org.example._citizencard3.dto.response.UserResponse;
@@ -32,15 +33,13 @@ public class AuthController {
         try {
             log.info("Attempting login for user: {}", request.getEmail());
 
-            if (!authService.existsByEmail(request.getEmail())) {
-                log.error("Login failed: User not found - {}", request.getEmail());
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("message", "此帳號不存在請註冊", "status", HttpStatus.NOT_FOUND.value()));
-            }
-
             LoginResponse response = authService.login(request);
             Map<String, Object> result = new HashMap<>();
             result.put("token", response.getToken());
+            result.put("expires_in", response.getExpiresIn());
+            if (response.getRefreshToken() != null) {
+                result.put("refresh_token", response.getRefreshToken());
+            }
             result.put("user", UserResponse.builder()
                     .id(response.getId())
                     .name(response.getName())
@@ -80,6 +79,28 @@ public class AuthController {
         }
     }
 
+    // 訪問令牌只有數分鐘效期，到期前以刷新令牌換發；刷新令牌每次使用後輪替
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@RequestBody RefreshTokenRequest request) {
+        try {
+            LoginResponse response = authService.refresh(request.getRefreshToken());
+            Map<String, Object> result = new HashMap<>();
+            result.put("token", response.getToken());
+            result.put("refresh_token", response.getRefreshToken());
+            result.put("token_type", response.getTokenType());
+            result.put("expires_in", response.getExpiresIn());
+            return ResponseEntity.ok(result);
+        } catch (CustomException e) {
+            log.warn("Token refresh failed: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("message", e.getMessage(), "status", e.getStatus().value()));
+        } catch (Exception e) {
+            log.error("Token refresh failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "換發令牌失敗", "status", HttpStatus.INTERNAL_SERVER_ERROR.value()));
+        }
+    }
+
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> register(@Valid @RequestBody RegisterRequest request) {
         try {
@@ -116,10 +137,13 @@ public class AuthController {
 
     @PostMapping("/logout")
     public ResponseEntity<Map<String, Object>> logout(
-            @RequestHeader(value = "Authorization", required = false) String token) {
+            @RequestHeader(value = "Authorization", required = false) String token,
+            @RequestBody(required = false) RefreshTokenRequest request) {
         try {
-            if (token != null && token.startsWith("Bearer ")) {
-                authService.logout(token.substring(7));
+            String accessToken = token != null && token.startsWith("Bearer ") ? token.substring(7) : null;
+            String refreshToken = request == null ? null : request.getRefreshToken();
+            if (accessToken != null || refreshToken != null) {
+                authService.logout(accessToken, refreshToken);
             }
             return ResponseEntity.ok(Map.of("message", "登出成功", "status", HttpStatus.OK.value()));
         } catch (Exception e) {
@@ -0,0 +1,51 @@
+package org.example._citizencard3.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.dto.request.CouponCampaignRequest;
+import org.example._citizencard3.dto.response.CouponCampaignResponse;
+import org.example._citizencard3.security.AuthenticatedUser;
+import org.example._citizencard3.service.CouponCampaignService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+
+// 優惠券發放活動：建立後在背景發放，以 GET /{id} 查詢進度
+@RestController
+@RequestMapping("/admin/coupon-campaigns")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class CouponCampaignController {
+
+    private final CouponCampaignService couponCampaignService;
+
+    @PostMapping
+    public ResponseEntity<CouponCampaignResponse> startCampaign(@Valid @RequestBody CouponCampaignRequest request) {
+        CouponCampaignResponse response =
+                couponCampaignService.startCampaign(request, AuthenticatedUser.current().getId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CouponCampaignResponse>> listCampaigns() {
+        return ResponseEntity.ok(couponCampaignService.listCampaigns());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CouponCampaignResponse> getCampaign(@PathVariable Long id) {
+        return ResponseEntity.ok(couponCampaignService.getCampaign(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<CouponCampaignResponse> resumeCampaign(@PathVariable Long id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(couponCampaignService.resumeCampaign(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<CouponCampaignResponse> cancelCampaign(@PathVariable Long id) {
+        return ResponseEntity.ok(couponCampaignService.cancelCampaign(id));
+    }
+}
@@ -6,6 +6,7 @@ import org.example._citizencard3.dto.response.MovieResponse;
 import org.example._citizencard3.service.MovieService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -37,21 +38,25 @@ public class MovieController {
     }
 
     @GetMapping("/now-showing")
-    public ResponseEntity<Page<MovieResponse>> getNowShowingMovies(
+    public ResponseEntity<byte[]> getNowShowingMovies(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "score,desc") String sort
     ) {
-        return ResponseEntity.ok(movieService.getNowShowingMovies(page, size, sort));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(movieService.getNowShowingMoviesJson(page, size, sort));
     }
 
     @GetMapping("/coming-soon")
-    public ResponseEntity<Page<MovieResponse>> getComingSoonMovies(
+    public ResponseEntity<byte[]> getComingSoonMovies(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "releaseDate,asc") String sort
     ) {
-        return ResponseEntity.ok(movieService.getComingSoonMovies(page, size, sort));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(movieService.getComingSoonMoviesJson(page, size, sort));
     }
 
     @GetMapping("/{id}/schedules")
@@ -75,13 +80,22 @@ public class MovieController {
     }
 
     @GetMapping("/by-genre/{genre}")
-    public ResponseEntity<Page<MovieResponse>> getMoviesByGenre(
+    public ResponseEntity<byte[]> getMoviesByGenre(
             @PathVariable String genre,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "releaseDate,desc") String sort
     ) {
-        return ResponseEntity.ok(movieService.getMoviesByGenre(genre, page, size, sort));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(movieService.getMoviesByGenreJson(genre, page, size, sort));
+    }
+
+    @GetMapping("/genres")
+    public ResponseEntity<byte[]> getAllGenres() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(movieService.getAllGenresJson());
     }
 
     @PostMapping
@@ -1,10 +1,24 @@
 package org.example._citizencard3.controller;
 
+import jakarta.validation.Valid;
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.dto.request.QRCodeBatchScanRequest;
+import org.example._citizencard3.dto.request.QRCodeScanRequest;
+import org.example._citizencard3.dto.response.QRCodeScanResponse;
+import org.example._citizencard3.service.QRCodeImageService;
+import org.example._citizencard3.service.QRCodeScanService;
 import org.example._citizencard3.service.QRCodeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/qrcode")
@@ -13,6 +27,47 @@ public class QRCodeController {
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private QRCodeImageService qrCodeImageService;
+
+    @Autowired
+    private QRCodeScanService qrCodeScanService;
+
+    @Autowired
+    private QRCodeConfig qrCodeConfig;
+
+    // 閘門驗票：驗證並核銷QR碼
+    @PostMapping("/scan")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<QRCodeScanResponse> scanQRCode(@Valid @RequestBody QRCodeScanRequest request) {
+        return ResponseEntity.ok(qrCodeScanService.scan(request));
+    }
+
+    // 閘門批次驗票：上傳離線暫存的掃描紀錄
+    @PostMapping("/scan/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<QRCodeScanResponse>> scanQRCodes(@Valid @RequestBody QRCodeBatchScanRequest request) {
+        return ResponseEntity.ok(qrCodeScanService.scanBatch(request.getScans()));
+    }
+
+    // 取得QR碼圖片 (image/png)，支援 ETag 條件請求
+    @GetMapping("/image/{qrCodeData}")
+    public ResponseEntity<byte[]> getQRCodeImage(@PathVariable String qrCodeData, WebRequest request) {
+        QRCodeImageService.QRCodeImage image = qrCodeImageService.getImage(qrCodeData);
+        CacheControl cacheControl = CacheControl.maxAge(qrCodeConfig.getImageMaxAge(), TimeUnit.SECONDS).cachePrivate();
+        if (request.checkNotModified(image.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(image.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .eTag(image.etag())
+                .cacheControl(cacheControl)
+                .body(image.png());
+    }
+
     // 驗證電影票QR碼
     @PostMapping("/movie-ticket/validate")
     @PreAuthorize("hasRole('USER')")
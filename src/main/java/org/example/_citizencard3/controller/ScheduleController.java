@@ -1,10 +1,21 @@
 package org.example._citizencard3.controller;
 
+import jakarta.validation.Valid;
+import org.example._citizencard3.dto.request.ScheduleBatchRequest;
+import org.example._citizencard3.dto.request.SeatHoldRequest;
+import org.example._citizencard3.dto.request.TimetableRequest;
+import org.example._citizencard3.dto.response.ScheduleBatchResponse;
+import org.example._citizencard3.dto.response.SeatHoldResponse;
+import org.example._citizencard3.dto.response.SeatMapResponse;
+import org.example._citizencard3.dto.response.TimetableResponse;
 import org.example._citizencard3.model.Schedule;
 import org.example._citizencard3.service.ScheduleService;
+import org.example._citizencard3.service.TimetableService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -18,6 +29,9 @@ public class ScheduleController {
     @Autowired
     private ScheduleService scheduleService;
 
+    @Autowired
+    private TimetableService timetableService;
+
     @GetMapping
     public ResponseEntity<List<Schedule>> getAllSchedules() {
         return ResponseEntity.ok(scheduleService.findAllSchedules());
@@ -73,6 +87,33 @@ public class ScheduleController {
         return ResponseEntity.ok(scheduleService.updateAvailableSeats(id, seatsToBook));
     }
 
+    @GetMapping("/{id}/seats")
+    public ResponseEntity<SeatMapResponse> getSeatMap(@PathVariable Long id) {
+        return ResponseEntity.ok(scheduleService.getSeatMap(id));
+    }
+
+    @PostMapping("/{id}/seats/holds")
+    public ResponseEntity<SeatHoldResponse> holdSeats(
+            @PathVariable Long id,
+            @Valid @RequestBody SeatHoldRequest request) {
+        return ResponseEntity.ok(scheduleService.holdSeats(id, request.getSeats()));
+    }
+
+    @PostMapping("/{id}/seats/holds/{holdId}/confirm")
+    public ResponseEntity<SeatHoldResponse> confirmSeatHold(
+            @PathVariable Long id,
+            @PathVariable Long holdId) {
+        return ResponseEntity.ok(scheduleService.confirmSeatHold(id, holdId));
+    }
+
+    @DeleteMapping("/{id}/seats/holds/{holdId}")
+    public ResponseEntity<Void> releaseSeatHold(
+            @PathVariable Long id,
+            @PathVariable Long holdId) {
+        scheduleService.releaseSeatHold(id, holdId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/count/movie/{movieId}/date-range")
     public ResponseEntity<Long> countSchedulesByMovieAndDateRange(
             @PathVariable Long movieId,
@@ -80,4 +121,31 @@ public class ScheduleController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
         return ResponseEntity.ok(scheduleService.countSchedulesByMovieAndDateRange(movieId, startTime, endTime));
     }
+
+    // 批次驗證場次(例如一週內所有影廳的時刻表)，不寫入資料庫
+    @PostMapping("/batch/validate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ScheduleBatchResponse> validateSchedules(@Valid @RequestBody ScheduleBatchRequest request) {
+        return ResponseEntity.ok(scheduleService.validateSchedules(request.getSchedules()));
+    }
+
+    // 批次建立場次，任一筆不通過時全部不建立並回傳 409 與錯誤明細
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ScheduleBatchResponse> createSchedules(@Valid @RequestBody ScheduleBatchRequest request) {
+        ScheduleBatchResponse response = scheduleService.createSchedules(request.getSchedules());
+        return response.isValid()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    // 依影廳、電影、日期範圍與營業時段自動排片；dryRun 時只回傳排片結果，否則批次建立，驗證不通過時回傳 409
+    @PostMapping("/timetable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TimetableResponse> generateTimetable(@Valid @RequestBody TimetableRequest request) {
+        TimetableResponse response = timetableService.generate(request);
+        return response.isValid()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
 }
@@ -1,16 +1,22 @@
 package org.example._citizencard3.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.dto.request.StoreRatingRequest;
 import org.example._citizencard3.dto.request.StoreRequest;
+import org.example._citizencard3.dto.response.StoreRatingStatsResponse;
 import org.example._citizencard3.dto.response.StoreResponse;
+import org.example._citizencard3.security.AuthenticatedUser;
+import org.example._citizencard3.service.StoreRatingService;
 import org.example._citizencard3.service.StoreService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,13 +26,21 @@ import java.util.List;
 public class StoreController {
 
     private final StoreService storeService;
+    private final StoreRatingService storeRatingService;
 
+    // openAt 指定時只回傳該時間營業中的商店；經緯度範圍四個參數需同時指定
     @GetMapping
     public ResponseEntity<Page<StoreResponse>> getAllStores(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime openAt,
+            @RequestParam(required = false) Double minLatitude,
+            @RequestParam(required = false) Double maxLatitude,
+            @RequestParam(required = false) Double minLongitude,
+            @RequestParam(required = false) Double maxLongitude,
             Pageable pageable) {
-        return ResponseEntity.ok(storeService.getAllStores(keyword, category, pageable));
+        return ResponseEntity.ok(storeService.getAllStores(keyword, category, openAt,
+                minLatitude, maxLatitude, minLongitude, maxLongitude, pageable));
     }
 
     @GetMapping("/{id}")
@@ -72,13 +86,41 @@ public class StoreController {
         return ResponseEntity.ok(storeService.searchStores(query, pageable));
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<List<StoreResponse>> getNearbyStores(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String category) {
+        return ResponseEntity.ok(storeService.getNearbyStores(latitude, longitude, radius, limit, category));
+    }
+
     @GetMapping("/recommended")
-    public ResponseEntity<List<StoreResponse>> getRecommendedStores() {
-        return ResponseEntity.ok(storeService.getRecommendedStores());
+    public ResponseEntity<List<StoreResponse>> getRecommendedStores(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(storeService.getRecommendedStores(category, limit));
     }
 
     @GetMapping("/popular")
-    public ResponseEntity<List<StoreResponse>> getPopularStores() {
-        return ResponseEntity.ok(storeService.getPopularStores());
+    public ResponseEntity<List<StoreResponse>> getPopularStores(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(storeService.getPopularStores(category, limit));
+    }
+
+    // 評分商店(1~5)，同一使用者重複評分時以最後一次為準；平均評分約每秒批次更新
+    @PostMapping("/{id}/ratings")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> rateStore(@PathVariable Long id, @Valid @RequestBody StoreRatingRequest request) {
+        storeRatingService.rateStore(id, AuthenticatedUser.current().getId(), request.getScore());
+        return ResponseEntity.ok().build();
+    }
+
+    // 全部與各分類的平均評分
+    @GetMapping("/rating-stats")
+    public ResponseEntity<StoreRatingStatsResponse> getRatingStats() {
+        return ResponseEntity.ok(storeRatingService.getRatingStats());
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,26 @@
 package org.example._citizencard3.controller;
 
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example._citizencard3.dto.request.UpdateProfileRequest;
+import org.example._citizencard3.dto.response.CursorPageResponse;
+import org.example._citizencard3.dto.response.UserDashboardResponse;
 import org.example._citizencard3.dto.response.UserResponse;
+import org.example._citizencard3.security.AuthenticatedUser;
+import org.example._citizencard3.service.UserDashboardService;
+import org.example._citizencard3.service.UserListingService;
 import org.example._citizencard3.service.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +32,8 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final UserListingService userListingService;
+    private final UserDashboardService userDashboardService;
 
     @GetMapping("/profile")
     @PreAuthorize("isAuthenticated()")
@@ -37,6 +51,19 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    // 會員總覽：基本資料、錢包、最近的電影票與優惠券
+    @GetMapping("/dashboard")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<UserDashboardResponse> getDashboard() {
+        return ResponseEntity.ok(userDashboardService.getDashboard(AuthenticatedUser.current().getId()));
+    }
+
+    @GetMapping("/{id}/dashboard")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDashboardResponse> getUserDashboard(@PathVariable Long id) {
+        return ResponseEntity.ok(userDashboardService.getDashboard(id));
+    }
+
     @GetMapping("/list")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserResponse>> getAllUsers(
@@ -48,6 +75,34 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    // 游標分頁，深層頁面的成本與第一頁相同
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponse<UserResponse>> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String search
+    ) {
+        return ResponseEntity.ok(userListingService.listUsers(cursor, size, search));
+    }
+
+    // 串流匯出全部使用者，format 為 csv 或 ndjson
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String search,
+            HttpServletResponse response
+    ) throws IOException {
+        boolean csv = !"ndjson".equalsIgnoreCase(format);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"users." + (csv ? "csv" : "ndjson") + "\"");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        userListingService.exportUsers(csv ? "csv" : "ndjson", search, writer);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<UserResponse> getUserById(@PathVariable Long id) {
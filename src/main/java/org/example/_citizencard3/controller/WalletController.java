@@ -7,6 +7,7 @@ import org.example._citizencard3.model.DiscountCoupon;
 import org.example._citizencard3.model.Wallet;
 import org.example._citizencard3.repository.MovieTicketRepository;
 import org.example._citizencard3.repository.DiscountCouponRepository;
+import org.example._citizencard3.security.AuthenticatedUser;
 import org.example._citizencard3.service.WalletService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -26,8 +27,7 @@ public class WalletController {
     private final DiscountCouponRepository discountCouponRepository;
 
     private Long getCurrentUserId() {
-        // TODO: Implement getting current user ID from security context
-        return 1L;
+        return AuthenticatedUser.current().getId();
     }
 
     @GetMapping("/info")
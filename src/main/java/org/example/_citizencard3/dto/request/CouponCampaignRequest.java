@@ -0,0 +1,43 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example._citizencard3.model.DiscountCoupon;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponCampaignRequest {
+
+    @NotBlank(message = "優惠券名稱不能為空")
+    @Size(max = 100, message = "優惠券名稱不能超過100個字")
+    private String title;
+
+    private String description;
+
+    @NotNull(message = "折扣類型不能為空")
+    private DiscountCoupon.DiscountType discountType;
+
+    @NotNull(message = "折扣值不能為空")
+    @Positive(message = "折扣值必須大於0")
+    private Double discountValue;
+
+    // 限定使用的商店，空值表示不限
+    private Long storeId;
+
+    @NotNull(message = "到期時間不能為空")
+    private LocalDateTime expiryDate;
+
+    // 只發給指定角色，空值表示全部角色
+    private String targetRole;
+
+    // 只發給此時間之前註冊的使用者，空值表示不限
+    private LocalDateTime targetRegisteredBefore;
+}
@@ -0,0 +1,19 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QRCodeBatchScanRequest {
+
+    @Valid
+    @NotEmpty(message = "掃描資料不能為空")
+    private List<QRCodeScanRequest> scans;
+}
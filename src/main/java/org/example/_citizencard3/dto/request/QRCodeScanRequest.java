@@ -0,0 +1,25 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QRCodeScanRequest {
+
+    @NotBlank(message = "QR碼數據不能為空")
+    private String qrCodeData;
+
+    // 未指定時依QR碼前綴判斷
+    private QRCodeValidateRequest.QRCodeType type;
+
+    // 閘門離線暫存的掃描時間，未指定時使用伺服器時間
+    private LocalDateTime scannedAt;
+
+    private String gateId;
+}
@@ -0,0 +1,19 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleBatchRequest {
+
+    @NotEmpty(message = "場次不能為空")
+    @Valid
+    private List<ScheduleRequest> schedules;
+}
@@ -0,0 +1,19 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreRatingRequest {
+
+    @NotNull(message = "評分不能為空")
+    @Min(value = 1, message = "評分必須介於1到5")
+    @Max(value = 5, message = "評分必須介於1到5")
+    private Integer score;
+}
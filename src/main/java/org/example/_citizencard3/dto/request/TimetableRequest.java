@@ -0,0 +1,69 @@
+package org.example._citizencard3.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimetableRequest {
+
+    @NotEmpty(message = "影廳不能為空")
+    @Valid
+    private List<Hall> halls;
+
+    // 依優先順序，場次數相同時排在前面的電影優先
+    @NotEmpty(message = "電影不能為空")
+    private List<Long> movieIds;
+
+    @NotNull(message = "開始日期不能為空")
+    private LocalDate startDate;
+
+    @NotNull(message = "結束日期不能為空")
+    private LocalDate endDate;
+
+    // 每日第一場最早的開演時間
+    @NotNull(message = "營業開始時間不能為空")
+    private LocalTime openTime;
+
+    // 每日最後一場最晚的散場時間，不晚於 openTime 時為隔日(例如 01:00)
+    @NotNull(message = "營業結束時間不能為空")
+    private LocalTime closeTime;
+
+    // 開演時間對齊的分鐘數，例如 5 表示只排在 10:00、10:05 ...
+    @Min(value = 1, message = "開演時間間隔必須大於0")
+    @Max(value = 60, message = "開演時間間隔不能超過60分鐘")
+    private int startTimeStep = 5;
+
+    // 各影廳第一場依序錯開的分鐘數，避免所有影廳同時開演
+    @Min(value = 0, message = "影廳錯開時間不能小於0")
+    private int hallStaggerMinutes = 0;
+
+    // 為 true 時只回傳排片結果與驗證結果，不寫入資料庫
+    private boolean dryRun;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hall {
+
+        @NotBlank(message = "影廳不能為空")
+        private String name;
+
+        @NotNull(message = "總座位數不能為空")
+        @Min(value = 1, message = "總座位數必須大於0")
+        @Max(value = 300, message = "總座位數不能超過300")
+        private Integer totalSeats;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 優惠券發放活動與進度，issuedCount 為已提交的數量
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponCampaignResponse {
+    private Long id;
+    private String title;
+    private String discountType;
+    private Double discountValue;
+    private Long storeId;
+    private LocalDateTime expiryDate;
+    private String status;
+    private long totalUsers;
+    private long issuedCount;
+    private long checkpointUserId;
+    // 0 ~ 100
+    private double progressPercent;
+    // 本次執行的平均發放速度，未在本節點執行時為 0
+    private double couponsPerSecond;
+    private String errorMessage;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime createdAt;
+}
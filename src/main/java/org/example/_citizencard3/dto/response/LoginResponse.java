@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 public class LoginResponse {
     // JWT相關欄位
     private String token;
+    private String refreshToken;
 
     // 用戶基本資訊 (對應 users 表)
     private Long id;
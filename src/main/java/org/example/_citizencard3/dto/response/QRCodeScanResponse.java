@@ -0,0 +1,35 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example._citizencard3.dto.request.QRCodeValidateRequest;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QRCodeScanResponse {
+
+    private String qrCodeData;
+    private QRCodeValidateRequest.QRCodeType type;
+    private ScanResult result;
+    private Boolean accepted;
+
+    // 電影票或優惠券ID
+    private Long referenceId;
+    private LocalDateTime usedAt;
+    private String gateId;
+
+    public enum ScanResult {
+        ACCEPTED,       // 驗證通過並已核銷
+        ALREADY_USED,   // 已使用
+        EXPIRED,        // 已過期
+        NOT_FOUND,      // 查無此QR碼
+        INVALID,        // 簽章錯誤或類型不符 (偽造或竄改)
+        DUPLICATE       // 同批次重複掃描
+    }
+}
@@ -0,0 +1,38 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 批次驗證或建立場次的結果；valid 為 false 時不會建立任何場次
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleBatchResponse {
+    private boolean valid;
+    private int total;
+    private List<ItemError> errors;
+    // 只有批次建立成功時有值
+    private List<ScheduleResponse> created;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+        // 請求中的第幾筆，從 0 開始
+        private int index;
+        private String hall;
+        private LocalDateTime showTime;
+        private String message;
+        // 與既有場次衝突時為該場次 ID
+        private Long conflictScheduleId;
+        // 與同一批次的其他場次衝突時為該筆的 index
+        private Integer conflictIndex;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldResponse {
+    private Long holdId;
+    private Long scheduleId;
+    private List<String> seats;
+    private LocalDateTime expiresAt;
+    private Boolean confirmed;
+}
@@ -0,0 +1,23 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapResponse {
+    private Long scheduleId;
+    private Integer totalSeats;
+    private Integer availableSeats;
+    private Integer seatsPerRow;
+
+    // 已售出與保留中的座位編號
+    private List<String> soldSeats;
+    private List<String> heldSeats;
+}
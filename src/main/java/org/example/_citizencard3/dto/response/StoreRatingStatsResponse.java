@@ -0,0 +1,29 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 全部與各分類的平均評分，以評分筆數加權
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreRatingStatsResponse {
+    private double averageRating;
+    private long ratingCount;
+    private List<CategoryRating> categories;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryRating {
+        private String category;
+        private double averageRating;
+        private long ratingCount;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example._citizencard3.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
@@ -21,4 +22,8 @@ public class StoreResponse {
     private Double longitude;
     private Double rating;
     private Integer ratingCount;
+
+    // 與查詢位置的距離(公尺)，只有附近商店查詢會回傳
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distance;
 }
\ No newline at end of file
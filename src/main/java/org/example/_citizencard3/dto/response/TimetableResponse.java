@@ -0,0 +1,24 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// 自動排片結果；dryRun 或 valid 為 false 時 schedules 的 id 為 null，未寫入資料庫
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimetableResponse {
+    private boolean dryRun;
+    private boolean valid;
+    private int total;
+    // 電影 ID 與排入的場次數
+    private Map<Long, Integer> showsPerMovie;
+    private List<ScheduleResponse> schedules;
+    private List<ScheduleBatchResponse.ItemError> errors;
+}
@@ -0,0 +1,22 @@
+package org.example._citizencard3.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 會員總覽：基本資料、錢包、最近的電影票與優惠券，以及有效票券數量
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDashboardResponse {
+    private UserResponse user;
+    private UserResponse.WalletInfo wallet;
+    private List<MovieTicketResponse> recentTickets;
+    private List<DiscountCouponResponse> recentCoupons;
+    private long validTicketsCount;
+    private long validCouponsCount;
+}
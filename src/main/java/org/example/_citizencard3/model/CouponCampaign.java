@@ -0,0 +1,91 @@
+package org.example._citizencard3.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 優惠券發放活動，由 CouponCampaignService 以 JDBC 讀寫
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "coupon_campaigns", indexes = {
+        @Index(name = "idx_coupon_campaigns_status", columnList = "status")
+})
+public class CouponCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "discount_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private DiscountCoupon.DiscountType discountType;
+
+    @Column(name = "discount_value", nullable = false)
+    private Double discountValue;
+
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDateTime expiryDate;
+
+    // 發放對象：啟用中的使用者，可再依角色與註冊時間篩選
+    @Column(name = "target_role", length = 20)
+    private String targetRole;
+
+    @Column(name = "target_registered_before")
+    private LocalDateTime targetRegisteredBefore;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private CampaignStatus status;
+
+    // 開始時符合條件的使用者數，只用於顯示進度
+    @Column(name = "total_users", nullable = false)
+    private long totalUsers;
+
+    @Column(name = "issued_count", nullable = false)
+    private long issuedCount;
+
+    // 此 ID (含)之前的使用者都已發放並提交
+    @Column(name = "checkpoint_user_id", nullable = false)
+    private long checkpointUserId;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum CampaignStatus {
+        RUNNING,    // 發放中
+        COMPLETED,  // 已完成
+        FAILED,     // 失敗，可從 checkpoint 繼續
+        CANCELLED   // 已停止，已發放的優惠券保留
+    }
+}
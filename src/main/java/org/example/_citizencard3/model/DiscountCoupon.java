@@ -15,11 +15,15 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "discount_coupons")
+@Table(name = "discount_coupons", indexes = {
+        @Index(name = "idx_discount_coupons_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_discount_coupons_campaign_user", columnList = "campaign_id, user_id")
+})
 public class DiscountCoupon {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "discount_coupons_seq")
+    @SequenceGenerator(name = "discount_coupons_seq", sequenceName = "discount_coupons_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", insertable = false, updatable = false)
@@ -28,6 +32,10 @@ public class DiscountCoupon {
     @Column(name = "store_id", insertable = false, updatable = false)
     private Long storeId;
 
+    // 由發放活動產生的優惠券才有值
+    @Column(name = "campaign_id", updatable = false)
+    private Long campaignId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
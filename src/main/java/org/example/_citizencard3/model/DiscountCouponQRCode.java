@@ -10,11 +10,14 @@ import java.time.LocalDateTime;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "discount_coupon_qrcodes")
+@Table(name = "discount_coupon_qrcodes", indexes = {
+        @Index(name = "uk_discount_coupon_qrcodes_data", columnList = "qr_code_data", unique = true)
+})
 public class DiscountCouponQRCode {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "discount_coupon_qrcodes_seq")
+    @SequenceGenerator(name = "discount_coupon_qrcodes_seq", sequenceName = "discount_coupon_qrcodes_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "coupon_id", insertable = false, updatable = false)
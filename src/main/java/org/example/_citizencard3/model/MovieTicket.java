@@ -15,11 +15,16 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "movie_tickets")
+@Table(name = "movie_tickets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_movie_tickets_schedule_seat", columnNames = {"schedule_id", "seat_number"})
+}, indexes = {
+        @Index(name = "idx_movie_tickets_user_created", columnList = "user_id, created_at")
+})
 public class MovieTicket {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movie_tickets_seq")
+    @SequenceGenerator(name = "movie_tickets_seq", sequenceName = "movie_tickets_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
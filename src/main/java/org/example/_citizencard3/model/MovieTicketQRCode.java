@@ -12,10 +12,13 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "movie_ticket_qrcodes")
+@Table(name = "movie_ticket_qrcodes", indexes = {
+        @Index(name = "uk_movie_ticket_qrcodes_data", columnList = "qr_code_data", unique = true)
+})
 public class MovieTicketQRCode {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movie_ticket_qrcodes_seq")
+    @SequenceGenerator(name = "movie_ticket_qrcodes_seq", sequenceName = "movie_ticket_qrcodes_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "ticket_id", nullable = false)
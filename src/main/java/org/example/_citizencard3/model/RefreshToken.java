@@ -0,0 +1,56 @@
+package org.example._citizencard3.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 刷新令牌，只儲存雜湊值，由 RefreshTokenStore 以 JDBC 讀寫
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_user", columnList = "user_id"),
+        @Index(name = "idx_refresh_tokens_expires", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 令牌的 SHA-256 (十六進位)
+    @Column(name = "token_hash", nullable = false, unique = true, updatable = false, length = 64)
+    private String tokenHash;
+
+    // 同一次登入輪替出的令牌共用 family，偵測到重複使用時整個 family 作廢
+    @Column(name = "family_id", nullable = false, updatable = false, length = 32)
+    private String familyId;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    // 簽發時使用者的安全版本
+    @Column(name = "security_version", nullable = false, updatable = false)
+    private int securityVersion;
+
+    @Column(name = "expires_at", nullable = false, updatable = false)
+    private LocalDateTime expiresAt;
+
+    // 輪替時填入，已使用的令牌再次出現即為重複使用
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    // family 作廢時填入，同 family 之後不再簽發新令牌
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 @Table(name = "schedules")
 public class Schedule {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedules_seq")
+    @SequenceGenerator(name = "schedules_seq", sequenceName = "schedules_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "電影不能為空")
@@ -39,7 +40,8 @@ public class Schedule {
 
     @NotNull(message = "可用座位數不能為空")
     @Min(value = 0, message = "可用座位數不能小於0")
-    @Column(nullable = false)
+    // 由 SeatInventory 依座位位元圖計算並批次寫回，JPA 不更新此欄位
+    @Column(nullable = false, updatable = false)
     private Integer availableSeats;
 
     @NotNull(message = "總座位數不能為空")
@@ -0,0 +1,37 @@
+package org.example._citizencard3.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 已售出的座位，由 SeatInventory 批次寫入；(schedule_id, seat_number) 唯一，避免重複劃位
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "schedule_seats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_schedule_seats_seat", columnNames = {"schedule_id", "seat_number"})
+})
+public class ScheduleSeat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "schedule_id", nullable = false, updatable = false)
+    private Long scheduleId;
+
+    @Column(name = "seat_number", nullable = false, updatable = false, length = 10)
+    private String seatNumber;
+
+    @Column(name = "holder", length = 100)
+    private String holder;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class Store {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stores_seq")
+    @SequenceGenerator(name = "stores_seq", sequenceName = "stores_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -73,12 +74,26 @@ public class Store {
     @Column(name = "is_deleted", nullable = false)
     private boolean deleted = false;
 
-    // 評分相關
+    // 評分相關，由 StoreRatingService 以 JDBC 累加，實體更新時不寫回，避免覆蓋尚未讀到的評分
+    @Column(updatable = false)
     private Double rating;
 
-    @Column(name = "rating_count")
+    @Column(name = "rating_count", updatable = false)
     private Integer ratingCount;
 
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private long ratingSum;
+
+    // store_ratings 建立前既有的總分與筆數，校正時以此加上 store_ratings 的彙總
+    @Column(name = "rating_base_sum", nullable = false, updatable = false)
+    private long ratingBaseSum;
+
+    @Column(name = "rating_base_count", nullable = false, updatable = false)
+    private int ratingBaseCount;
+
+    @Column(name = "rating_reconciled_at", updatable = false)
+    private LocalDateTime ratingReconciledAt;
+
     // 合作狀態
     @Enumerated(EnumType.STRING)
     @Column(name = "partnership_status")
@@ -92,14 +107,6 @@ public class Store {
     }
 
     // 業務方法
-    public void updateRating(Double newRating) {
-        if (this.ratingCount == null) this.ratingCount = 0;
-        if (this.rating == null) this.rating = 0.0;
-
-        this.rating = ((this.rating * this.ratingCount) + newRating) / (this.ratingCount + 1);
-        this.ratingCount++;
-    }
-
     public void softDelete() {
         this.deleted = true;
         this.deletedAt = LocalDateTime.now();
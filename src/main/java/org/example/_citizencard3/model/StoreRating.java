@@ -0,0 +1,44 @@
+package org.example._citizencard3.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 商店評分，每位使用者對每間商店一筆，由 StoreRatingService 以 JDBC 讀寫
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "store_ratings", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_store_ratings_store_user", columnNames = {"store_id", "user_id"})
+}, indexes = {
+        @Index(name = "idx_store_ratings_user", columnList = "user_id"),
+        @Index(name = "idx_store_ratings_updated_at", columnList = "updated_at")
+})
+public class StoreRating {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "store_id", nullable = false, updatable = false)
+    private Long storeId;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    // 1 ~ 5
+    @Column(nullable = false)
+    private int score;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example._citizencard3.util.MoneyUtils;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -19,15 +20,17 @@ import java.time.LocalDateTime;
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallets_seq")
+    @SequenceGenerator(name = "wallets_seq", sequenceName = "wallets_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false)
-    private Double balance = 0.0;
+    // 餘額以最小貨幣單位(分)儲存，只由 WalletLedger 以條件式 UPDATE 異動
+    @Column(name = "balance_minor", nullable = false, updatable = false)
+    private Long balanceMinor = 0L;
 
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -37,16 +40,7 @@ public class Wallet {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    // 業務方法
-    public void deposit(Double amount) {
-        this.balance += amount;
-    }
-
-    public boolean withdraw(Double amount) {
-        if (this.balance >= amount) {
-            this.balance -= amount;
-            return true;
-        }
-        return false;
+    public Double getBalance() {
+        return MoneyUtils.toAmount(balanceMinor);
     }
 }
@@ -0,0 +1,48 @@
+package org.example._citizencard3.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 錢包交易日誌，只新增不修改，由 WalletLedger 批次寫入
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "wallet_transactions", indexes = {
+        @Index(name = "idx_wallet_transactions_wallet", columnList = "wallet_id, id")
+})
+public class WalletTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false, updatable = false)
+    private Long walletId;
+
+    @Column(nullable = false, updatable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private TransactionType type;
+
+    // 交易金額(分)，一律為正數
+    @Column(name = "amount_minor", nullable = false, updatable = false)
+    private Long amountMinor;
+
+    // 交易完成後的餘額(分)
+    @Column(name = "balance_after_minor", nullable = false, updatable = false)
+    private Long balanceAfterMinor;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum TransactionType {
+        DEPOSIT,    // 儲值
+        WITHDRAW    // 提領
+    }
+}
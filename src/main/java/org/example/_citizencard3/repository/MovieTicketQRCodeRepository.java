@@ -21,6 +21,19 @@ public interface MovieTicketQRCodeRepository extends JpaRepository<MovieTicketQR
     // 根據QR碼數據查詢
     Optional<MovieTicketQRCode> findByQrCodeData(String qrCodeData);
 
+    // 檢查QR碼數據是否存在
+    boolean existsByQrCodeData(String qrCodeData);
+
+    // 驗證並核銷QR碼，只有未使用且未過期時才會更新，回傳更新筆數
+    @Modifying
+    @Transactional
+    @Query("UPDATE MovieTicketQRCode q SET q.isUsed = true, q.usedAt = :now, q.updatedAt = :now " +
+            "WHERE q.qrCodeData = :qrCodeData AND q.isUsed = false AND q.validUntil > :now")
+    int consumeByQrCodeData(
+            @Param("qrCodeData") String qrCodeData,
+            @Param("now") LocalDateTime now
+    );
+
     // 查詢指定用戶的所有有效QR碼
     @Query("SELECT q FROM MovieTicketQRCode q JOIN MovieTicket t ON q.ticketId = t.id " +
             "WHERE t.userId = :userId AND q.validUntil > :now AND q.isUsed = false")
@@ -27,7 +27,25 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     Page<Store> findByCategoryAndActiveTrue(String category, Pageable pageable);
 
     List<Store> findByCategoryAndActiveTrue(String category);
-    List<Store> findByOrderByRatingCountDesc();
+
+    // 熱門與推薦商店排行榜尚未建立時使用，排序與筆數由 Pageable 指定
+    List<Store> findByActiveTrueAndDeletedFalse(Pageable pageable);
+
+    List<Store> findByCategoryAndActiveTrueAndDeletedFalse(String category, Pageable pageable);
+
+    // 分類、名稱與經緯度範圍的組合條件，參數為 null 時不過濾
+    @Query("SELECT s FROM Store s WHERE s.active = true AND s.deleted = false " +
+            "AND (:category IS NULL OR s.category = :category) " +
+            "AND (:keyword IS NULL OR LOWER(s.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND (:minLat IS NULL OR (s.latitude BETWEEN :minLat AND :maxLat " +
+            "AND s.longitude BETWEEN :minLng AND :maxLng))")
+    Page<Store> findByFilters(@Param("category") String category,
+                              @Param("keyword") String keyword,
+                              @Param("minLat") Double minLat,
+                              @Param("maxLat") Double maxLat,
+                              @Param("minLng") Double minLng,
+                              @Param("maxLng") Double maxLng,
+                              Pageable pageable);
 
     // 自定義查詢
     @Query("SELECT DISTINCT s.category FROM Store s WHERE s.active = true")
@@ -39,18 +57,10 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
             "LOWER(s.address) LIKE LOWER(CONCAT('%', :query, '%')))")
     Page<Store> searchStores(@Param("query") String query, Pageable pageable);
 
-    // 推薦商店查詢
-    @Query("SELECT s FROM Store s WHERE s.active = true " +
-            "ORDER BY s.rating DESC, s.ratingCount DESC")
-    List<Store> findRecommendedStores();
-
     // 統計相關查詢
     @Query("SELECT COUNT(s) FROM Store s WHERE s.active = true")
     long countActiveStores();
 
-    @Query("SELECT AVG(s.rating) FROM Store s WHERE s.active = true")
-    Double getAverageRating();
-
     // 區域查詢
     @Query("SELECT s FROM Store s WHERE s.active = true " +
             "AND s.latitude BETWEEN :minLat AND :maxLat " +
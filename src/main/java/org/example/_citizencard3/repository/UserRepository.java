@@ -1,6 +1,7 @@
 package org.example._citizencard3.repository;
 
 import org.example._citizencard3.model.User;
+import org.example._citizencard3.repository.projection.UserCredentials;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,6 +22,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    // 登入專用：單一查詢只取驗證所需欄位
+    @Query("SELECT new org.example._citizencard3.repository.projection.UserCredentials(" +
+            "u.id, u.email, u.password, u.name, u.role, u.active, u.emailVerified, u.securityVersion) " +
+            "FROM User u WHERE u.email = :email")
+    Optional<UserCredentials> findCredentialsByEmail(@Param("email") String email);
+
+    // 換發令牌時依ID取得目前的角色、狀態與安全版本
+    @Query("SELECT new org.example._citizencard3.repository.projection.UserCredentials(" +
+            "u.id, u.email, u.password, u.name, u.role, u.active, u.emailVerified, u.securityVersion) " +
+            "FROM User u WHERE u.id = :id")
+    Optional<UserCredentials> findCredentialsById(@Param("id") Long id);
+
     Optional<User> findByEmailAndActive(String email, boolean active);
 
     @Query("SELECT u FROM User u WHERE " +
@@ -74,16 +88,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "WHERE u.email = :email")
     Optional<User> findByEmailWithWallet(@Param("email") String email);
 
-    @Query("SELECT DISTINCT u FROM User u " +
-            "LEFT JOIN FETCH u.movieTickets " +
-            "LEFT JOIN FETCH u.discountCoupons " +
-            "WHERE u.id = :userId")
-    Optional<User> findByIdWithDetails(@Param("userId") Long userId);
-
     @Modifying
     @Query("UPDATE User u SET u.lastLoginTime = :loginTime WHERE u.email = :email")
     void updateLastLoginTime(@Param("email") String email, @Param("loginTime") LocalDateTime loginTime);
 
+    // 只更新個人資料欄位並遞增版本，版本與讀取時不同則不更新(回傳 0)；updated_at 由 UserWriteBehind 延後寫入
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.name = :name, u.phone = :phone, u.birthday = :birthday, " +
+            "u.gender = :gender, u.address = :address, u.version = COALESCE(u.version, 0) + 1 " +
+            "WHERE u.id = :userId AND (u.version = :version OR (:version IS NULL AND u.version IS NULL))")
+    int updateProfile(@Param("userId") Long userId, @Param("version") Integer version,
+                      @Param("name") String name, @Param("phone") String phone,
+                      @Param("birthday") String birthday, @Param("gender") String gender,
+                      @Param("address") String address);
+
+    // 重新雜湊密碼，只在密碼未被變更時更新
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :userId AND u.password = :oldHash")
+    int updatePasswordHash(@Param("userId") Long userId, @Param("oldHash") String oldHash,
+                           @Param("newHash") String newHash);
+
     @Query("SELECT u FROM User u WHERE u.email = :email AND u.emailVerified = false")
     Optional<User> findUnverifiedUserByEmail(@Param("email") String email);
 
@@ -15,15 +15,15 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     boolean existsByUserId(Long userId);
 
-    // 根據餘額範圍查詢
-    List<Wallet> findByBalanceBetween(Double minBalance, Double maxBalance);
+    // 根據餘額範圍查詢(最小貨幣單位)
+    List<Wallet> findByBalanceMinorBetween(Long minBalanceMinor, Long maxBalanceMinor);
 
     // 根據更新時間查詢
     List<Wallet> findByUpdatedAtAfter(LocalDateTime date);
 
     // 查詢餘額大於指定金額的錢包
-    List<Wallet> findByBalanceGreaterThan(Double amount);
+    List<Wallet> findByBalanceMinorGreaterThan(Long amountMinor);
 
     // 查詢餘額小於指定金額的錢包
-    List<Wallet> findByBalanceLessThan(Double amount);
+    List<Wallet> findByBalanceMinorLessThan(Long amountMinor);
 }
\ No newline at end of file
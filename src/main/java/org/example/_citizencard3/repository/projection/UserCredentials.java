@@ -0,0 +1,14 @@
+package org.example._citizencard3.repository.projection;
+
+// 登入驗證所需的最少欄位，避免載入整個 User 實體與其關聯
+public record UserCredentials(
+        Long id,
+        String email,
+        String password,
+        String name,
+        String role,
+        boolean active,
+        boolean emailVerified,
+        int securityVersion
+) {
+}
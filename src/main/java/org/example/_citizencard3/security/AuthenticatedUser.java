@@ -0,0 +1,50 @@
+package org.example._citizencard3.security;
+
+import lombok.Getter;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.List;
+
+// 由已驗證的 JWT claims 建立的登入者，不需查詢資料庫
+// getName() 回傳 email，與原本 UserDetails 作為 principal 時 Authentication.getName() 的結果相同
+@Getter
+public final class AuthenticatedUser implements Principal, Serializable {
+
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.authorities = List.of(new SimpleGrantedAuthority(role));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    // 目前請求的登入者，未登入時回應 401
+    public static AuthenticatedUser current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new CustomException("請先登入", HttpStatus.UNAUTHORIZED);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{id=" + id + ", email=" + email + ", role=" + role + "}";
+    }
+}
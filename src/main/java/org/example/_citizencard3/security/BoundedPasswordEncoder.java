@@ -0,0 +1,174 @@
+package org.example._citizencard3.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.AuthConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// BCrypt 雜湊改在固定大小的專用執行緒池執行，佇列滿時立即回應 429，避免登入/註冊尖峰佔滿 Tomcat 執行緒
+// 啟動時量測本機速度，選擇最接近目標耗時的 cost；舊 cost 的雜湊可由 upgradeEncoding 判斷後重新雜湊
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final int CALIBRATION_COST = 10;
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public BoundedPasswordEncoder(AuthConfig authConfig) {
+        this.strength = calibrate(authConfig);
+        this.delegate = new BCryptPasswordEncoder(strength);
+
+        int threads = authConfig.getHashThreads() > 0
+                ? authConfig.getHashThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(authConfig.getHashQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Password hashing: BCrypt cost {}, {} threads, queue capacity {}",
+                strength, threads, authConfig.getHashQueueCapacity());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // 雜湊的 cost 低於目前設定時回傳 true
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // 背景重新雜湊，不等待結果；佇列已滿時放棄並回傳 false，下次登入再處理
+    public boolean encodeInBackground(CharSequence rawPassword, Consumer<String> onEncoded) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onEncoded.accept(delegate.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    log.warn("Background password re-hash failed: {}", e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public Map<String, Object> stats() {
+        long count = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", strength);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completed", count);
+        stats.put("rejected", rejected.get());
+        stats.put("averageWaitMillis", count == 0 ? 0.0 : waitNanos.sum() / 1e6 / count);
+        stats.put("averageHashMillis", count == 0 ? 0.0 : hashNanos.sum() / 1e6 / count);
+        stats.put("maxHashMillis", maxHashNanos.get() / 1e6);
+        return stats;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T await(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    long elapsed = System.nanoTime() - startedAt;
+                    waitNanos.add(startedAt - submittedAt);
+                    hashNanos.add(elapsed);
+                    maxHashNanos.accumulateAndGet(elapsed, Math::max);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new CustomException("系統忙碌中，請稍後再試", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CustomException("系統忙碌中，請稍後再試", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // 以 cost 10 量測單次雜湊耗時，每增加 1 耗時加倍，取最接近目標的 cost
+    private static int calibrate(AuthConfig authConfig) {
+        if (authConfig.getHashCost() > 0) {
+            return authConfig.getHashCost();
+        }
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_COST);
+        probe.encode("calibration");
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double millis = samples[1] / 1e6;
+        int cost = CALIBRATION_COST + (int) Math.round(Math.log(authConfig.getHashTargetMillis() / millis) / Math.log(2));
+        int calibrated = Math.max(authConfig.getHashMinCost(), Math.min(authConfig.getHashMaxCost(), cost));
+        log.info("BCrypt cost {} takes {} ms, calibrated cost {} for target {} ms",
+                CALIBRATION_COST, String.format("%.1f", millis), calibrated, authConfig.getHashTargetMillis());
+        return calibrated;
+    }
+}
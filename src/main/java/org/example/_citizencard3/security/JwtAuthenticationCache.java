@@ -0,0 +1,75 @@
+package org.example._citizencard3.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.JwtConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class JwtAuthenticationCache {
+
+    private final JwtConfig jwtConfig;
+
+    // 已驗證的令牌，以簽章段為鍵 (HS512 簽章本身即為令牌內容的金鑰摘要)
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    public JwtAuthenticationCache(JwtConfig jwtConfig) {
+        this.jwtConfig = jwtConfig;
+    }
+
+    // 取得已驗證的令牌資訊，未命中或已過期時回傳 null
+    public VerifiedToken getVerifiedToken(String token) {
+        String digest = digestOf(token);
+        if (digest == null) {
+            return null;
+        }
+
+        VerifiedToken verified = verifiedTokens.get(digest);
+        if (verified == null) {
+            return null;
+        }
+        if (verified.expiresAt() <= System.currentTimeMillis()) {
+            verifiedTokens.remove(digest, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    public VerifiedToken putVerifiedToken(String token, AuthenticatedUser user, int securityVersion, Date expiration) {
+        VerifiedToken verified = new VerifiedToken(user, securityVersion, expiration.getTime());
+        String digest = digestOf(token);
+        if (digest == null) {
+            return verified;
+        }
+
+        long now = System.currentTimeMillis();
+        if (verifiedTokens.size() >= jwtConfig.getVerifiedTokenCacheSize()) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (verifiedTokens.size() >= jwtConfig.getVerifiedTokenCacheSize()) {
+                log.debug("Verified token cache full, clearing {} entries", verifiedTokens.size());
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(digest, verified);
+        return verified;
+    }
+
+    private String digestOf(String token) {
+        if (token == null) {
+            return null;
+        }
+        int lastDot = token.lastIndexOf('.');
+        if (lastDot < 0 || lastDot == token.length() - 1) {
+            return null;
+        }
+        return token.substring(lastDot + 1);
+    }
+
+    // 令牌內容已驗證，principal 直接取自 claims
+    public record VerifiedToken(AuthenticatedUser user, int securityVersion, long expiresAt) {
+    }
+}
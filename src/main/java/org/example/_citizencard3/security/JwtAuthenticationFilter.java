@@ -1,46 +1,32 @@
 package org.example._citizencard3.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsServiceImpl userDetailsService;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
-
-    private final List<String> PUBLIC_PATHS = Arrays.asList(
-            "/auth/**",
-            "/public/**",
-            "/error",
-            "/swagger-ui/**",
-            "/v3/api-docs/**",
-            "/system/**"
-    );
-
-    private final List<String> PUBLIC_GET_PATHS = Arrays.asList(
-            "/movies/**",
-            "/stores/**",
-            "/schedules/**",
-            "/discounts/public/**"
-    );
+    private final JwtAuthenticationCache authenticationCache;
+    private final TokenRevocationStore revocationStore;
+    private final UserSecurityVersions securityVersions;
+    // 分類為 PUBLIC 的路徑不解析令牌，存取權限另由 SecurityConfig 決定
+    private final RouteTable tokenSkipTable;
 
     @Override
     protected void doFilterInternal(
@@ -59,17 +45,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             String jwt = getJwtFromRequest(request);
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String email = jwtTokenProvider.getEmailFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            if (StringUtils.hasText(jwt)) {
+                JwtAuthenticationCache.VerifiedToken verified = resolveVerifiedToken(jwt);
+                if (revocationStore.isRevoked(jwt, verified.expiresAt())) {
+                    throw new CustomException("令牌已失效", HttpStatus.UNAUTHORIZED);
+                }
 
-                if (userDetails != null && userDetails.isEnabled()) {
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    log.debug("User authenticated successfully: {}", email);
+                // 帳號停用或角色變更後，舊版本的令牌一律失效
+                AuthenticatedUser user = verified.user();
+                if (!securityVersions.isCurrent(user.getId(), verified.securityVersion())) {
+                    throw new CustomException("令牌已失效，請重新登入", HttpStatus.UNAUTHORIZED);
                 }
+
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        user, null, user.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                log.debug("User authenticated successfully: {}", user.getEmail());
             }
 
             filterChain.doFilter(request, response);
@@ -79,6 +71,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    // 快取命中時不需再做簽章驗證
+    private JwtAuthenticationCache.VerifiedToken resolveVerifiedToken(String jwt) {
+        JwtAuthenticationCache.VerifiedToken verified = authenticationCache.getVerifiedToken(jwt);
+        if (verified == null) {
+            Claims claims = jwtTokenProvider.parseClaims(jwt);
+            verified = authenticationCache.putVerifiedToken(jwt, jwtTokenProvider.getAuthenticatedUser(claims),
+                    jwtTokenProvider.getSecurityVersion(claims), claims.getExpiration());
+        }
+        return verified;
+    }
+
     private void handleAuthenticationError(HttpServletResponse response, Exception e) throws IOException {
         SecurityContextHolder.clearContext();
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -95,31 +98,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     private boolean isPublicPath(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        String method = request.getMethod();
-
-        if ("OPTIONS".equalsIgnoreCase(method)) {
-            return true;
-        }
-
-        String contextPath = request.getContextPath();
-        if (StringUtils.hasText(contextPath) && path.startsWith(contextPath)) {
-            path = path.substring(contextPath.length());
-        }
-
-        String finalPath = path;
-        boolean isPublic = PUBLIC_PATHS.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, finalPath));
-
-        if (!isPublic && "GET".equalsIgnoreCase(method)) {
-            isPublic = PUBLIC_GET_PATHS.stream()
-                    .anyMatch(pattern -> pathMatcher.match(pattern, finalPath));
-        }
-
-        if (isPublic) {
-            log.debug("Public access path: {}", path);
-        }
-
-        return isPublic;
+        return tokenSkipTable.classify(request) == RouteTable.Access.PUBLIC;
     }
 }
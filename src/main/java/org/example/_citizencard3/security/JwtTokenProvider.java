@@ -7,7 +7,6 @@ import org.example._citizencard3.exception.CustomException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
@@ -19,28 +18,31 @@ import java.util.Map;
 public class JwtTokenProvider {
 
     private final JwtConfig jwtConfig;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationStore revocationStore;
     private final Key key;
+    // JwtParser 為不可變且執行緒安全，只需建立一次
+    private final JwtParser jwtParser;
 
-    public JwtTokenProvider(JwtConfig jwtConfig, UserDetailsServiceImpl userDetailsService) {
+    public JwtTokenProvider(JwtConfig jwtConfig, TokenRevocationStore revocationStore) {
         this.jwtConfig = jwtConfig;
-        this.userDetailsService = userDetailsService;
+        this.revocationStore = revocationStore;
         this.key = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
-    public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername());
-    }
-
-    public String generateToken(String email) {
+    // 令牌帶有使用者ID、角色與安全版本，驗證請求時直接由 claims 建立 principal
+    public String generateToken(Long userId, String email, String role, int securityVersion) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtConfig.getExpiration());
 
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", email);
         claims.put("created", now);
-        claims.put("role", "ROLE_USER");
+        claims.put(jwtConfig.getUserIdKey(), userId);
+        claims.put(jwtConfig.getRoleKey(), role);
+        claims.put(jwtConfig.getSecurityVersionKey(), securityVersion);
 
         return Jwts.builder()
                 .setClaims(claims)
@@ -50,51 +52,48 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
+    // 驗證簽章並解析 claims (每個令牌只需做一次 HS512 驗證)
+    public Claims parseClaims(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            return claims.getSubject();
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
             throw new CustomException("令牌已過期", HttpStatus.UNAUTHORIZED);
-        } catch (JwtException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             throw new CustomException("無效的令牌", HttpStatus.UNAUTHORIZED);
         }
     }
 
+    public String getEmailFromToken(String token) {
+        return parseClaims(token).getSubject();
+    }
+
     public boolean validateToken(String token) {
-        try {
-            if (token == null) {
-                return false;
-            }
-
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            // 檢查令牌是否過期
-            return !claims.getExpiration().before(new Date());
-        } catch (ExpiredJwtException e) {
-            throw new CustomException("令牌已過期", HttpStatus.UNAUTHORIZED);
-        } catch (JwtException | IllegalArgumentException e) {
-            throw new CustomException("無效的令牌", HttpStatus.UNAUTHORIZED);
+        if (token == null) {
+            return false;
         }
+
+        // 檢查令牌是否過期
+        return !parseClaims(token).getExpiration().before(new Date());
     }
 
-    public Authentication getAuthentication(String token) {
-        try {
-            String email = getEmailFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-            return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
-        } catch (Exception e) {
-            throw new CustomException("認證失敗", HttpStatus.UNAUTHORIZED);
+    // 由已驗證的 claims 建立登入者；舊格式令牌沒有使用者ID，需重新登入
+    public AuthenticatedUser getAuthenticatedUser(Claims claims) {
+        Number userId = claims.get(jwtConfig.getUserIdKey(), Number.class);
+        String role = claims.get(jwtConfig.getRoleKey(), String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            throw new CustomException("令牌格式已過時，請重新登入", HttpStatus.UNAUTHORIZED);
         }
+        return new AuthenticatedUser(userId.longValue(), claims.getSubject(), role);
+    }
+
+    public int getSecurityVersion(Claims claims) {
+        Number version = claims.get(jwtConfig.getSecurityVersionKey(), Number.class);
+        return version == null ? 0 : version.intValue();
+    }
+
+    public Authentication getAuthentication(String token) {
+        AuthenticatedUser user = getAuthenticatedUser(parseClaims(token));
+        return new UsernamePasswordAuthenticationToken(user, "", user.getAuthorities());
     }
 
     public long getExpirationTime() {
@@ -102,9 +101,17 @@ public class JwtTokenProvider {
     }
 
     public void invalidateToken(String token) {
-        if (token != null && validateToken(token)) {
-            // 在這裡可以添加令牌黑名單的邏輯
-            // 由於資料庫中沒有相關表，此處僅作為示例
+        if (token == null) {
+            return;
+        }
+
+        Claims claims;
+        try {
+            claims = parseClaims(token);
+        } catch (CustomException e) {
+            // 已過期或無效的令牌本身就無法使用，不需撤銷
+            return;
         }
+        revocationStore.revoke(token, claims.getExpiration().getTime());
     }
 }
@@ -0,0 +1,149 @@
+package org.example._citizencard3.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.JwtConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+// 刷新令牌：隨機字串交給客戶端，資料表只存 SHA-256
+// 每次換發都以條件式 UPDATE 標記舊令牌已使用並簽發同 family 的新令牌；已使用的令牌再次出現代表外洩，整個 family 作廢
+// 作廢以 revoked_at 標記，新令牌只在 family 未被作廢時寫入，同時進行的換發不會在作廢後留下可用的令牌
+// 每個語句各自提交，作廢 family 不會因為隨後回應 401 而被回滾
+@Slf4j
+@Component
+public class RefreshTokenStore {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final int FAMILY_BYTES = 16;
+
+    private static final String INSERT_SQL = "INSERT INTO refresh_tokens "
+            + "(token_hash, family_id, user_id, security_version, expires_at, created_at) "
+            + "SELECT ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS "
+            + "(SELECT 1 FROM refresh_tokens WHERE family_id = ? AND revoked_at IS NOT NULL)";
+    private static final String MARK_USED_SQL = "UPDATE refresh_tokens SET used_at = ? "
+            + "WHERE token_hash = ? AND used_at IS NULL AND revoked_at IS NULL AND expires_at > ?";
+    private static final String SELECT_SQL = "SELECT family_id, user_id, security_version, used_at, revoked_at "
+            + "FROM refresh_tokens WHERE token_hash = ?";
+    private static final String REVOKE_FAMILY_SQL =
+            "UPDATE refresh_tokens SET revoked_at = ? WHERE family_id = ? AND revoked_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtConfig jwtConfig;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenStore(JdbcTemplate jdbcTemplate, JwtConfig jwtConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jwtConfig = jwtConfig;
+    }
+
+    // 登入時簽發新的 family
+    public String issue(long userId, int securityVersion) {
+        return issue(randomString(FAMILY_BYTES), userId, securityVersion);
+    }
+
+    // family 已被作廢時(例如換發期間偵測到重複使用)不簽發，回應 401
+    public String issue(String familyId, long userId, int securityVersion) {
+        String token = randomString(TOKEN_BYTES);
+        long now = System.currentTimeMillis();
+        int inserted = jdbcTemplate.update(INSERT_SQL, hash(token), familyId, userId, securityVersion,
+                new Timestamp(now + jwtConfig.getRefreshExpiration()), new Timestamp(now), familyId);
+        if (inserted == 0) {
+            throw new CustomException("刷新令牌已失效，請重新登入", HttpStatus.UNAUTHORIZED);
+        }
+        return token;
+    }
+
+    // 使用刷新令牌，成功時該令牌即失效；無效、過期或重複使用時回應 401
+    public Grant consume(String token) {
+        String tokenHash = hash(token);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int updated = jdbcTemplate.update(MARK_USED_SQL, now, tokenHash, now);
+
+        List<Grant> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Grant(
+                rs.getString("family_id"),
+                rs.getLong("user_id"),
+                rs.getInt("security_version"),
+                rs.getTimestamp("used_at") != null,
+                rs.getTimestamp("revoked_at") != null), tokenHash);
+        if (rows.isEmpty()) {
+            throw new CustomException("無效的刷新令牌", HttpStatus.UNAUTHORIZED);
+        }
+        Grant grant = rows.get(0);
+        if (updated == 1) {
+            return grant;
+        }
+        if (grant.revoked()) {
+            throw new CustomException("刷新令牌已失效，請重新登入", HttpStatus.UNAUTHORIZED);
+        }
+        if (grant.used()) {
+            int revoked = revokeFamily(grant.familyId());
+            log.warn("Refresh token reuse detected for user {}, revoked {} tokens in family {}",
+                    grant.userId(), revoked, grant.familyId());
+            throw new CustomException("刷新令牌已被使用，請重新登入", HttpStatus.UNAUTHORIZED);
+        }
+        throw new CustomException("刷新令牌已過期，請重新登入", HttpStatus.UNAUTHORIZED);
+    }
+
+    public int revokeFamily(String familyId) {
+        return jdbcTemplate.update(REVOKE_FAMILY_SQL, new Timestamp(System.currentTimeMillis()), familyId);
+    }
+
+    // 登出時作廢客戶端持有的刷新令牌所屬的 family，令牌不存在時忽略
+    public void revoke(String token) {
+        List<String> families = jdbcTemplate.queryForList(
+                "SELECT family_id FROM refresh_tokens WHERE token_hash = ?", String.class, hash(token));
+        families.forEach(this::revokeFamily);
+    }
+
+    // 分批刪除過期令牌，避免單一大型 DELETE 長時間鎖表
+    @Scheduled(fixedDelayString = "${jwt.refresh-sweep-interval:3600000}")
+    public void sweep() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int batchSize = jwtConfig.getRefreshSweepBatchSize();
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(
+                        "DELETE FROM refresh_tokens WHERE expires_at <= ? LIMIT " + batchSize, now);
+                total += deleted;
+            } while (deleted == batchSize);
+        } catch (DataAccessException e) {
+            log.warn("Failed to sweep expired refresh tokens: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Swept {} expired refresh tokens", total);
+        }
+    }
+
+    private String randomString(int bytes) {
+        byte[] buffer = new byte[bytes];
+        random.nextBytes(buffer);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Grant(String familyId, long userId, int securityVersion, boolean used, boolean revoked) {
+    }
+}
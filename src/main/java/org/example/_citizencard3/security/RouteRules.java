@@ -0,0 +1,61 @@
+package org.example._citizencard3.security;
+
+import org.example._citizencard3.security.RouteTable.Access;
+
+// 端點規則的唯一來源，分成兩份分類表：
+// tokenSkipTable 決定 JwtAuthenticationFilter 是否略過令牌解析，authorizationTable 決定 SecurityConfig 的存取權限
+// 兩者刻意分開：略過令牌解析不代表不需要認證
+public final class RouteRules {
+
+    private RouteRules() {
+    }
+
+    // 分類為 PUBLIC 的請求不解析令牌
+    public static RouteTable tokenSkipTable() {
+        return RouteTable.builder()
+                .rules(null, Access.PUBLIC,
+                        "/auth/**",
+                        "/public/**",
+                        "/error",
+                        "/swagger-ui/**",
+                        "/v3/api-docs/**",
+                        "/system/**")
+                .rule("OPTIONS", "/**", Access.PUBLIC)
+                .rules("GET", Access.PUBLIC,
+                        "/movies/**",
+                        "/stores/**",
+                        "/schedules/**",
+                        "/discounts/public/**")
+                .defaultAccess(Access.AUTHENTICATED)
+                .build();
+    }
+
+    public static RouteTable authorizationTable() {
+        return RouteTable.builder()
+                // 公開端點
+                .rule(null, "/auth/**", Access.PUBLIC)
+                .rule("OPTIONS", "/**", Access.PUBLIC)
+
+                // 公開資源端點
+                .rules("GET", Access.PUBLIC,
+                        "/movies/**",
+                        "/schedules/**",
+                        "/stores/**")
+
+                // 需要用戶認證的端點
+                .rules(null, Access.AUTHENTICATED,
+                        "/users/**",
+                        "/wallets/**",
+                        "/movie-tickets/**",
+                        "/movie-ticket-qrcodes/**",
+                        "/discount-coupons/**",
+                        "/discount-coupon-qrcodes/**")
+
+                // 管理員專用端點
+                .rule(null, "/admin/**", Access.ADMIN)
+
+                // 其他所有請求都需要認證
+                .defaultAccess(Access.AUTHENTICATED)
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+package org.example._citizencard3.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 路由權限分類表：啟動時把規則編譯成依 HTTP 方法分開的路徑片段 trie
+// 分類時只走訪一次請求路徑，以 regionMatches 比對片段，不產生任何物件
+// 規則支援一般片段與結尾的 "/**"；多條規則同時符合時以先宣告者為準(與 Spring Security 的順序相同)
+public final class RouteTable {
+
+    public enum Access {
+        PUBLIC,         // 不需登入
+        AUTHENTICATED,  // 需要登入
+        ADMIN           // 需要管理員權限
+    }
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS", "HEAD"};
+
+    // 每個方法一棵 trie，最後一棵供其他方法使用(只包含不限方法的規則)
+    private final Node[] roots;
+    private final Access[] ruleAccess;
+    private final Access defaultAccess;
+
+    private RouteTable(Node[] roots, Access[] ruleAccess, Access defaultAccess) {
+        this.roots = roots;
+        this.ruleAccess = ruleAccess;
+        this.defaultAccess = defaultAccess;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // 依請求分類，會先去除 context path
+    public Access classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        int offset = contextPath != null && !contextPath.isEmpty() && uri.startsWith(contextPath)
+                ? contextPath.length()
+                : 0;
+        return classify(request.getMethod(), uri, offset);
+    }
+
+    public Access classify(String method, String path) {
+        return classify(method, path, 0);
+    }
+
+    // 從 path 的 offset 開始分類，query string 不應包含在 path 中
+    public Access classify(String method, String path, int offset) {
+        Node node = roots[methodIndex(method)];
+        int best = node.wildcardRule;
+        int length = path.length();
+        int position = offset;
+        while (node != null) {
+            while (position < length && path.charAt(position) == '/') {
+                position++;
+            }
+            if (position >= length) {
+                best = Math.min(best, node.exactRule);
+                break;
+            }
+            int end = path.indexOf('/', position);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.child(path, position, end - position);
+            if (node != null) {
+                best = Math.min(best, node.wildcardRule);
+            }
+            position = end;
+        }
+        return best == Integer.MAX_VALUE ? defaultAccess : ruleAccess[best];
+    }
+
+    private static int methodIndex(String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equalsIgnoreCase(method)) {
+                return i;
+            }
+        }
+        return METHODS.length;
+    }
+
+    public static final class Builder {
+
+        private final List<Rule> rules = new ArrayList<>();
+        private Access defaultAccess = Access.AUTHENTICATED;
+
+        // method 為 null 表示不限方法
+        public Builder rule(String method, String pattern, Access access) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+            }
+            rules.add(new Rule(method == null ? null : method.toUpperCase(), pattern, access));
+            return this;
+        }
+
+        public Builder rules(String method, Access access, String... patterns) {
+            for (String pattern : patterns) {
+                rule(method, pattern, access);
+            }
+            return this;
+        }
+
+        public Builder defaultAccess(Access access) {
+            this.defaultAccess = access;
+            return this;
+        }
+
+        public RouteTable build() {
+            Node[] roots = new Node[METHODS.length + 1];
+            for (int i = 0; i < roots.length; i++) {
+                roots[i] = new Node("");
+            }
+            Access[] ruleAccess = new Access[rules.size()];
+            for (int index = 0; index < rules.size(); index++) {
+                Rule rule = rules.get(index);
+                ruleAccess[index] = rule.access();
+                if (rule.method() == null) {
+                    for (Node root : roots) {
+                        insert(root, rule.pattern(), index);
+                    }
+                } else {
+                    int methodIndex = methodIndex(rule.method());
+                    if (methodIndex == METHODS.length) {
+                        throw new IllegalArgumentException("Unsupported HTTP method: " + rule.method());
+                    }
+                    insert(roots[methodIndex], rule.pattern(), index);
+                }
+            }
+            return new RouteTable(roots, ruleAccess, defaultAccess);
+        }
+
+        private static void insert(Node root, String pattern, int ruleIndex) {
+            String[] segments = Arrays.stream(pattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+            Node node = root;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.equals("**")) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("'**' is only supported at the end of a pattern: " + pattern);
+                    }
+                    node.wildcardRule = Math.min(node.wildcardRule, ruleIndex);
+                    return;
+                }
+                if (segment.contains("*") || segment.contains("{") || segment.contains("?")) {
+                    throw new IllegalArgumentException("Unsupported route pattern segment: " + pattern);
+                }
+                node = node.getOrAddChild(segment);
+            }
+            node.exactRule = Math.min(node.exactRule, ruleIndex);
+        }
+    }
+
+    private record Rule(String method, String pattern, Access access) {
+    }
+
+    private static final class Node {
+        private final String segment;
+        private Node[] children = new Node[0];
+        // 以此節點結尾的規則與 "此節點/**" 規則中最先宣告者，沒有時為 Integer.MAX_VALUE
+        private int exactRule = Integer.MAX_VALUE;
+        private int wildcardRule = Integer.MAX_VALUE;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String path, int start, int length) {
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(String segment) {
+            for (Node child : children) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package org.example._citizencard3.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.JwtConfig;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+// 已登出令牌的撤銷清單
+// 查詢時先查 Bloom filter，命中後才查對應到期時段的雜湊集合；令牌依到期時間分桶，整桶到期後直接丟棄
+// 每筆撤銷會附加寫入記錄檔，重新啟動時載入尚未過期的項目
+@Slf4j
+@Component
+public class TokenRevocationStore {
+
+    // 每個到期時段的寬度(1小時)
+    private static final long BUCKET_WIDTH_MILLIS = 3600000L;
+    private static final int BLOOM_HASHES = 4;
+    private static final int MIN_BLOOM_BITS = 1 << 16;
+
+    private final JwtConfig jwtConfig;
+    private final Path logPath;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private volatile BloomFilter bloomFilter = new BloomFilter(MIN_BLOOM_BITS);
+
+    public TokenRevocationStore(JwtConfig jwtConfig) {
+        this.jwtConfig = jwtConfig;
+        this.logPath = Paths.get(jwtConfig.getRevocationLogPath());
+        int ringSize = (int) (jwtConfig.getExpiration() / BUCKET_WIDTH_MILLIS) + 2;
+        this.buckets = new AtomicReferenceArray<>(ringSize);
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try {
+            List<String> lines = Files.readAllLines(logPath, StandardCharsets.UTF_8);
+            synchronized (this) {
+                for (String line : lines) {
+                    int comma = line.indexOf(',');
+                    if (comma <= 0) {
+                        continue;
+                    }
+                    long fingerprint = Long.parseUnsignedLong(line.substring(0, comma), 16);
+                    long expiresAt = Long.parseLong(line.substring(comma + 1).trim());
+                    if (expiresAt > now) {
+                        addToBucket(fingerprint, expiresAt);
+                        loaded++;
+                    }
+                }
+                rebuildBloomFilter();
+                compactLog();
+            }
+            log.info("Recovered {} revoked tokens from {}", loaded, logPath);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to recover revoked tokens from {}: {}", logPath, e.getMessage());
+        }
+    }
+
+    // 撤銷令牌，直到其原本的到期時間為止
+    public synchronized void revoke(String token, long expiresAt) {
+        if (token == null || expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        long fingerprint = fingerprint(token);
+        addToBucket(fingerprint, expiresAt);
+        bloomFilter.add(fingerprint);
+        appendToLog(fingerprint, expiresAt);
+    }
+
+    // 每個請求都會呼叫，不配置物件也不加鎖
+    public boolean isRevoked(String token, long expiresAt) {
+        long fingerprint = fingerprint(token);
+        if (!bloomFilter.mightContain(fingerprint)) {
+            return false;
+        }
+        long epoch = expiresAt / BUCKET_WIDTH_MILLIS;
+        Bucket bucket = buckets.get((int) (epoch % buckets.length()));
+        return bucket != null && bucket.epoch >= epoch && bucket.fingerprints.contains(fingerprint);
+    }
+
+    // 丟棄已整桶到期的時段，並依存活項目重建 Bloom filter 與記錄檔
+    @Scheduled(fixedDelayString = "${jwt.revocation-sweep-interval:300000}")
+    public synchronized void sweepExpired() {
+        long currentEpoch = System.currentTimeMillis() / BUCKET_WIDTH_MILLIS;
+        boolean removed = false;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch < currentEpoch) {
+                buckets.set(i, null);
+                removed = true;
+            }
+        }
+        if (removed) {
+            rebuildBloomFilter();
+            compactLog();
+        }
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                size += bucket.fingerprints.size();
+            }
+        }
+        return size;
+    }
+
+    private void addToBucket(long fingerprint, long expiresAt) {
+        long epoch = expiresAt / BUCKET_WIDTH_MILLIS;
+        int index = (int) (epoch % buckets.length());
+        Bucket bucket = buckets.get(index);
+        if (bucket == null || bucket.epoch < System.currentTimeMillis() / BUCKET_WIDTH_MILLIS) {
+            bucket = new Bucket(epoch);
+            buckets.set(index, bucket);
+        } else if (bucket.epoch < epoch) {
+            // 超出環狀範圍的令牌與同槽位時段合併，保留到較晚的時段才丟棄
+            bucket.epoch = epoch;
+        }
+        bucket.fingerprints.add(fingerprint);
+    }
+
+    private void rebuildBloomFilter() {
+        int live = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                live += bucket.fingerprints.size();
+            }
+        }
+        BloomFilter rebuilt = new BloomFilter(Math.max(MIN_BLOOM_BITS, live * 16));
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                bucket.fingerprints.forEach(rebuilt::add);
+            }
+        }
+        bloomFilter = rebuilt;
+    }
+
+    private void appendToLog(long fingerprint, long expiresAt) {
+        try {
+            createParentDirectory();
+            Files.writeString(logPath, formatEntry(fingerprint, expiresAt), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Failed to persist revoked token: {}", e.getMessage());
+        }
+    }
+
+    private void compactLog() {
+        Path tempPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try {
+            createParentDirectory();
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < buckets.length(); i++) {
+                    Bucket bucket = buckets.get(i);
+                    if (bucket == null) {
+                        continue;
+                    }
+                    long expiresAt = (bucket.epoch + 1) * BUCKET_WIDTH_MILLIS;
+                    for (long fingerprint : bucket.fingerprints.toArray()) {
+                        writer.write(formatEntry(fingerprint, expiresAt));
+                    }
+                }
+            }
+            Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to compact revoked token log: {}", e.getMessage());
+        }
+    }
+
+    private void createParentDirectory() throws IOException {
+        Path parent = logPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    private static String formatEntry(long fingerprint, long expiresAt) {
+        return Long.toHexString(fingerprint) + "," + expiresAt + "\n";
+    }
+
+    // 以簽章段計算 64 位元指紋 (FNV-1a 加上 murmur3 finalizer)，逐字元計算不產生子字串
+    static long fingerprint(String token) {
+        int start = token.lastIndexOf('.') + 1;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static final class Bucket {
+        private volatile long epoch;
+        private final LongHashSet fingerprints = new LongHashSet();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    // 開放定址的 long 集合：寫入端需外部同步，讀取端無鎖
+    static final class LongHashSet {
+        private volatile AtomicLongArray table = new AtomicLongArray(64);
+        private int size;
+
+        boolean contains(long key) {
+            AtomicLongArray current = table;
+            int mask = current.length() - 1;
+            int index = spread(key) & mask;
+            while (true) {
+                long value = current.get(index);
+                if (value == key) {
+                    return true;
+                }
+                if (value == 0) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        void add(long key) {
+            if (contains(key)) {
+                return;
+            }
+            if ((size + 1) * 2 > table.length()) {
+                AtomicLongArray resized = new AtomicLongArray(table.length() * 2);
+                AtomicLongArray current = table;
+                for (int i = 0; i < current.length(); i++) {
+                    long value = current.get(i);
+                    if (value != 0) {
+                        insert(resized, value);
+                    }
+                }
+                table = resized;
+            }
+            insert(table, key);
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] toArray() {
+            AtomicLongArray current = table;
+            long[] values = new long[size];
+            int n = 0;
+            for (int i = 0; i < current.length() && n < values.length; i++) {
+                long value = current.get(i);
+                if (value != 0) {
+                    values[n++] = value;
+                }
+            }
+            return values;
+        }
+
+        void forEach(LongConsumer consumer) {
+            for (long value : toArray()) {
+                consumer.accept(value);
+            }
+        }
+
+        private static void insert(AtomicLongArray target, long key) {
+            int mask = target.length() - 1;
+            int index = spread(key) & mask;
+            while (target.get(index) != 0) {
+                index = (index + 1) & mask;
+            }
+            target.set(index, key);
+        }
+
+        private static int spread(long key) {
+            return (int) (key ^ (key >>> 32));
+        }
+    }
+
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final int mask;
+
+        BloomFilter(int requestedBits) {
+            int size = Integer.highestOneBit(Math.max(64, requestedBits - 1)) << 1;
+            this.bits = new AtomicLongArray(size >>> 6);
+            this.mask = size - 1;
+        }
+
+        void add(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                int word = bit >>> 6;
+                long bitMask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & bitMask) == 0 && !bits.compareAndSet(word, current, current | bitMask));
+            }
+        }
+
+        boolean mightContain(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
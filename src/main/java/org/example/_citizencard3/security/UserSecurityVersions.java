@@ -0,0 +1,63 @@
+package org.example._citizencard3.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 每位使用者目前的安全版本，令牌中的 sv 小於此值即視為失效
+// 只記錄版本曾被遞增過的使用者(停用、刪除或變更角色)，其餘使用者版本為 0，不佔記憶體
+// 啟動時從 users 資料表載入，之後由 UserService 在交易提交後更新
+@Slf4j
+@Component
+public class UserSecurityVersions {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public UserSecurityVersions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            jdbcTemplate.query("SELECT id, security_version FROM users WHERE security_version > 0", rs -> {
+                versions.merge(rs.getLong("id"), rs.getInt("security_version"), Math::max);
+            });
+            log.info("Loaded security versions for {} users", versions.size());
+        } catch (DataAccessException e) {
+            log.warn("Failed to load user security versions: {}", e.getMessage());
+        }
+    }
+
+    public boolean isCurrent(long userId, int version) {
+        Integer current = versions.get(userId);
+        return current == null || version >= current;
+    }
+
+    // 在交易提交後才生效，交易回滾時不會誤拒仍有效的令牌
+    public void bump(long userId, int version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.merge(userId, version, Math::max);
+                }
+            });
+        } else {
+            versions.merge(userId, version, Math::max);
+        }
+    }
+
+    public int size() {
+        return versions.size();
+    }
+}
@@ -3,6 +3,7 @@ package org.example._citizencard3.service;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.JwtConfig;
 import org.example._citizencard3.dto.request.LoginRequest;
 import org.example._citizencard3.dto.request.RegisterRequest;
 import org.example._citizencard3.dto.response.LoginResponse;
@@ -12,14 +13,11 @@ import org.example._citizencard3.model.User;
 import org.example._citizencard3.model.Wallet;
 import org.example._citizencard3.repository.UserRepository;
 import org.example._citizencard3.repository.WalletRepository;
+import org.example._citizencard3.repository.projection.UserCredentials;
+import org.example._citizencard3.security.BoundedPasswordEncoder;
 import org.example._citizencard3.security.JwtTokenProvider;
+import org.example._citizencard3.security.RefreshTokenStore;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -33,46 +31,49 @@ import java.util.regex.Pattern;
 public class AuthService {
     private final UserRepository userRepository;
     private final WalletRepository walletRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
-    private final AuthenticationManager authenticationManager;
+    private final UserWriteBehind userWriteBehind;
+    private final RefreshTokenStore refreshTokenStore;
+    private final JwtConfig jwtConfig;
 
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     private static final Pattern PHONE_PATTERN = Pattern.compile("^09\\d{8}$");
 
-    @Transactional
+    // 單一查詢取得登入所需欄位並在記憶體中驗證密碼，最後登入資訊交由 UserWriteBehind 批次寫回
+    // 不在交易中執行，避免 BCrypt 驗證期間佔用資料庫連線
     public LoginResponse login(LoginRequest request) {
         try {
             validateLoginRequest(request);
 
-            // 檢查帳號是否存在
-            if (!userRepository.existsByEmail(request.getEmail())) {
-                throw new CustomException("此帳號不存在請註冊", HttpStatus.NOT_FOUND);
-            }
-
-            User user = userRepository.findByEmail(request.getEmail().toLowerCase().trim())
-                    .orElseThrow(() -> new CustomException("用戶不存在", HttpStatus.NOT_FOUND));
+            UserCredentials credentials = userRepository.findCredentialsByEmail(request.getEmail().toLowerCase().trim())
+                    .orElseThrow(() -> new CustomException("此帳號不存在請註冊", HttpStatus.NOT_FOUND));
 
-            if (!user.isActive()) {
+            if (!credentials.active()) {
                 throw new CustomException("帳戶已被停用", HttpStatus.FORBIDDEN);
             }
+            if (!passwordEncoder.matches(request.getPassword(), credentials.password())) {
+                throw new CustomException("帳號密碼錯誤", HttpStatus.UNAUTHORIZED);
+            }
+            if (passwordEncoder.upgradeEncoding(credentials.password())) {
+                // 舊 cost 的雜湊在背景重新雜湊，不延遲這次登入
+                passwordEncoder.encodeInBackground(request.getPassword(), newHash ->
+                        userRepository.updatePasswordHash(credentials.id(), credentials.password(), newHash));
+            }
 
-            try {
-                Authentication authentication = authenticationManager.authenticate(
-                        new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-                );
-                String token = jwtTokenProvider.generateToken(authentication);
+            String token = jwtTokenProvider.generateToken(credentials.id(), credentials.email(),
+                    credentials.role(), credentials.securityVersion());
+            String refreshToken = jwtConfig.isIncludeRefreshToken()
+                    ? refreshTokenStore.issue(credentials.id(), credentials.securityVersion())
+                    : null;
 
-                // 更新登入資訊
-                user.setLastLoginTime(LocalDateTime.now());
-                user.setLastLoginIp(request.getIpAddress());
-                user.setUpdatedAt(LocalDateTime.now());
-                userRepository.save(user);
+            // 更新登入資訊
+            LocalDateTime now = LocalDateTime.now();
+            userWriteBehind.recordLogin(credentials.id(), now, request.getIpAddress());
 
-                return buildLoginResponse(user, token);
-            } catch (BadCredentialsException e) {
-                throw new CustomException("帳號密碼錯誤", HttpStatus.UNAUTHORIZED);
-            }
+            LoginResponse response = buildLoginResponse(credentials, token, now, request.getIpAddress());
+            response.setRefreshToken(refreshToken);
+            return response;
         } catch (CustomException e) {
             throw e;
         } catch (Exception e) {
@@ -81,6 +82,40 @@ public class AuthService {
         }
     }
 
+    // 以刷新令牌換發新的訪問令牌與刷新令牌，舊刷新令牌立即失效
+    // 不在交易中執行，偵測到重複使用時作廢 family 的標記不會被回滾
+    public LoginResponse refresh(String refreshToken) {
+        if (!StringUtils.hasText(refreshToken)) {
+            throw new CustomException("請提供刷新令牌", HttpStatus.BAD_REQUEST);
+        }
+
+        RefreshTokenStore.Grant grant = refreshTokenStore.consume(refreshToken);
+        UserCredentials credentials = userRepository.findCredentialsById(grant.userId()).orElse(null);
+        // 帳號停用、刪除或角色變更後需重新登入
+        if (credentials == null || !credentials.active()
+                || credentials.securityVersion() != grant.securityVersion()) {
+            refreshTokenStore.revokeFamily(grant.familyId());
+            throw new CustomException("請重新登入", HttpStatus.UNAUTHORIZED);
+        }
+
+        String token = jwtTokenProvider.generateToken(credentials.id(), credentials.email(),
+                credentials.role(), credentials.securityVersion());
+        String nextRefreshToken = refreshTokenStore.issue(grant.familyId(), credentials.id(),
+                credentials.securityVersion());
+        return LoginResponse.builder()
+                .token(token)
+                .refreshToken(nextRefreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtTokenProvider.getExpirationTime())
+                .id(credentials.id())
+                .name(credentials.name())
+                .email(credentials.email())
+                .role(credentials.role())
+                .active(credentials.active())
+                .emailVerified(credentials.emailVerified())
+                .build();
+    }
+
     @Transactional
     public UserResponse register(@Valid RegisterRequest request) {
         try {
@@ -110,7 +145,7 @@ public class AuthService {
             // 創建錢包
             Wallet wallet = new Wallet();
             wallet.setUser(user);
-            wallet.setBalance(0.0);
+            wallet.setBalanceMinor(0L);
             wallet.setCreatedAt(now);
             wallet.setUpdatedAt(now);
             walletRepository.save(wallet);
@@ -150,17 +185,20 @@ public class AuthService {
         }
     }
 
-    private LoginResponse buildLoginResponse(User user, String token) {
+    private LoginResponse buildLoginResponse(UserCredentials credentials, String token,
+                                             LocalDateTime loginTime, String ipAddress) {
         return LoginResponse.builder()
                 .token(token)
-                .id(user.getId())
-                .name(user.getName())
-                .email(user.getEmail())
-                .role(user.getRole())
-                .active(user.isActive())
-                .emailVerified(user.isEmailVerified())
-                .lastLoginTime(user.getLastLoginTime())
-                .lastLoginIp(user.getLastLoginIp())
+                .tokenType("Bearer")
+                .expiresIn(jwtTokenProvider.getExpirationTime())
+                .id(credentials.id())
+                .name(credentials.name())
+                .email(credentials.email())
+                .role(credentials.role())
+                .active(credentials.active())
+                .emailVerified(credentials.emailVerified())
+                .lastLoginTime(loginTime)
+                .lastLoginIp(ipAddress)
                 .build();
     }
 
@@ -188,14 +226,16 @@ public class AuthService {
         return userRepository.existsByEmail(email.toLowerCase().trim());
     }
 
-    @Transactional
-    public void logout(String token) {
+    public void logout(String token, String refreshToken) {
         try {
             if (token != null) {
                 // 使 JWT token 失效
                 jwtTokenProvider.invalidateToken(token);
                 log.info("User logged out successfully");
             }
+            if (StringUtils.hasText(refreshToken)) {
+                refreshTokenStore.revoke(refreshToken);
+            }
         } catch (Exception e) {
             log.error("Logout failed", e);
             throw new CustomException("登出失敗", HttpStatus.INTERNAL_SERVER_ERROR);
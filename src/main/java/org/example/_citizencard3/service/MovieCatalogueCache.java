@@ -0,0 +1,110 @@
+package org.example._citizencard3.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example._citizencard3.config.CatalogueCacheConfig;
+import org.example._citizencard3.util.LruCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// 公開電影目錄的近端快取：直接保存序列化後的 JSON 位元組，命中時不經過 Hibernate 與 Jackson
+// 每個項目記錄產生時的版本號，電影資料異動後版本號遞增，舊版本的項目即視為失效
+@Component
+public class MovieCatalogueCache {
+
+    private final CatalogueCacheConfig config;
+    private final ObjectMapper objectMapper;
+    private final LruCache<String, Entry> entries;
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MovieCatalogueCache(CatalogueCacheConfig config, ObjectMapper objectMapper) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.entries = new LruCache<>(config.getMaxBytes(), entry -> entry.json().length + entry.key().length() * 2L);
+    }
+
+    // 取得快取的 JSON，未命中、過期或版本已變更時呼叫 loader 重新查詢並序列化
+    public byte[] get(String key, Supplier<?> loader) {
+        if (!config.isEnabled()) {
+            return serialize(loader.get());
+        }
+
+        long now = System.currentTimeMillis();
+        long currentVersion = version.get();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.version() == currentVersion && entry.expiresAt() > now) {
+                hits.incrementAndGet();
+                return entry.json();
+            }
+            entries.remove(key);
+            expirations.incrementAndGet();
+        }
+
+        misses.incrementAndGet();
+        // 先記下查詢前的版本號，查詢期間若有異動，存入的項目會以舊版本號直接失效
+        byte[] json = serialize(loader.get());
+        entries.put(key, new Entry(key, json, currentVersion, now + config.getTtl()));
+        return json;
+    }
+
+    // 電影資料異動時呼叫；在交易中則於提交後才使快取失效，避免讀到尚未提交的舊資料又被放回快取
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", version.get());
+        stats.put("entries", entries.size());
+        stats.put("bytes", entries.weight());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("evictions", entries.evictionCount());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private void invalidateNow() {
+        version.incrementAndGet();
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("無法序列化電影目錄", e);
+        }
+    }
+
+    private record Entry(String key, byte[] json, long version, long expiresAt) {
+    }
+}
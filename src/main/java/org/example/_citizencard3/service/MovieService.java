@@ -6,7 +6,9 @@ import org.example._citizencard3.dto.response.MovieResponse;
 import org.example._citizencard3.exception.CustomException;
 import org.example._citizencard3.model.Movie;
 import org.example._citizencard3.repository.MovieRepository;
+import org.example._citizencard3.util.InvertedIndex;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -15,12 +17,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class MovieService {
 
     private final MovieRepository movieRepository;
+    private final MovieCatalogueCache catalogueCache;
+    private final SearchIndexService searchIndexService;
 
     public Page<MovieResponse> getAllMovies(String title, String genre, int page, int size, String sort) {
         Sort sorting = createSort(sort);
@@ -66,7 +75,25 @@ public class MovieService {
                 .map(this::convertToResponse);
     }
 
+    // 使用全文檢索索引依相關度排序；索引尚未建立完成時改用資料庫模糊查詢
     public Page<MovieResponse> searchMovies(String keyword, int page, int size, String sort) {
+        if (page < 0 || size < 1) {
+            throw new CustomException("頁碼不能小於0，每頁筆數必須大於0", HttpStatus.BAD_REQUEST);
+        }
+        Optional<InvertedIndex.SearchResult> result =
+                searchIndexService.searchMovies(keyword, (long) page * size, size);
+        if (result.isPresent()) {
+            List<Long> ids = result.get().ids();
+            Map<Long, Movie> movies = movieRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Movie::getId, Function.identity()));
+            List<MovieResponse> content = ids.stream()
+                    .map(movies::get)
+                    .filter(movie -> movie != null && Boolean.TRUE.equals(movie.getActive()))
+                    .map(this::convertToResponse)
+                    .toList();
+            return new PageImpl<>(content, PageRequest.of(page, size), result.get().total());
+        }
+
         Sort sorting = createSort(sort);
         Pageable pageable = PageRequest.of(page, size, sorting);
         return movieRepository.searchMovies(keyword, pageable)
@@ -80,17 +107,41 @@ public class MovieService {
                 .map(this::convertToResponse);
     }
 
+    // 以下為公開目錄的快取版本，回傳序列化後的 JSON
+    public byte[] getNowShowingMoviesJson(int page, int size, String sort) {
+        return catalogueCache.get("now-showing:" + page + ":" + size + ":" + sort,
+                () -> getNowShowingMovies(page, size, sort));
+    }
+
+    public byte[] getComingSoonMoviesJson(int page, int size, String sort) {
+        return catalogueCache.get("coming-soon:" + page + ":" + size + ":" + sort,
+                () -> getComingSoonMovies(page, size, sort));
+    }
+
+    public byte[] getMoviesByGenreJson(String genre, int page, int size, String sort) {
+        return catalogueCache.get("genre:" + page + ":" + size + ":" + sort + ":" + genre,
+                () -> getMoviesByGenre(genre, page, size, sort));
+    }
+
+    public byte[] getAllGenresJson() {
+        return catalogueCache.get("genres", movieRepository::findAllGenres);
+    }
+
     @Transactional
     public MovieResponse toggleMovieStatus(Long id) {
         Movie movie = findMovieById(id);
+        catalogueCache.invalidate();
         movie.setIsShowing(!movie.getIsShowing());
         movie.setUpdatedAt(LocalDateTime.now());
-        return convertToResponse(movieRepository.save(movie));
+        Movie saved = movieRepository.save(movie);
+        searchIndexService.movieChanged(saved);
+        return convertToResponse(saved);
     }
 
     @Transactional
     public MovieResponse createMovie(MovieRequest request) {
         validateMovieRequest(request);
+        catalogueCache.invalidate();
         LocalDateTime now = LocalDateTime.now();
 
         Movie movie = Movie.builder()
@@ -113,12 +164,15 @@ public class MovieService {
                 .updatedAt(now)
                 .build();
 
-        return convertToResponse(movieRepository.save(movie));
+        Movie saved = movieRepository.save(movie);
+        searchIndexService.movieChanged(saved);
+        return convertToResponse(saved);
     }
 
     @Transactional
     public MovieResponse updateMovie(Long id, MovieRequest request) {
         Movie movie = findMovieById(id);
+        catalogueCache.invalidate();
         validateMovieRequest(request);
 
         movie.setTitle(request.getTitle());
@@ -136,15 +190,19 @@ public class MovieService {
         movie.setPrice(request.getPrice());
         movie.setUpdatedAt(LocalDateTime.now());
 
-        return convertToResponse(movieRepository.save(movie));
+        Movie saved = movieRepository.save(movie);
+        searchIndexService.movieChanged(saved);
+        return convertToResponse(saved);
     }
 
     @Transactional
     public void deleteMovie(Long id) {
         Movie movie = findMovieById(id);
+        catalogueCache.invalidate();
         movie.setActive(false);
         movie.setUpdatedAt(LocalDateTime.now());
         movieRepository.save(movie);
+        searchIndexService.movieChanged(movie);
     }
 
     private Movie findMovieById(Long id) {
@@ -0,0 +1,82 @@
+package org.example._citizencard3.service;
+
+import com.google.zxing.WriterException;
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.repository.DiscountCouponQRCodeRepository;
+import org.example._citizencard3.repository.MovieTicketQRCodeRepository;
+import org.example._citizencard3.util.LruCache;
+import org.example._citizencard3.util.QRCodeGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// QR碼圖片：依 qrCodeData 產生 PNG 並快取位元組，資料庫只保存資料字串與圖片網址
+@Service
+public class QRCodeImageService {
+
+    private final QRCodeGenerator qrCodeGenerator;
+    private final MovieTicketQRCodeRepository movieTicketQRCodeRepository;
+    private final DiscountCouponQRCodeRepository discountCouponQRCodeRepository;
+    private final String imagePath;
+    private final LruCache<String, QRCodeImage> imageCache;
+
+    public QRCodeImageService(QRCodeConfig qrCodeConfig,
+                              QRCodeGenerator qrCodeGenerator,
+                              MovieTicketQRCodeRepository movieTicketQRCodeRepository,
+                              DiscountCouponQRCodeRepository discountCouponQRCodeRepository,
+                              @Value("${server.servlet.context-path:}") String contextPath) {
+        this.qrCodeGenerator = qrCodeGenerator;
+        this.movieTicketQRCodeRepository = movieTicketQRCodeRepository;
+        this.discountCouponQRCodeRepository = discountCouponQRCodeRepository;
+        this.imagePath = contextPath + "/api/qrcode/image/";
+        this.imageCache = new LruCache<>(qrCodeConfig.getImageCacheMaxBytes(), image -> image.png().length);
+    }
+
+    // 產生圖片並放入快取，回傳存入資料庫的圖片網址
+    public String prerender(String qrCodeData) {
+        imageCache.put(qrCodeData, render(qrCodeData));
+        return imageUrl(qrCodeData);
+    }
+
+    public String imageUrl(String qrCodeData) {
+        return imagePath + UriUtils.encodePathSegment(qrCodeData, StandardCharsets.UTF_8);
+    }
+
+    // 取得圖片，快取未命中時確認資料存在才產生，避免替任意字串產生圖片
+    public QRCodeImage getImage(String qrCodeData) {
+        QRCodeImage image = imageCache.get(qrCodeData);
+        if (image != null) {
+            return image;
+        }
+        if (!movieTicketQRCodeRepository.existsByQrCodeData(qrCodeData)
+                && !discountCouponQRCodeRepository.existsByQrCodeData(qrCodeData)) {
+            throw new CustomException("找不到QR碼", HttpStatus.NOT_FOUND);
+        }
+        image = render(qrCodeData);
+        imageCache.put(qrCodeData, image);
+        return image;
+    }
+
+    public void evict(String qrCodeData) {
+        imageCache.remove(qrCodeData);
+    }
+
+    private QRCodeImage render(String qrCodeData) {
+        try {
+            byte[] png = qrCodeGenerator.renderPng(qrCodeData);
+            CRC32 crc = new CRC32();
+            crc.update(png);
+            return new QRCodeImage(png, "\"" + Long.toHexString(crc.getValue()) + "-" + png.length + "\"");
+        } catch (WriterException e) {
+            throw new CustomException("QR碼生成失敗", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    public record QRCodeImage(byte[] png, String etag) {
+    }
+}
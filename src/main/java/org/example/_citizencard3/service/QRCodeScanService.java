@@ -0,0 +1,188 @@
+package org.example._citizencard3.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.dto.request.QRCodeScanRequest;
+import org.example._citizencard3.dto.request.QRCodeValidateRequest.QRCodeType;
+import org.example._citizencard3.dto.response.QRCodeScanResponse;
+import org.example._citizencard3.dto.response.QRCodeScanResponse.ScanResult;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.util.QRCodePayloadCodec;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 閘門驗票：以單一條件式 UPDATE 同時驗證並核銷QR碼，多個閘門同時掃描同一張票時只有一個會成功
+// 簽章格式的QR碼先在記憶體驗證，只有通過簽章與有效期限檢查的才會進入資料庫
+@Service
+@RequiredArgsConstructor
+public class QRCodeScanService {
+
+    private static final ScanTarget MOVIE_TICKET_TARGET = new ScanTarget("movie_ticket_qrcodes", "ticket_id");
+    private static final ScanTarget DISCOUNT_COUPON_TARGET = new ScanTarget("discount_coupon_qrcodes", "coupon_id");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QRCodeConfig qrCodeConfig;
+    private final QRCodePayloadCodec payloadCodec;
+
+    @Transactional
+    public QRCodeScanResponse scan(QRCodeScanRequest request) {
+        return scanAll(List.of(request)).get(0);
+    }
+
+    // 批次驗票，供閘門上傳離線暫存的掃描紀錄；回傳結果與請求順序相同
+    @Transactional
+    public List<QRCodeScanResponse> scanBatch(List<QRCodeScanRequest> scans) {
+        if (scans.size() > qrCodeConfig.getMaxScanBatchSize()) {
+            throw new CustomException("單次最多只能上傳" + qrCodeConfig.getMaxScanBatchSize() + "筆掃描資料",
+                    HttpStatus.BAD_REQUEST);
+        }
+        return scanAll(scans);
+    }
+
+    private List<QRCodeScanResponse> scanAll(List<QRCodeScanRequest> scans) {
+        LocalDateTime now = LocalDateTime.now();
+        QRCodeScanResponse[] results = new QRCodeScanResponse[scans.size()];
+        Map<QRCodeType, List<Integer>> pending = new EnumMap<>(QRCodeType.class);
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < scans.size(); i++) {
+            QRCodeScanRequest scan = scans.get(i);
+            QRCodePayloadCodec.Verification verification = payloadCodec.verify(scan.getQrCodeData());
+            QRCodeType type = verification.isValid() ? verification.type() : resolveLegacyType(scan);
+            if (!seen.add(scan.getQrCodeData())) {
+                results[i] = result(scan, type, ScanResult.DUPLICATE, null, null);
+            } else if (verification.isSigned()) {
+                // 簽章格式在記憶體中即可排除偽造、類型不符與過期的QR碼，不需查詢資料庫
+                if (!verification.isValid() || (scan.getType() != null && scan.getType() != type)) {
+                    results[i] = result(scan, type, ScanResult.INVALID, null, null);
+                } else if (verification.isExpiredAt(effectiveScanTime(scan.getScannedAt(), now))) {
+                    results[i] = result(scan, type, ScanResult.EXPIRED, verification.id(), null);
+                } else {
+                    pending.computeIfAbsent(type, key -> new ArrayList<>()).add(i);
+                }
+            } else if (type == null) {
+                results[i] = result(scan, null, ScanResult.NOT_FOUND, null, null);
+            } else {
+                pending.computeIfAbsent(type, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        pending.forEach((type, indexes) -> consume(type, indexes, scans, results, now));
+        return Arrays.asList(results);
+    }
+
+    private void consume(QRCodeType type, List<Integer> indexes, List<QRCodeScanRequest> scans,
+                         QRCodeScanResponse[] results, LocalDateTime now) {
+        ScanTarget target = type == QRCodeType.MOVIE_TICKET ? MOVIE_TICKET_TARGET : DISCOUNT_COUPON_TARGET;
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(indexes.size());
+        List<String> qrCodeData = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            QRCodeScanRequest scan = scans.get(index);
+            Timestamp scannedAt = Timestamp.valueOf(effectiveScanTime(scan.getScannedAt(), now));
+            args.add(new Object[]{scannedAt, updatedAt, scan.getQrCodeData(), scannedAt});
+            qrCodeData.add(scan.getQrCodeData());
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(target.consumeSql, args);
+        Map<String, ScanRow> rows = findRows(target, qrCodeData);
+        for (int i = 0; i < indexes.size(); i++) {
+            // 無法得知單筆結果時回滾整批，寧可閘門重送也不能重複核銷
+            if (updated[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("JDBC driver did not report update counts for QR code scans");
+            }
+            QRCodeScanRequest scan = scans.get(indexes.get(i));
+            ScanRow row = rows.get(scan.getQrCodeData());
+            if (updated[i] == 1) {
+                results[indexes.get(i)] = result(scan, type, ScanResult.ACCEPTED, row.referenceId, row.usedAt);
+            } else if (row == null) {
+                results[indexes.get(i)] = result(scan, type, ScanResult.NOT_FOUND, null, null);
+            } else if (row.used) {
+                results[indexes.get(i)] = result(scan, type, ScanResult.ALREADY_USED, row.referenceId, row.usedAt);
+            } else {
+                results[indexes.get(i)] = result(scan, type, ScanResult.EXPIRED, row.referenceId, null);
+            }
+        }
+    }
+
+    private Map<String, ScanRow> findRows(ScanTarget target, List<String> qrCodeData) {
+        String placeholders = String.join(", ", Collections.nCopies(qrCodeData.size(), "?"));
+        Map<String, ScanRow> rows = new HashMap<>();
+        jdbcTemplate.query(target.selectSql + "(" + placeholders + ")", rs -> {
+            Timestamp usedAt = rs.getTimestamp("used_at");
+            rows.put(rs.getString("qr_code_data"), new ScanRow(
+                    rs.getLong("reference_id"),
+                    rs.getBoolean("is_used"),
+                    usedAt == null ? null : usedAt.toLocalDateTime()));
+        }, qrCodeData.toArray());
+        return rows;
+    }
+
+    // 離線掃描以掃描當下判斷有效期限，但不接受未來時間或過舊的紀錄
+    private LocalDateTime effectiveScanTime(LocalDateTime scannedAt, LocalDateTime now) {
+        if (scannedAt == null || scannedAt.isAfter(now)
+                || scannedAt.isBefore(now.minus(Duration.ofMillis(qrCodeConfig.getMaxOfflineScanAge())))) {
+            return now;
+        }
+        return scannedAt;
+    }
+
+    // 舊格式QR碼依前綴判斷類型
+    private QRCodeType resolveLegacyType(QRCodeScanRequest scan) {
+        if (scan.getType() != null) {
+            return scan.getType();
+        }
+        String data = scan.getQrCodeData();
+        if (data.startsWith("TIX-")) {
+            return QRCodeType.MOVIE_TICKET;
+        }
+        if (data.startsWith("CPN-")) {
+            return QRCodeType.DISCOUNT_COUPON;
+        }
+        return null;
+    }
+
+    private QRCodeScanResponse result(QRCodeScanRequest scan, QRCodeType type, ScanResult result,
+                                      Long referenceId, LocalDateTime usedAt) {
+        return QRCodeScanResponse.builder()
+                .qrCodeData(scan.getQrCodeData())
+                .type(type)
+                .result(result)
+                .accepted(result == ScanResult.ACCEPTED)
+                .referenceId(referenceId)
+                .usedAt(usedAt)
+                .gateId(scan.getGateId())
+                .build();
+    }
+
+    private static final class ScanTarget {
+        private final String consumeSql;
+        private final String selectSql;
+
+        private ScanTarget(String table, String referenceColumn) {
+            this.consumeSql = "UPDATE " + table + " SET is_used = true, used_at = ?, updated_at = ? "
+                    + "WHERE qr_code_data = ? AND is_used = false AND valid_until > ?";
+            this.selectSql = "SELECT qr_code_data, " + referenceColumn + " AS reference_id, is_used, used_at FROM "
+                    + table + " WHERE qr_code_data IN ";
+        }
+    }
+
+    private record ScanRow(Long referenceId, boolean used, LocalDateTime usedAt) {
+    }
+}
@@ -1,25 +1,17 @@
 package org.example._citizencard3.service;
 
+import org.example._citizencard3.dto.request.QRCodeValidateRequest.QRCodeType;
 import org.example._citizencard3.model.MovieTicketQRCode;
 import org.example._citizencard3.model.DiscountCouponQRCode;
 import org.example._citizencard3.repository.MovieTicketQRCodeRepository;
 import org.example._citizencard3.repository.DiscountCouponQRCodeRepository;
+import org.example._citizencard3.util.QRCodePayloadCodec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class QRCodeService {
@@ -30,10 +22,16 @@ public class QRCodeService {
     @Autowired
     private DiscountCouponQRCodeRepository discountCouponQRCodeRepository;
 
+    @Autowired
+    private QRCodeImageService qrCodeImageService;
+
+    @Autowired
+    private QRCodePayloadCodec payloadCodec;
+
     // 生成電影票QR碼
     @Transactional
     public MovieTicketQRCode generateMovieTicketQRCode(Long ticketId, LocalDateTime validUntil) {
-        String qrCodeData = generateQRCodeData("TIX", ticketId);
+        String qrCodeData = generateQRCodeData(QRCodeType.MOVIE_TICKET, ticketId, validUntil);
         String qrCodeUrl = generateQRCodeImage(qrCodeData);
 
         MovieTicketQRCode qrCode = new MovieTicketQRCode();
@@ -49,7 +47,7 @@ public class QRCodeService {
     // 生成優惠券QR碼
     @Transactional
     public DiscountCouponQRCode generateDiscountCouponQRCode(Long couponId, LocalDateTime validUntil) {
-        String qrCodeData = generateQRCodeData("CPN", couponId);
+        String qrCodeData = generateQRCodeData(QRCodeType.DISCOUNT_COUPON, couponId, validUntil);
         String qrCodeUrl = generateQRCodeImage(qrCodeData);
 
         DiscountCouponQRCode qrCode = new DiscountCouponQRCode();
@@ -65,6 +63,15 @@ public class QRCodeService {
     // 驗證電影票QR碼
     @Transactional
     public boolean validateMovieTicketQRCode(String qrCodeData, Long ticketId) {
+        QRCodePayloadCodec.Verification verification = payloadCodec.verify(qrCodeData);
+        if (verification.isSigned()) {
+            // 簽章格式先在記憶體驗證，通過後才查詢是否已使用
+            LocalDateTime now = LocalDateTime.now();
+            return verification.isValidFor(QRCodeType.MOVIE_TICKET, ticketId, now)
+                    && movieTicketQRCodeRepository.isQRCodeValid(qrCodeData, now);
+        }
+
+        // 舊格式QR碼
         Optional<MovieTicketQRCode> qrCode = movieTicketQRCodeRepository.findByQrCodeData(qrCodeData);
 
         if (qrCode.isPresent()) {
@@ -77,6 +84,15 @@ public class QRCodeService {
     // 驗證優惠券QR碼
     @Transactional
     public boolean validateDiscountCouponQRCode(String qrCodeData, Long couponId) {
+        QRCodePayloadCodec.Verification verification = payloadCodec.verify(qrCodeData);
+        if (verification.isSigned()) {
+            // 簽章格式先在記憶體驗證，通過後才查詢是否已使用
+            LocalDateTime now = LocalDateTime.now();
+            return verification.isValidFor(QRCodeType.DISCOUNT_COUPON, couponId, now)
+                    && discountCouponQRCodeRepository.isQRCodeValid(qrCodeData, now);
+        }
+
+        // 舊格式QR碼
         Optional<DiscountCouponQRCode> qrCode = discountCouponQRCodeRepository.findByQrCodeData(qrCodeData);
 
         if (qrCode.isPresent()) {
@@ -86,49 +102,26 @@ public class QRCodeService {
         return false;
     }
 
-    // 標記電影票QR碼已使用
+    // 標記電影票QR碼已使用 (條件式更新，已使用或已過期時不會重複核銷)
     @Transactional
-    public void markMovieTicketQRCodeAsUsed(String qrCodeData) {
-        Optional<MovieTicketQRCode> qrCode = movieTicketQRCodeRepository.findByQrCodeData(qrCodeData);
-        qrCode.ifPresent(code -> {
-            code.setIsUsed(true);
-            code.setUsedAt(LocalDateTime.now());
-            movieTicketQRCodeRepository.save(code);
-        });
+    public boolean markMovieTicketQRCodeAsUsed(String qrCodeData) {
+        return movieTicketQRCodeRepository.consumeByQrCodeData(qrCodeData, LocalDateTime.now()) == 1;
     }
 
-    // 標記優惠券QR碼已使用
+    // 標記優惠券QR碼已使用 (條件式更新，已使用或已過期時不會重複核銷)
     @Transactional
-    public void markDiscountCouponQRCodeAsUsed(String qrCodeData) {
-        Optional<DiscountCouponQRCode> qrCode = discountCouponQRCodeRepository.findByQrCodeData(qrCodeData);
-        qrCode.ifPresent(code -> {
-            code.setIsUsed(true);
-            code.setUsedAt(LocalDateTime.now());
-            discountCouponQRCodeRepository.save(code);
-        });
+    public boolean markDiscountCouponQRCodeAsUsed(String qrCodeData) {
+        return discountCouponQRCodeRepository.consumeByQrCodeData(qrCodeData, LocalDateTime.now()) == 1;
     }
 
-    // 生成QR碼數據
-    private String generateQRCodeData(String prefix, Long id) {
-        return prefix + "-" + LocalDateTime.now().getYear() + "-" +
-                String.format("%06d", id) + "-" +
-                UUID.randomUUID().toString().substring(0, 8);
+    // 生成QR碼數據 (自帶簽章，可離線驗證)
+    private String generateQRCodeData(QRCodeType type, Long id, LocalDateTime validUntil) {
+        return payloadCodec.encode(type, id, validUntil);
     }
 
-    // 生成QR碼圖片
+    // 預先產生QR碼圖片並放入快取，資料庫只保存圖片網址
     private String generateQRCodeImage(String qrCodeData) {
-        try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(qrCodeData, BarcodeFormat.QR_CODE, 200, 200);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-            byte[] qrCodeBytes = outputStream.toByteArray();
-
-            return Base64.getEncoder().encodeToString(qrCodeBytes);
-        } catch (WriterException | IOException e) {
-            throw new RuntimeException("QR碼生成失敗", e);
-        }
+        return qrCodeImageService.prerender(qrCodeData);
     }
     // 在QRCodeService.java中添加以下方法
 
@@ -161,7 +154,8 @@ public class QRCodeService {
         }
 
         MovieTicketQRCode qrCode = existingQRCode.get();
-        String newQRCodeData = generateQRCodeData("TIX", ticketId);
+        qrCodeImageService.evict(qrCode.getQrCodeData());
+        String newQRCodeData = generateQRCodeData(QRCodeType.MOVIE_TICKET, ticketId, qrCode.getValidUntil());
         String newQRCodeUrl = generateQRCodeImage(newQRCodeData);
 
         qrCode.setQrCodeData(newQRCodeData);
@@ -181,7 +175,8 @@ public class QRCodeService {
         }
 
         DiscountCouponQRCode qrCode = existingQRCode.get();
-        String newQRCodeData = generateQRCodeData("CPN", couponId);
+        qrCodeImageService.evict(qrCode.getQrCodeData());
+        String newQRCodeData = generateQRCodeData(QRCodeType.DISCOUNT_COUPON, couponId, qrCode.getValidUntil());
         String newQRCodeUrl = generateQRCodeImage(newQRCodeData);
 
         qrCode.setQrCodeData(newQRCodeData);
@@ -0,0 +1,222 @@
+package org.example._citizencard3.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.ScheduleConfig;
+import org.example._citizencard3.util.HallIntervalIndex;
+import org.example._citizencard3.util.RebuildableIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 影廳場次衝突索引：每個影廳的有效場次以 [放映時間, 放映時間 + 片長 + 清場時間) 的區間保存
+// 啟動時與每日從 schedules 資料表重建，只載入尚未結束的場次
+// 新增與修改場次在交易內以 reserve 檢查並放入索引，檢查與放入在同一把鎖內，同時建立的場次不會互相重疊
+// 交易回滾後以資料庫內容還原；索引尚未建立完成時改以資料庫查詢檢查(不預留)
+@Slf4j
+@Service
+public class ScheduleConflictIndexService {
+
+    private static final String SELECT_SQL = "SELECT s.id, s.hall, s.show_time, s.active, m.duration "
+            + "FROM schedules s JOIN movies m ON m.id = s.movie_id";
+    private static final String SELECT_ACTIVE_SQL = SELECT_SQL + " WHERE s.active = true AND s.show_time >= ?";
+    private static final String SELECT_HALL_SQL = SELECT_SQL
+            + " WHERE s.active = true AND s.hall = ? AND s.show_time >= ? AND s.show_time < ?";
+    private static final String MAX_DURATION_SQL = "SELECT COALESCE(MAX(duration), 0) FROM movies";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduleConfig config;
+    private final RowMapper<HallIntervalIndex.Interval> rowMapper;
+
+    // 索引的讀寫都經由 RebuildableIndex 的同一把鎖，重建期間的異動暫存後套用到新索引
+    private final RebuildableIndex<HallIntervalIndex> index = new RebuildableIndex<>();
+
+    public ScheduleConflictIndexService(JdbcTemplate jdbcTemplate, ScheduleConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+        this.rowMapper = (rs, rowNum) -> interval(rs.getLong("id"), rs.getString("hall"),
+                rs.getTimestamp("show_time").toLocalDateTime(), rs.getInt("duration"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${schedule.conflict-index-rebuild-cron:0 30 1 * * ?}")
+    public void rebuild() {
+        try {
+            HallIntervalIndex schedules = index.rebuild(() -> {
+                HallIntervalIndex rebuilt = new HallIntervalIndex();
+                // 一天前開始的場次都已結束，不會與新場次重疊
+                jdbcTemplate.query(SELECT_ACTIVE_SQL, rs -> {
+                    rebuilt.put(rowMapper.mapRow(rs, 0));
+                }, Timestamp.valueOf(LocalDateTime.now().minusDays(1)));
+                return rebuilt;
+            });
+            log.info("Schedule conflict index built: {} schedules", schedules.size());
+        } catch (DataAccessException e) {
+            log.warn("Schedule conflict index build failed, falling back to database queries: {}", e.getMessage());
+        }
+    }
+
+    // 場次占用影廳的區間；尚未建立的場次 id 可為任意不重複的負數
+    public HallIntervalIndex.Interval interval(long id, String hall, LocalDateTime showTime, int durationMinutes) {
+        return new HallIntervalIndex.Interval(id, hall, showTime,
+                showTime.plusMinutes((long) durationMinutes + config.getCleaningBuffer()));
+    }
+
+    // 檢查 intervals 彼此之間以及與既有場次是否重疊，不修改索引
+    // 同 id 的既有場次視為被取代，不算衝突
+    public List<Conflict> findConflicts(List<HallIntervalIndex.Interval> intervals) {
+        List<Conflict> conflicts = findConflictsWithinBatch(intervals);
+        conflicts.addAll(index.read(current -> findConflictsWithExisting(intervals, current)));
+        conflicts.sort(Comparator.comparingInt(Conflict::index));
+        return conflicts;
+    }
+
+    // 沒有衝突時把 intervals 放入索引並回傳空清單，有衝突時不放入並回傳衝突
+    // 在交易內呼叫時，提交後再套用一次(涵蓋提交前開始的重建)，回滾後以資料庫內容還原這些場次
+    public List<Conflict> reserve(List<HallIntervalIndex.Interval> intervals) {
+        List<Conflict> conflicts = findConflictsWithinBatch(intervals);
+        if (!conflicts.isEmpty()) {
+            return conflicts;
+        }
+        conflicts = index.read(current -> {
+            List<Conflict> found = findConflictsWithExisting(intervals, current);
+            // 索引尚未建立時不預留，提交後再放入
+            if (found.isEmpty() && current != null) {
+                index.apply(reserved -> intervals.forEach(reserved::put));
+            }
+            return found;
+        });
+        if (!conflicts.isEmpty()) {
+            return conflicts;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = intervals.stream().map(HallIntervalIndex.Interval::id).toList();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        index.apply(current -> intervals.forEach(current::put));
+                    } else {
+                        refresh(ids);
+                    }
+                }
+            });
+        }
+        return conflicts;
+    }
+
+    // 場次停用或刪除後呼叫，交易提交後從索引移除
+    public void scheduleRemoved(long id) {
+        index.applyAfterCommit(current -> current.remove(id));
+    }
+
+    // 同一批次內依影廳分組後依開始時間掃描，目前結束最晚的區間與下一個區間比較
+    private List<Conflict> findConflictsWithinBatch(List<HallIntervalIndex.Interval> intervals) {
+        Map<String, List<Integer>> byHall = new HashMap<>();
+        for (int i = 0; i < intervals.size(); i++) {
+            byHall.computeIfAbsent(intervals.get(i).hall(), hall -> new ArrayList<>()).add(i);
+        }
+        List<Conflict> conflicts = new ArrayList<>();
+        for (List<Integer> positions : byHall.values()) {
+            positions.sort(Comparator.comparing((Integer i) -> intervals.get(i).start()));
+            int latest = -1;
+            for (int position : positions) {
+                HallIntervalIndex.Interval interval = intervals.get(position);
+                if (latest >= 0 && intervals.get(latest).end().isAfter(interval.start())) {
+                    conflicts.add(new Conflict(position, latest, null));
+                }
+                if (latest < 0 || interval.end().isAfter(intervals.get(latest).end())) {
+                    latest = position;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private List<Conflict> findConflictsWithExisting(List<HallIntervalIndex.Interval> intervals,
+                                                     HallIntervalIndex current) {
+        Set<Long> ignoredIds = new HashSet<>();
+        intervals.forEach(interval -> ignoredIds.add(interval.id()));
+        List<Conflict> conflicts = new ArrayList<>();
+        long maxDuration = current == null ? maxDurationMinutes() : 0;
+        for (int i = 0; i < intervals.size(); i++) {
+            HallIntervalIndex.Interval interval = intervals.get(i);
+            HallIntervalIndex.Interval existing = current != null
+                    ? current.findOverlap(interval.hall(), interval.start(), interval.end(), ignoredIds)
+                    : findOverlapInDatabase(interval, maxDuration, ignoredIds);
+            if (existing != null) {
+                conflicts.add(new Conflict(i, null, existing));
+            }
+        }
+        return conflicts;
+    }
+
+    private HallIntervalIndex.Interval findOverlapInDatabase(HallIntervalIndex.Interval interval, long maxDuration,
+                                                             Set<Long> ignoredIds) {
+        LocalDateTime from = interval.start().minusMinutes(maxDuration + config.getCleaningBuffer());
+        return jdbcTemplate.query(SELECT_HALL_SQL, rowMapper, interval.hall(),
+                        Timestamp.valueOf(from), Timestamp.valueOf(interval.end()))
+                .stream()
+                .filter(existing -> existing.end().isAfter(interval.start()) && !ignoredIds.contains(existing.id()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private long maxDurationMinutes() {
+        Long duration = jdbcTemplate.queryForObject(MAX_DURATION_SQL, Long.class);
+        return duration == null ? 0 : duration;
+    }
+
+    // 以資料庫目前的內容更新這些場次：有效的放入，停用或不存在的移除
+    private void refresh(List<Long> ids) {
+        if (ids.isEmpty() || index.current() == null) {
+            return;
+        }
+        try {
+            String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            Map<Long, HallIntervalIndex.Interval> active = new HashMap<>();
+            jdbcTemplate.query(SELECT_SQL + " WHERE s.id IN (" + placeholders + ")", rs -> {
+                if (rs.getBoolean("active")) {
+                    HallIntervalIndex.Interval interval = rowMapper.mapRow(rs, 0);
+                    active.put(interval.id(), interval);
+                }
+            }, ids.toArray());
+            index.apply(current -> ids.forEach(id -> {
+                HallIntervalIndex.Interval interval = active.get(id);
+                if (interval != null) {
+                    current.put(interval);
+                } else {
+                    current.remove(id);
+                }
+            }));
+        } catch (DataAccessException e) {
+            // 下一次重建時修正
+            log.warn("Failed to refresh schedule conflict index for {} schedules: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    // index 筆與同批次的 otherIndex 筆重疊，或與既有場次 existing 重疊(兩者擇一)
+    public record Conflict(int index, Integer otherIndex, HallIntervalIndex.Interval existing) {
+    }
+}
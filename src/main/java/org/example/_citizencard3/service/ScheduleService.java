@@ -1,18 +1,36 @@
 package org.example._citizencard3.service;
 
+import org.example._citizencard3.config.ScheduleConfig;
+import org.example._citizencard3.config.SeatInventoryConfig;
+import org.example._citizencard3.dto.request.ScheduleRequest;
+import org.example._citizencard3.dto.response.ScheduleBatchResponse;
+import org.example._citizencard3.dto.response.SeatHoldResponse;
+import org.example._citizencard3.dto.response.SeatMapResponse;
 import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.mapper.ScheduleMapper;
 import org.example._citizencard3.model.Movie;
 import org.example._citizencard3.model.Schedule;
 import org.example._citizencard3.repository.MovieRepository;
 import org.example._citizencard3.repository.ScheduleRepository;
+import org.example._citizencard3.util.HallIntervalIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.scheduling.annotation.Scheduled;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ScheduleService {
@@ -23,44 +41,60 @@ public class ScheduleService {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private SeatInventoryConfig seatInventoryConfig;
+
+    @Autowired
+    private ScheduleConflictIndexService scheduleConflictIndexService;
+
+    @Autowired
+    private ScheduleConfig scheduleConfig;
+
+    @Autowired
+    private ScheduleMapper scheduleMapper;
+
     // 基本查詢方法
     public List<Schedule> findAllSchedules() {
-        return scheduleRepository.findAll();
+        return applyLiveSeats(scheduleRepository.findAll());
     }
 
     public Schedule findScheduleById(Long id) {
-        return scheduleRepository.findById(id)
+        Schedule schedule = scheduleRepository.findById(id)
                 .orElseThrow(() -> new CustomException("場次不存在", HttpStatus.NOT_FOUND));
+        return applyLiveSeats(schedule);
     }
 
     public List<Schedule> findSchedulesByMovie(Long movieId) {
         validateMovie(movieId);
-        return scheduleRepository.findByMovieIdAndActive(movieId, true);
+        return applyLiveSeats(scheduleRepository.findByMovieIdAndActive(movieId, true));
     }
 
     public List<Schedule> findAvailableSchedules() {
-        return scheduleRepository.findAvailableSchedules(LocalDateTime.now());
+        return applyLiveSeats(scheduleRepository.findAvailableSchedules(LocalDateTime.now()));
     }
 
     public List<Schedule> findAvailableSchedulesByMovie(Long movieId) {
         validateMovie(movieId);
-        return scheduleRepository.findAvailableSchedulesByMovie(movieId, LocalDateTime.now());
+        return applyLiveSeats(scheduleRepository.findAvailableSchedulesByMovie(movieId, LocalDateTime.now()));
     }
 
     public List<Schedule> findByDateRange(LocalDateTime startTime, LocalDateTime endTime) {
         validateDateRange(startTime, endTime);
-        return scheduleRepository.findByDateRange(startTime, endTime);
+        return applyLiveSeats(scheduleRepository.findByDateRange(startTime, endTime));
     }
 
     public List<Schedule> findByMovieIdAndDateRange(Long movieId, LocalDateTime startTime, LocalDateTime endTime) {
         validateMovie(movieId);
         validateDateRange(startTime, endTime);
-        return scheduleRepository.findByMovieIdAndDateRange(movieId, startTime, endTime);
+        return applyLiveSeats(scheduleRepository.findByMovieIdAndDateRange(movieId, startTime, endTime));
     }
 
     public List<Schedule> findByHallAndDateRange(String hall, LocalDateTime startTime, LocalDateTime endTime) {
         validateDateRange(startTime, endTime);
-        return scheduleRepository.findByHallAndShowTimeBetween(hall, startTime, endTime);
+        return applyLiveSeats(scheduleRepository.findByHallAndShowTimeBetween(hall, startTime, endTime));
     }
 
     public Long countSchedulesByMovieAndDateRange(Long movieId, LocalDateTime startTime, LocalDateTime endTime) {
@@ -69,34 +103,63 @@ public class ScheduleService {
         return scheduleRepository.countSchedulesByMovieAndDateRange(movieId, startTime, endTime);
     }
 
-    // 座位相關操作
-    @Transactional
+    // 座位相關操作：座位狀態由 SeatInventory 管理，可用座位數為位元圖計算結果
     public Schedule updateAvailableSeats(Long id, int seatsToBook) {
         Schedule schedule = findScheduleById(id);
         validateSeatBooking(schedule, seatsToBook);
 
-        schedule.setAvailableSeats(schedule.getAvailableSeats() - seatsToBook);
-        schedule.setUpdatedAt(LocalDateTime.now());
-        return scheduleRepository.save(schedule);
+        seatInventory.bookAny(id, schedule.getTotalSeats(), seatsToBook, currentUserEmail());
+        schedule.setAvailableSeats(seatInventory.availableSeats(id, schedule.getTotalSeats()));
+        return schedule;
     }
 
-    @Transactional
     public Schedule resetAvailableSeats(Long id) {
         Schedule schedule = findScheduleById(id);
-        schedule.setAvailableSeats(schedule.getTotalSeats());
-        schedule.setUpdatedAt(LocalDateTime.now());
-        return scheduleRepository.save(schedule);
+        seatInventory.reset(id, schedule.getTotalSeats());
+        schedule.setAvailableSeats(seatInventory.availableSeats(id, schedule.getTotalSeats()));
+        return schedule;
+    }
+
+    public SeatMapResponse getSeatMap(Long id) {
+        Schedule schedule = findScheduleById(id);
+        int totalSeats = schedule.getTotalSeats();
+        return SeatMapResponse.builder()
+                .scheduleId(id)
+                .totalSeats(totalSeats)
+                .availableSeats(seatInventory.availableSeats(id, totalSeats))
+                .seatsPerRow(seatInventoryConfig.getSeatsPerRow())
+                .soldSeats(seatInventory.soldSeats(id, totalSeats))
+                .heldSeats(seatInventory.heldSeats(id, totalSeats))
+                .build();
+    }
+
+    public SeatHoldResponse holdSeats(Long id, List<String> seats) {
+        Schedule schedule = findScheduleById(id);
+        validateSeatBooking(schedule, seats == null ? 0 : seats.size());
+        return toSeatHoldResponse(seatInventory.hold(id, schedule.getTotalSeats(), seats, currentUserEmail()));
+    }
+
+    public SeatHoldResponse confirmSeatHold(Long id, Long holdId) {
+        return toSeatHoldResponse(seatInventory.confirm(id, holdId, currentUserEmail()));
+    }
+
+    public void releaseSeatHold(Long id, Long holdId) {
+        seatInventory.release(id, holdId, currentUserEmail());
     }
 
     // 場次管理
     @Transactional
     public Schedule createSchedule(Schedule schedule) {
-        validateSchedule(schedule);
+        Movie movie = validateSchedule(schedule);
         LocalDateTime now = LocalDateTime.now();
+        schedule.setMovie(movie);
         schedule.setCreatedAt(now);
         schedule.setUpdatedAt(now);
         schedule.setActive(true);
-        return scheduleRepository.save(schedule);
+        schedule.setAvailableSeats(schedule.getTotalSeats());
+        Schedule saved = scheduleRepository.save(schedule);
+        reserveHall(saved, movie);
+        return saved;
     }
 
     @Transactional
@@ -104,20 +167,93 @@ public class ScheduleService {
         Schedule existingSchedule = findScheduleById(id);
         validateSchedule(schedule);
 
+        boolean seatsChanged = !existingSchedule.getTotalSeats().equals(schedule.getTotalSeats());
         existingSchedule.setShowTime(schedule.getShowTime());
         existingSchedule.setHall(schedule.getHall());
         existingSchedule.setTotalSeats(schedule.getTotalSeats());
-        existingSchedule.setAvailableSeats(schedule.getAvailableSeats());
         existingSchedule.setActive(schedule.isActive());
         existingSchedule.setUpdatedAt(LocalDateTime.now());
 
-        return scheduleRepository.save(existingSchedule);
+        Schedule saved = scheduleRepository.save(existingSchedule);
+        if (saved.isActive()) {
+            // 場次的電影不會變更，占用時段以原本電影的片長計算
+            reserveHall(saved, saved.getMovie());
+        } else {
+            scheduleConflictIndexService.scheduleRemoved(id);
+        }
+        if (seatsChanged) {
+            seatInventory.reload(id, saved.getTotalSeats());
+        }
+        return applyLiveSeats(saved);
     }
 
     @Transactional
     public void deleteSchedule(Long id) {
         Schedule schedule = findScheduleById(id);
+        seatInventory.deleteSoldSeats(id);
         scheduleRepository.delete(schedule);
+        scheduleConflictIndexService.scheduleRemoved(id);
+        afterCommit(() -> seatInventory.drop(id));
+    }
+
+    // 批次驗證場次(例如一週內所有影廳的時刻表)：每筆的基本條件、同批次之間與既有場次的影廳時段衝突
+    public ScheduleBatchResponse validateSchedules(List<ScheduleRequest> requests) {
+        List<ScheduleBatchResponse.ItemError> errors = new ArrayList<>();
+        validateBatch(requests, errors);
+        return ScheduleBatchResponse.builder()
+                .valid(errors.isEmpty())
+                .total(requests.size())
+                .errors(errors)
+                .build();
+    }
+
+    // 批次建立場次，全部通過驗證才在同一個交易內寫入；任一筆不通過時全部不建立，回傳的 valid 為 false
+    @Transactional
+    public ScheduleBatchResponse createSchedules(List<ScheduleRequest> requests) {
+        List<ScheduleBatchResponse.ItemError> errors = new ArrayList<>();
+        Map<Long, Movie> movies = validateBatch(requests, errors);
+        if (!errors.isEmpty()) {
+            return ScheduleBatchResponse.builder()
+                    .valid(false)
+                    .total(requests.size())
+                    .errors(errors)
+                    .build();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Schedule> schedules = new ArrayList<>(requests.size());
+        for (ScheduleRequest request : requests) {
+            Movie movie = movies.get(request.getMovieId());
+            schedules.add(Schedule.builder()
+                    .movie(movie)
+                    .movieId(movie.getId())
+                    .showTime(request.getShowTime())
+                    .hall(request.getHall())
+                    .totalSeats(request.getTotalSeats())
+                    .availableSeats(request.getTotalSeats())
+                    .active(true)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        // ID 由序列預先配置，寫入依 hibernate.jdbc.batch_size 批次送出
+        List<Schedule> saved = scheduleRepository.saveAll(schedules);
+
+        List<HallIntervalIndex.Interval> intervals = new ArrayList<>(saved.size());
+        for (Schedule schedule : saved) {
+            intervals.add(scheduleConflictIndexService.interval(schedule.getId(), schedule.getHall(),
+                    schedule.getShowTime(), movies.get(schedule.getMovieId()).getDuration()));
+        }
+        if (!scheduleConflictIndexService.reserve(intervals).isEmpty()) {
+            // 驗證之後有其他場次搶先占用相同時段
+            throw new CustomException("影廳時段已被其他場次占用，請重新驗證", HttpStatus.CONFLICT);
+        }
+        return ScheduleBatchResponse.builder()
+                .valid(true)
+                .total(requests.size())
+                .errors(List.of())
+                .created(scheduleMapper.toResponseList(saved))
+                .build();
     }
 
     // 定時任務
@@ -130,6 +266,30 @@ public class ScheduleService {
             schedule.setUpdatedAt(LocalDateTime.now());
         });
         scheduleRepository.saveAll(expiredSchedules);
+
+        // 已過期或停用的場次不再選位，移除記憶體中的座位圖
+        Set<Long> loaded = seatInventory.loadedSchedules();
+        if (!loaded.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            Set<Long> live = scheduleRepository.findAllById(loaded).stream()
+                    .filter(schedule -> schedule.isActive() && !schedule.getShowTime().isBefore(now))
+                    .map(Schedule::getId)
+                    .collect(Collectors.toSet());
+            afterCommit(() -> loaded.stream().filter(id -> !live.contains(id)).forEach(seatInventory::drop));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     // 驗證方法
@@ -139,53 +299,108 @@ public class ScheduleService {
         }
     }
 
-    private void validateSchedule(Schedule schedule) {
+    private Movie validateSchedule(Schedule schedule) {
         if (schedule.getShowTime() == null) {
             throw new CustomException("放映時間不能為空", HttpStatus.BAD_REQUEST);
         }
 
-        if (schedule.getShowTime().isBefore(LocalDateTime.now())) {
-            throw new CustomException("放映時間不能早於現在", HttpStatus.BAD_REQUEST);
-        }
-
         Optional<Movie> movie = movieRepository.findById(schedule.getMovieId());
         if (movie.isEmpty()) {
             throw new CustomException("電影不存在", HttpStatus.NOT_FOUND);
         }
 
-        Movie movieEntity = movie.get();
-        if (schedule.getShowTime().isAfter(movieEntity.getEndDate())) {
-            throw new CustomException("場次時間超出電影下架時間", HttpStatus.BAD_REQUEST);
+        String error = scheduleError(schedule.getShowTime(), schedule.getTotalSeats(),
+                schedule.getAvailableSeats(), movie.get(), LocalDateTime.now());
+        if (error != null) {
+            throw new CustomException(error, HttpStatus.BAD_REQUEST);
         }
-
-        validateSeats(schedule);
-        validateScheduleConflict(schedule);
+        return movie.get();
     }
 
-    private void validateSeats(Schedule schedule) {
-        if (schedule.getTotalSeats() <= 0) {
-            throw new CustomException("總座位數必須大於0", HttpStatus.BAD_REQUEST);
+    // 放映時間、電影下架時間與座位數的檢查，不通過時回傳錯誤訊息
+    private String scheduleError(LocalDateTime showTime, Integer totalSeats, Integer availableSeats,
+                                 Movie movie, LocalDateTime now) {
+        if (showTime.isBefore(now)) {
+            return "放映時間不能早於現在";
         }
-
-        if (schedule.getTotalSeats() > 300) {
-            throw new CustomException("總座位數不能超過300", HttpStatus.BAD_REQUEST);
+        if (showTime.isAfter(movie.getEndDate())) {
+            return "場次時間超出電影下架時間";
+        }
+        if (totalSeats <= 0) {
+            return "總座位數必須大於0";
+        }
+        if (totalSeats > 300) {
+            return "總座位數不能超過300";
+        }
+        if (availableSeats != null && availableSeats > totalSeats) {
+            return "可用座位數不能大於總座位數";
         }
+        return null;
+    }
 
-        if (schedule.getAvailableSeats() > schedule.getTotalSeats()) {
-            throw new CustomException("可用座位數不能大於總座位數", HttpStatus.BAD_REQUEST);
+    // 在交易內預留影廳時段，與其他有效場次重疊時回滾
+    private void reserveHall(Schedule schedule, Movie movie) {
+        List<ScheduleConflictIndexService.Conflict> conflicts = scheduleConflictIndexService.reserve(List.of(
+                scheduleConflictIndexService.interval(schedule.getId(), schedule.getHall(),
+                        schedule.getShowTime(), movie.getDuration())));
+        if (!conflicts.isEmpty()) {
+            throw new CustomException("該影廳在此時段已有其他場次安排", HttpStatus.CONFLICT);
         }
     }
 
-    private void validateScheduleConflict(Schedule schedule) {
-        List<Schedule> conflictSchedules = scheduleRepository.findByHallAndShowTimeBetween(
-                schedule.getHall(),
-                schedule.getShowTime().minusHours(3),
-                schedule.getShowTime().plusHours(3)
-        );
+    // 檢查每筆的基本條件，通過的再一起檢查影廳時段衝突；錯誤加入 errors，回傳用到的電影
+    private Map<Long, Movie> validateBatch(List<ScheduleRequest> requests,
+                                           List<ScheduleBatchResponse.ItemError> errors) {
+        if (requests.size() > scheduleConfig.getMaxBatchSize()) {
+            throw new CustomException("單次最多" + scheduleConfig.getMaxBatchSize() + "筆場次", HttpStatus.BAD_REQUEST);
+        }
+        Set<Long> movieIds = requests.stream().map(ScheduleRequest::getMovieId).collect(Collectors.toSet());
+        Map<Long, Movie> movies = movieRepository.findAllById(movieIds).stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
 
-        if (!conflictSchedules.isEmpty()) {
-            throw new CustomException("該影廳在此時段已有其他場次安排", HttpStatus.CONFLICT);
+        LocalDateTime now = LocalDateTime.now();
+        List<HallIntervalIndex.Interval> intervals = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ScheduleRequest request = requests.get(i);
+            Movie movie = movies.get(request.getMovieId());
+            String error = movie == null ? "電影不存在" : scheduleError(request.getShowTime(),
+                    request.getTotalSeats(), request.getAvailableSeats(), movie, now);
+            if (error != null) {
+                errors.add(itemError(i, request, error));
+                continue;
+            }
+            // 尚未建立的場次以負數作為區間 ID
+            intervals.add(scheduleConflictIndexService.interval(-(i + 1L), request.getHall(),
+                    request.getShowTime(), movie.getDuration()));
+            positions.add(i);
         }
+
+        Set<Integer> reported = new HashSet<>();
+        for (ScheduleConflictIndexService.Conflict conflict : scheduleConflictIndexService.findConflicts(intervals)) {
+            int index = positions.get(conflict.index());
+            if (!reported.add(index)) {
+                continue;
+            }
+            ScheduleBatchResponse.ItemError error = itemError(index, requests.get(index), "該影廳在此時段已有其他場次安排");
+            if (conflict.existing() != null) {
+                error.setConflictScheduleId(conflict.existing().id());
+            } else {
+                error.setConflictIndex(positions.get(conflict.otherIndex()));
+            }
+            errors.add(error);
+        }
+        errors.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return movies;
+    }
+
+    private ScheduleBatchResponse.ItemError itemError(int index, ScheduleRequest request, String message) {
+        return ScheduleBatchResponse.ItemError.builder()
+                .index(index)
+                .hall(request.getHall())
+                .showTime(request.getShowTime())
+                .message(message)
+                .build();
     }
 
     private void validateSeatBooking(Schedule schedule, int seatsToBook) {
@@ -193,8 +408,9 @@ public class ScheduleService {
             throw new CustomException("訂票數量必須大於0", HttpStatus.BAD_REQUEST);
         }
 
-        if (schedule.getAvailableSeats() < seatsToBook) {
-            throw new CustomException("可用座位數不足", HttpStatus.BAD_REQUEST);
+        int maxSeats = Math.min(schedule.getTotalSeats(), seatInventoryConfig.getMaxSeatsPerHold());
+        if (seatsToBook > maxSeats) {
+            throw new CustomException("單次最多只能訂" + maxSeats + "個座位", HttpStatus.BAD_REQUEST);
         }
 
         if (!schedule.isActive()) {
@@ -206,6 +422,31 @@ public class ScheduleService {
         }
     }
 
+    private Schedule applyLiveSeats(Schedule schedule) {
+        seatInventory.peekAvailableSeats(schedule.getId()).ifPresent(schedule::setAvailableSeats);
+        return schedule;
+    }
+
+    private List<Schedule> applyLiveSeats(List<Schedule> schedules) {
+        schedules.forEach(this::applyLiveSeats);
+        return schedules;
+    }
+
+    private SeatHoldResponse toSeatHoldResponse(SeatInventory.SeatHold hold) {
+        return SeatHoldResponse.builder()
+                .holdId(hold.holdId())
+                .scheduleId(hold.scheduleId())
+                .seats(hold.seats())
+                .expiresAt(hold.expiresAt())
+                .confirmed(hold.confirmed())
+                .build();
+    }
+
+    private String currentUserEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+
     private void validateDateRange(LocalDateTime startTime, LocalDateTime endTime) {
         if (startTime == null || endTime == null) {
             throw new CustomException("起始時間和結束時間不能為空", HttpStatus.BAD_REQUEST);
@@ -0,0 +1,119 @@
+package org.example._citizencard3.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.model.Movie;
+import org.example._citizencard3.model.Store;
+import org.example._citizencard3.util.InvertedIndex;
+import org.example._citizencard3.util.InvertedIndex.Field;
+import org.example._citizencard3.util.RebuildableIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+// 電影與商店的全文檢索索引：啟動時從資料表建立，之後由各 service 的寫入路徑在交易提交後增量更新
+// 索引尚未建立完成時回傳 empty，呼叫端改用原本的資料庫查詢
+@Slf4j
+@Service
+public class SearchIndexService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 重建期間的異動先暫存，重建完成後套用到新索引，避免被較舊的快照覆蓋
+    private final RebuildableIndex<InvertedIndex> movieIndex = new RebuildableIndex<>();
+    private final RebuildableIndex<InvertedIndex> storeIndex = new RebuildableIndex<>();
+
+    public SearchIndexService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            InvertedIndex movies = movieIndex.rebuild(() -> {
+                InvertedIndex rebuilt = new InvertedIndex();
+                jdbcTemplate.query("SELECT id, title, director, cast, genre, description FROM movies "
+                        + "WHERE active = true ORDER BY id", rs -> {
+                    rebuilt.put(rs.getLong("id"), movieFields(rs.getString("title"), rs.getString("director"),
+                            rs.getString("cast"), rs.getString("genre"), rs.getString("description")));
+                });
+                return rebuilt;
+            });
+
+            InvertedIndex stores = storeIndex.rebuild(() -> {
+                InvertedIndex rebuilt = new InvertedIndex();
+                jdbcTemplate.query("SELECT id, name, category, address, description FROM stores "
+                        + "WHERE active = true AND is_deleted = false ORDER BY id", rs -> {
+                    rebuilt.put(rs.getLong("id"), storeFields(rs.getString("name"), rs.getString("category"),
+                            rs.getString("address"), rs.getString("description")));
+                });
+                return rebuilt;
+            });
+            log.info("Search index built: {} movies, {} stores", movies.size(), stores.size());
+        } catch (DataAccessException e) {
+            log.warn("Search index build failed, falling back to database search: {}", e.getMessage());
+        }
+    }
+
+    public Optional<InvertedIndex.SearchResult> searchMovies(String keyword, long offset, int limit) {
+        InvertedIndex index = movieIndex.current();
+        return index == null ? Optional.empty() : Optional.of(index.search(keyword, cappedOffset(offset, limit), limit));
+    }
+
+    public Optional<InvertedIndex.SearchResult> searchStores(String query, long offset, int limit) {
+        InvertedIndex index = storeIndex.current();
+        return index == null ? Optional.empty() : Optional.of(index.search(query, cappedOffset(offset, limit), limit));
+    }
+
+    // 超過 int 範圍的偏移量必定超過總筆數，截斷後仍回傳空頁與正確的總筆數
+    private static int cappedOffset(long offset, int limit) {
+        return (int) Math.min(offset, Integer.MAX_VALUE - (long) Math.max(limit, 0));
+    }
+
+    // 電影新增或修改後呼叫；停用的電影從索引移除
+    public void movieChanged(Movie movie) {
+        long id = movie.getId();
+        if (Boolean.TRUE.equals(movie.getActive())) {
+            List<Field> fields = movieFields(movie.getTitle(), movie.getDirector(), movie.getCast(),
+                    movie.getGenre(), movie.getDescription());
+            movieIndex.applyAfterCommit(index -> index.put(id, fields));
+        } else {
+            movieIndex.applyAfterCommit(index -> index.remove(id));
+        }
+    }
+
+    // 商店新增、修改或刪除後呼叫；停用或已刪除的商店從索引移除
+    public void storeChanged(Store store) {
+        long id = store.getId();
+        if (store.isActive() && !store.isDeleted()) {
+            List<Field> fields = storeFields(store.getName(), store.getCategory(), store.getAddress(),
+                    store.getDescription());
+            storeIndex.applyAfterCommit(index -> index.put(id, fields));
+        } else {
+            storeIndex.applyAfterCommit(index -> index.remove(id));
+        }
+    }
+
+    // 標題權重最高，其次為導演、演員與類型，描述最低
+    private static List<Field> movieFields(String title, String director, String cast, String genre,
+                                           String description) {
+        return List.of(
+                new Field(title, 3.0f),
+                new Field(director, 2.0f),
+                new Field(cast, 2.0f),
+                new Field(genre, 1.5f),
+                new Field(description, 1.0f));
+    }
+
+    private static List<Field> storeFields(String name, String category, String address, String description) {
+        return List.of(
+                new Field(name, 3.0f),
+                new Field(category, 2.0f),
+                new Field(address, 1.0f),
+                new Field(description, 1.0f));
+    }
+}
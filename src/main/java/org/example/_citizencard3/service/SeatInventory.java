@@ -0,0 +1,533 @@
+package org.example._citizencard3.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.SeatInventoryConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 場次座位庫存：每個場次以 long 位元圖記錄座位，一個位元代表一個座位
+// 選位以 CAS 搶位並附帶保留期限，保留只存在記憶體中；確認售出時同步寫入 schedule_seats，
+// 以 (schedule_id, seat_number) 唯一鍵作為最終仲裁，寫入失敗則釋放座位並回報失敗
+// 可用座位數由排程批次寫回資料庫
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatInventory {
+
+    private static final String SELECT_SOLD_SEATS_SQL =
+            "SELECT seat_number FROM schedule_seats WHERE schedule_id = ?";
+    private static final String SELECT_TICKET_SEATS_SQL =
+            "SELECT seat_number FROM movie_tickets WHERE schedule_id = ? AND status IN ('VALID', 'USED')";
+    private static final String INSERT_SOLD_SEAT_SQL =
+            "INSERT INTO schedule_seats (schedule_id, seat_number, holder, created_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_SOLD_SEATS_SQL =
+            "DELETE FROM schedule_seats WHERE schedule_id = ?";
+    private static final String UPDATE_AVAILABLE_SEATS_SQL =
+            "UPDATE schedules SET available_seats = ?, updated_at = ? WHERE id = ?";
+
+    // 保留編號限制在 53 位元內，前端 JavaScript 可精確表示
+    private static final long HOLD_ID_MASK = (1L << 53) - 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SeatInventoryConfig seatConfig;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<Long, SeatMap> seatMaps = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ActiveHold> holds = new ConcurrentHashMap<>();
+    private final Set<Long> dirtySchedules = ConcurrentHashMap.newKeySet();
+
+    // 選位與售出取讀鎖可同時進行；替換座位圖(reset、reload)取寫鎖，確保保留與售出都落在目前的座位圖上
+    private final ReadWriteLock seatMapLock = new ReentrantReadWriteLock();
+
+    // 保留座位，任一座位已被選取則全部不保留
+    public SeatHold hold(long scheduleId, int totalSeats, List<String> seatNumbers, String holder) {
+        int[] seats = parseSeats(seatNumbers, totalSeats);
+        if (seats.length > seatConfig.getMaxSeatsPerHold()) {
+            throw new CustomException("單次最多只能選擇" + seatConfig.getMaxSeatsPerHold() + "個座位", HttpStatus.BAD_REQUEST);
+        }
+
+        seatMapLock.readLock().lock();
+        try {
+            SeatMap seatMap = seatMap(scheduleId, totalSeats);
+            int failed = seatMap.tryClaimAll(seats);
+            if (failed >= 0) {
+                throw new CustomException("座位已被選取: " + seatLabel(failed), HttpStatus.CONFLICT);
+            }
+
+            long expiresAt = System.currentTimeMillis() + seatConfig.getHoldTtl();
+            ActiveHold hold;
+            do {
+                hold = new ActiveHold(random.nextLong() & HOLD_ID_MASK, scheduleId, seatMap, seats, holder, expiresAt);
+            } while (hold.id == 0 || holds.putIfAbsent(hold.id, hold) != null);
+            dirtySchedules.add(scheduleId);
+            return hold.toSeatHold(false);
+        } finally {
+            seatMapLock.readLock().unlock();
+        }
+    }
+
+    // 確認保留的座位並售出，寫入資料庫成功後才回傳
+    public SeatHold confirm(long scheduleId, long holdId, String holder) {
+        seatMapLock.readLock().lock();
+        try {
+            ActiveHold hold = takeHold(scheduleId, holdId, holder);
+            if (hold.isExpired(System.currentTimeMillis())) {
+                releaseHold(hold);
+                throw new CustomException("座位保留已逾時", HttpStatus.GONE);
+            }
+            sell(scheduleId, hold.seatMap, hold.seats, holder);
+            return hold.toSeatHold(true);
+        } finally {
+            seatMapLock.readLock().unlock();
+        }
+    }
+
+    // 取消保留
+    public void release(long scheduleId, long holdId, String holder) {
+        releaseHold(takeHold(scheduleId, holdId, holder));
+    }
+
+    // 不指定座位直接售出，依座位順序挑選空位，寫入資料庫成功後才回傳
+    public List<String> bookAny(long scheduleId, int totalSeats, int count, String holder) {
+        seatMapLock.readLock().lock();
+        try {
+            SeatMap seatMap = seatMap(scheduleId, totalSeats);
+            // 超過總座位數時必定不足，陣列不隨請求數量放大
+            int[] seats = new int[Math.min(count, totalSeats)];
+            int claimed = 0;
+            int candidate = 0;
+            while (claimed < seats.length && (candidate = seatMap.nextFree(candidate)) >= 0) {
+                if (seatMap.tryClaim(candidate)) {
+                    seats[claimed++] = candidate;
+                }
+            }
+            if (claimed < count) {
+                for (int i = 0; i < claimed; i++) {
+                    seatMap.clear(seats[i]);
+                }
+                throw CustomException.noAvailableSeats();
+            }
+
+            sell(scheduleId, seatMap, seats, holder);
+            List<String> labels = new ArrayList<>(count);
+            for (int seat : seats) {
+                labels.add(seatLabel(seat));
+            }
+            return labels;
+        } finally {
+            seatMapLock.readLock().unlock();
+        }
+    }
+
+    public int availableSeats(long scheduleId, int totalSeats) {
+        return seatMap(scheduleId, totalSeats).available();
+    }
+
+    // 只查詢已載入的場次，不觸發資料庫讀取
+    public OptionalInt peekAvailableSeats(long scheduleId) {
+        SeatMap seatMap = seatMaps.get(scheduleId);
+        return seatMap == null ? OptionalInt.empty() : OptionalInt.of(seatMap.available());
+    }
+
+    public List<String> soldSeats(long scheduleId, int totalSeats) {
+        SeatMap seatMap = seatMap(scheduleId, totalSeats);
+        return labels(seatMap, seatMap.sold);
+    }
+
+    // 已被保留但尚未售出的座位
+    public List<String> heldSeats(long scheduleId, int totalSeats) {
+        SeatMap seatMap = seatMap(scheduleId, totalSeats);
+        List<String> labels = new ArrayList<>();
+        for (int seat = 0; seat < seatMap.totalSeats; seat++) {
+            if (seatMap.isSet(seatMap.taken, seat) && !seatMap.isSet(seatMap.sold, seat)) {
+                labels.add(seatLabel(seat));
+            }
+        }
+        return labels;
+    }
+
+    // 清空場次所有座位(含保留與已售出)
+    public void reset(long scheduleId, int totalSeats) {
+        seatMapLock.writeLock().lock();
+        try {
+            holds.values().removeIf(hold -> hold.scheduleId == scheduleId);
+            jdbcTemplate.update(DELETE_SOLD_SEATS_SQL, scheduleId);
+            reload(scheduleId, totalSeats);
+        } finally {
+            seatMapLock.writeLock().unlock();
+        }
+    }
+
+    // 總座位數變更時依資料庫重新載入座位圖；仍有效的保留移到新的座位圖，
+    // 座位已超出總座位數或已售出的保留直接取消
+    public void reload(long scheduleId, int totalSeats) {
+        seatMapLock.writeLock().lock();
+        try {
+            SeatMap seatMap = loadSeatMap(scheduleId, totalSeats);
+            for (ActiveHold hold : holds.values()) {
+                if (hold.scheduleId != scheduleId) {
+                    continue;
+                }
+                ActiveHold moved = hold.moveTo(seatMap);
+                if (moved == null) {
+                    holds.remove(hold.id, hold);
+                } else if (!holds.replace(hold.id, hold, moved)) {
+                    // 同時被逾時清除
+                    releaseHold(moved);
+                }
+            }
+            seatMaps.put(scheduleId, seatMap);
+            dirtySchedules.add(scheduleId);
+        } finally {
+            seatMapLock.writeLock().unlock();
+        }
+    }
+
+    // 刪除場次前在同一個交易內呼叫，移除已售出座位的紀錄
+    public void deleteSoldSeats(long scheduleId) {
+        jdbcTemplate.update(DELETE_SOLD_SEATS_SQL, scheduleId);
+    }
+
+    // 場次刪除、停用或已過期後移除記憶體中的座位圖與保留；尚未寫回的可用座位數先寫回
+    // 之後再次存取時依資料庫重新載入
+    public void drop(long scheduleId) {
+        seatMapLock.writeLock().lock();
+        try {
+            for (ActiveHold hold : holds.values()) {
+                if (hold.scheduleId == scheduleId && holds.remove(hold.id, hold)) {
+                    releaseHold(hold);
+                }
+            }
+            SeatMap seatMap = seatMaps.remove(scheduleId);
+            if (dirtySchedules.remove(scheduleId) && seatMap != null) {
+                jdbcTemplate.update(UPDATE_AVAILABLE_SEATS_SQL, seatMap.available(),
+                        Timestamp.valueOf(LocalDateTime.now()), scheduleId);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to write back available seats for schedule {}: {}", scheduleId, e.getMessage());
+        } finally {
+            seatMapLock.writeLock().unlock();
+        }
+    }
+
+    // 目前在記憶體中的場次
+    public Set<Long> loadedSchedules() {
+        return Set.copyOf(seatMaps.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${seat.hold-sweep-interval:5000}")
+    public void sweepExpiredHolds() {
+        long now = System.currentTimeMillis();
+        for (ActiveHold hold : holds.values()) {
+            if (hold.isExpired(now) && holds.remove(hold.id, hold)) {
+                releaseHold(hold);
+            }
+        }
+    }
+
+    // 批次寫入可用座位數
+    @Scheduled(fixedDelayString = "${seat.flush-interval:500}")
+    public synchronized void flush() {
+        if (dirtySchedules.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> counts = new ArrayList<>();
+        for (Long scheduleId : dirtySchedules) {
+            dirtySchedules.remove(scheduleId);
+            SeatMap seatMap = seatMaps.get(scheduleId);
+            if (seatMap != null) {
+                counts.add(new Object[]{seatMap.available(), now, scheduleId});
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_AVAILABLE_SEATS_SQL, counts);
+        } catch (DataAccessException e) {
+            log.error("Failed to write back available seats for {} schedules: {}", counts.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // 座位編號：A1 代表第一排第一個座位，也接受純數字編號 (1 起算)
+    int parseSeat(String seatNumber, int totalSeats) {
+        String value = seatNumber == null ? "" : seatNumber.trim().toUpperCase();
+        int seat = -1;
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit) && value.length() <= 3) {
+            seat = Integer.parseInt(value) - 1;
+        } else if (value.length() >= 2 && value.length() <= 3 && value.charAt(0) >= 'A' && value.charAt(0) <= 'Z'
+                && value.substring(1).chars().allMatch(Character::isDigit)) {
+            int column = Integer.parseInt(value.substring(1));
+            if (column >= 1 && column <= seatConfig.getSeatsPerRow()) {
+                seat = (value.charAt(0) - 'A') * seatConfig.getSeatsPerRow() + column - 1;
+            }
+        }
+        if (seat < 0 || seat >= totalSeats) {
+            throw new CustomException("座位編號無效: " + seatNumber, HttpStatus.BAD_REQUEST);
+        }
+        return seat;
+    }
+
+    String seatLabel(int seat) {
+        int row = seat / seatConfig.getSeatsPerRow();
+        if (row >= 26) {
+            return String.valueOf(seat + 1);
+        }
+        return (char) ('A' + row) + String.valueOf(seat % seatConfig.getSeatsPerRow() + 1);
+    }
+
+    private int[] parseSeats(List<String> seatNumbers, int totalSeats) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            throw new CustomException("請選擇座位", HttpStatus.BAD_REQUEST);
+        }
+        // 依座位順序搶位，避免兩個請求以相反順序互相卡住
+        TreeSet<Integer> seats = new TreeSet<>();
+        for (String seatNumber : seatNumbers) {
+            seats.add(parseSeat(seatNumber, totalSeats));
+        }
+        return seats.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private SeatMap seatMap(long scheduleId, int totalSeats) {
+        return seatMaps.computeIfAbsent(scheduleId, id -> loadSeatMap(id, totalSeats));
+    }
+
+    private SeatMap loadSeatMap(long scheduleId, int totalSeats) {
+        SeatMap seatMap = new SeatMap(totalSeats);
+        List<String> seatNumbers = new ArrayList<>(jdbcTemplate.queryForList(SELECT_SOLD_SEATS_SQL, String.class, scheduleId));
+        seatNumbers.addAll(jdbcTemplate.queryForList(SELECT_TICKET_SEATS_SQL, String.class, scheduleId));
+        markSoldSeats(scheduleId, seatMap, seatNumbers);
+        return seatMap;
+    }
+
+    // 正被其他保留占用的座位不標示，該保留確認時會因唯一鍵衝突而失敗並釋放
+    private void markSoldSeats(long scheduleId, SeatMap seatMap, List<String> seatNumbers) {
+        for (String seatNumber : seatNumbers) {
+            try {
+                int seat = parseSeat(seatNumber, seatMap.totalSeats);
+                if (seatMap.tryClaim(seat)) {
+                    seatMap.markSold(seat);
+                }
+            } catch (CustomException e) {
+                log.warn("Ignoring invalid seat number {} for schedule {}", seatNumber, scheduleId);
+            }
+        }
+    }
+
+    private ActiveHold takeHold(long scheduleId, long holdId, String holder) {
+        ActiveHold hold = holds.get(holdId);
+        if (hold == null || hold.scheduleId != scheduleId) {
+            throw new CustomException("座位保留不存在或已逾時", HttpStatus.NOT_FOUND);
+        }
+        if (hold.holder != null && !hold.holder.equals(holder)) {
+            throw new CustomException("無權操作此座位保留", HttpStatus.FORBIDDEN);
+        }
+        if (!holds.remove(holdId, hold)) {
+            throw new CustomException("座位保留不存在或已逾時", HttpStatus.NOT_FOUND);
+        }
+        return hold;
+    }
+
+    private void releaseHold(ActiveHold hold) {
+        for (int seat : hold.seats) {
+            hold.seatMap.clear(seat);
+        }
+        dirtySchedules.add(hold.scheduleId);
+    }
+
+    // 已搶到的座位在同一個交易內寫入，全部成功才標示為已售出；失敗時釋放座位，呼叫端收到錯誤
+    // 唯一鍵衝突表示座位已由其他節點或重新載入前的請求售出，依資料庫補上已售出的座位
+    private void sell(long scheduleId, SeatMap seatMap, int[] seats, String holder) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(seats.length);
+        for (int seat : seats) {
+            rows.add(new Object[]{scheduleId, seatLabel(seat), holder, now});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SOLD_SEAT_SQL, rows));
+        } catch (DataAccessException e) {
+            for (int seat : seats) {
+                seatMap.clear(seat);
+            }
+            dirtySchedules.add(scheduleId);
+            if (e instanceof DuplicateKeyException) {
+                markSoldSeats(scheduleId, seatMap, jdbcTemplate.queryForList(SELECT_SOLD_SEATS_SQL, String.class, scheduleId));
+                throw new CustomException("座位已售出，請重新選位", HttpStatus.CONFLICT);
+            }
+            log.error("Failed to persist {} sold seats for schedule {}: {}", seats.length, scheduleId, e.getMessage());
+            throw new CustomException("座位售出失敗，請稍後再試", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        for (int seat : seats) {
+            seatMap.markSold(seat);
+        }
+        dirtySchedules.add(scheduleId);
+    }
+
+    private List<String> labels(SeatMap seatMap, AtomicLongArray bits) {
+        List<String> labels = new ArrayList<>();
+        for (int seat = 0; seat < seatMap.totalSeats; seat++) {
+            if (seatMap.isSet(bits, seat)) {
+                labels.add(seatLabel(seat));
+            }
+        }
+        return labels;
+    }
+
+    public record SeatHold(long holdId, long scheduleId, List<String> seats, LocalDateTime expiresAt, boolean confirmed) {
+    }
+
+    private final class ActiveHold {
+        private final long id;
+        private final long scheduleId;
+        private final SeatMap seatMap;
+        private final int[] seats;
+        private final String holder;
+        private final long expiresAt;
+
+        private ActiveHold(long id, long scheduleId, SeatMap seatMap, int[] seats, String holder, long expiresAt) {
+            this.id = id;
+            this.scheduleId = scheduleId;
+            this.seatMap = seatMap;
+            this.seats = seats;
+            this.holder = holder;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+
+        // 在新的座位圖上搶回相同的座位，任一座位無法取得時回傳 null
+        private ActiveHold moveTo(SeatMap target) {
+            for (int seat : seats) {
+                if (seat >= target.totalSeats) {
+                    return null;
+                }
+            }
+            return target.tryClaimAll(seats) < 0
+                    ? new ActiveHold(id, scheduleId, target, seats, holder, expiresAt)
+                    : null;
+        }
+
+        private SeatHold toSeatHold(boolean confirmed) {
+            List<String> labels = new ArrayList<>(seats.length);
+            for (int seat : seats) {
+                labels.add(seatLabel(seat));
+            }
+            LocalDateTime expiry = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault());
+            return new SeatHold(id, scheduleId, labels, expiry, confirmed);
+        }
+    }
+
+    // taken 記錄已保留或已售出的座位，sold 只記錄已售出的座位
+    static final class SeatMap {
+        private final int totalSeats;
+        private final AtomicLongArray taken;
+        private final AtomicLongArray sold;
+
+        SeatMap(int totalSeats) {
+            this.totalSeats = totalSeats;
+            int words = (totalSeats + 63) >>> 6;
+            this.taken = new AtomicLongArray(words);
+            this.sold = new AtomicLongArray(words);
+        }
+
+        boolean tryClaim(int seat) {
+            int word = seat >>> 6;
+            long bit = 1L << seat;
+            while (true) {
+                long current = taken.get(word);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+                if (taken.compareAndSet(word, current, current | bit)) {
+                    return true;
+                }
+            }
+        }
+
+        // 依序搶下所有座位，任一座位已被選取則釋放已搶到的座位並回傳該座位，全部成功回傳 -1
+        int tryClaimAll(int[] seats) {
+            for (int i = 0; i < seats.length; i++) {
+                if (!tryClaim(seats[i])) {
+                    for (int j = 0; j < i; j++) {
+                        clear(seats[j]);
+                    }
+                    return seats[i];
+                }
+            }
+            return -1;
+        }
+
+        void clear(int seat) {
+            int word = seat >>> 6;
+            long bit = 1L << seat;
+            long current;
+            do {
+                current = taken.get(word);
+            } while (!taken.compareAndSet(word, current, current & ~bit));
+        }
+
+        void markSold(int seat) {
+            int word = seat >>> 6;
+            long bit = 1L << seat;
+            long current;
+            do {
+                current = sold.get(word);
+            } while (!sold.compareAndSet(word, current, current | bit));
+        }
+
+        boolean isSet(AtomicLongArray bits, int seat) {
+            return (bits.get(seat >>> 6) & (1L << seat)) != 0;
+        }
+
+        // 從 from 開始尋找下一個空位，沒有則回傳 -1
+        int nextFree(int from) {
+            for (int word = from >>> 6; word < taken.length(); word++) {
+                long free = ~taken.get(word);
+                if (word == from >>> 6) {
+                    free &= -1L << from;
+                }
+                if (free != 0) {
+                    int seat = (word << 6) + Long.numberOfTrailingZeros(free);
+                    return seat < totalSeats ? seat : -1;
+                }
+            }
+            return -1;
+        }
+
+        int available() {
+            int used = 0;
+            for (int word = 0; word < taken.length(); word++) {
+                used += Long.bitCount(taken.get(word));
+            }
+            return totalSeats - used;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example._citizencard3.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.model.Store;
+import org.example._citizencard3.util.GeoGridIndex;
+import org.example._citizencard3.util.RebuildableIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+// 商店位置的空間索引：啟動時從 stores 資料表建立，之後由 StoreService 的寫入路徑在交易提交後增量更新
+// 索引尚未建立完成時回傳 empty，呼叫端改用資料庫範圍查詢
+@Slf4j
+@Service
+public class StoreGeoIndexService {
+
+    // 網格大小約 1.1 公里
+    private static final double CELL_DEGREES = 0.01;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 重建期間的異動先暫存，重建完成後套用到新索引
+    private final RebuildableIndex<GeoGridIndex> index = new RebuildableIndex<>();
+
+    public StoreGeoIndexService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            GeoGridIndex stores = index.rebuild(() -> {
+                GeoGridIndex rebuilt = new GeoGridIndex(CELL_DEGREES);
+                jdbcTemplate.query("SELECT id, category, latitude, longitude FROM stores WHERE active = true "
+                        + "AND is_deleted = false AND latitude IS NOT NULL AND longitude IS NOT NULL", rs -> {
+                    rebuilt.put(rs.getLong("id"), rs.getDouble("latitude"), rs.getDouble("longitude"),
+                            rs.getString("category"));
+                });
+                return rebuilt;
+            });
+            log.info("Store geo index built: {} stores", stores.size());
+        } catch (DataAccessException e) {
+            log.warn("Store geo index build failed, falling back to database area query: {}", e.getMessage());
+        }
+    }
+
+    public Optional<List<GeoGridIndex.Hit>> nearest(double latitude, double longitude, int limit,
+                                                    double maxDistance, String category) {
+        GeoGridIndex current = index.current();
+        return current == null
+                ? Optional.empty()
+                : Optional.of(current.nearest(latitude, longitude, limit, maxDistance, category));
+    }
+
+    // 商店新增、修改或刪除後呼叫；停用、已刪除或沒有座標的商店從索引移除
+    public void storeChanged(Store store) {
+        long id = store.getId();
+        if (store.isActive() && !store.isDeleted() && store.getLatitude() != null && store.getLongitude() != null) {
+            double latitude = store.getLatitude();
+            double longitude = store.getLongitude();
+            String category = store.getCategory();
+            index.applyAfterCommit(current -> current.put(id, latitude, longitude, category));
+        } else {
+            index.applyAfterCommit(current -> current.remove(id));
+        }
+    }
+}
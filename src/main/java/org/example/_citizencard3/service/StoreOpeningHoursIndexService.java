@@ -0,0 +1,81 @@
+package org.example._citizencard3.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.model.Store;
+import org.example._citizencard3.util.OpeningHours;
+import org.example._citizencard3.util.OpeningHoursIndex;
+import org.example._citizencard3.util.RebuildableIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// 商店營業時段索引：啟動時從 stores 資料表解析 opening_hours 建立，之後由 StoreService 的寫入路徑在交易提交後增量更新
+// 索引尚未建立完成時回傳 empty，呼叫端改用資料庫查詢
+@Slf4j
+@Service
+public class StoreOpeningHoursIndexService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 重建期間的異動先暫存，重建完成後套用到新索引
+    private final RebuildableIndex<OpeningHoursIndex> index = new RebuildableIndex<>();
+
+    public StoreOpeningHoursIndexService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long startNanos = System.nanoTime();
+            int[] unparsed = {0};
+            OpeningHoursIndex stores = index.rebuild(() -> {
+                OpeningHoursIndex rebuilt = new OpeningHoursIndex();
+                // 依 ID 順序加入，查詢結果不需再排序
+                jdbcTemplate.query("SELECT id, name, category, latitude, longitude, opening_hours FROM stores "
+                        + "WHERE active = true AND is_deleted = false ORDER BY id", rs -> {
+                    long[] mask = OpeningHours.parse(rs.getString("opening_hours"));
+                    if (mask == null) {
+                        unparsed[0]++;
+                    }
+                    rebuilt.put(rs.getLong("id"), rs.getString("name"), rs.getString("category"),
+                            rs.getObject("latitude", Double.class), rs.getObject("longitude", Double.class), mask);
+                });
+                return rebuilt;
+            });
+            log.info("Store opening hours index built: {} stores ({} without parsable opening hours) in {} ms",
+                    stores.size(), unparsed[0], (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.warn("Store opening hours index build failed, falling back to database query: {}", e.getMessage());
+        }
+    }
+
+    // time 營業中的商店，依 ID 排序分頁
+    public Optional<OpeningHoursIndex.SearchResult> openAt(LocalDateTime time, String category, String keyword,
+                                                           OpeningHoursIndex.Area area, int offset, int limit) {
+        OpeningHoursIndex current = index.current();
+        return current == null
+                ? Optional.empty()
+                : Optional.of(current.query(OpeningHours.slotOf(time), category, keyword, area, offset, limit));
+    }
+
+    // 商店新增、修改或刪除後呼叫；停用或已刪除的商店從索引移除
+    public void storeChanged(Store store) {
+        long id = store.getId();
+        if (store.isActive() && !store.isDeleted()) {
+            String name = store.getName();
+            String category = store.getCategory();
+            Double latitude = store.getLatitude();
+            Double longitude = store.getLongitude();
+            long[] mask = OpeningHours.parse(store.getOpeningHours());
+            index.applyAfterCommit(current -> current.put(id, name, category, latitude, longitude, mask));
+        } else {
+            index.applyAfterCommit(current -> current.remove(id));
+        }
+    }
+}
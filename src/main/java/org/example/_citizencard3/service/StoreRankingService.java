@@ -0,0 +1,269 @@
+package org.example._citizencard3.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.StoreRankingConfig;
+import org.example._citizencard3.dto.response.StoreResponse;
+import org.example._citizencard3.model.Store;
+import org.example._citizencard3.util.RebuildableIndex;
+import org.example._citizencard3.util.TopKLeaderboard;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 熱門(評分數)與推薦(平均評分)商店排行榜，全部與各分類各一份，每份只保留前 capacity 名
+// 啟動時與定期從 stores 資料表完整重建，之間由 StoreService 的寫入路徑在交易提交後增量更新；查詢不需存取資料庫
+// 排行榜尚未建立、或刪除過多導致保留筆數不足時回傳 empty，呼叫端改用資料庫查詢，並在背景重建
+@Slf4j
+@Service
+public class StoreRankingService {
+
+    private static final String SELECT_SQL = "SELECT id, name, category, description, address, phone, email, "
+            + "website, opening_hours, image_url, discount_info, latitude, longitude, rating, rating_count "
+            + "FROM stores WHERE active = true AND is_deleted = false";
+
+    private static final RowMapper<StoreResponse> ROW_MAPPER = (rs, rowNum) -> StoreResponse.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .category(rs.getString("category"))
+            .description(rs.getString("description"))
+            .address(rs.getString("address"))
+            .phone(rs.getString("phone"))
+            .email(rs.getString("email"))
+            .website(rs.getString("website"))
+            .openingHours(rs.getString("opening_hours"))
+            .imageUrl(rs.getString("image_url"))
+            .discountInfo(rs.getString("discount_info"))
+            .latitude(rs.getObject("latitude", Double.class))
+            .longitude(rs.getObject("longitude", Double.class))
+            .rating(rs.getObject("rating", Double.class))
+            .ratingCount(rs.getObject("rating_count", Integer.class))
+            .build();
+
+    // 評分數多者優先，相同時平均評分高者優先
+    static final Comparator<StoreResponse> POPULAR_ORDER = Comparator
+            .comparingInt((StoreResponse store) -> ratingCountOf(store)).reversed()
+            .thenComparing(Comparator.comparingDouble((StoreResponse store) -> ratingOf(store)).reversed());
+
+    // 平均評分高者優先，相同時評分數多者優先
+    static final Comparator<StoreResponse> RECOMMENDED_ORDER = Comparator
+            .comparingDouble((StoreResponse store) -> ratingOf(store)).reversed()
+            .thenComparing(Comparator.comparingInt((StoreResponse store) -> ratingCountOf(store)).reversed());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StoreRankingConfig config;
+
+    // 重建期間的異動先暫存，重建完成後套用到新排行榜
+    private final RebuildableIndex<Rankings> rankings = new RebuildableIndex<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // 保留筆數不足時在背景重建，同時最多一次
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "store-ranking-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StoreRankingService(JdbcTemplate jdbcTemplate, StoreRankingConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${store-ranking.rebuild-interval:600000}",
+            initialDelayString = "${store-ranking.rebuild-interval:600000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startNanos = System.nanoTime();
+            int[] count = {0};
+            rankings.rebuild(() -> {
+                Rankings rebuilt = new Rankings(config.getCapacity());
+                jdbcTemplate.query(SELECT_SQL, rs -> {
+                    rebuilt.put(ROW_MAPPER.mapRow(rs, count[0]));
+                    count[0]++;
+                });
+                return rebuilt;
+            });
+            log.info("Store rankings built from {} stores in {} ms", count[0],
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.warn("Store rankings build failed, falling back to database queries: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // category 為 null 時為全部商店
+    public Optional<List<StoreResponse>> popular(String category, int limit) {
+        return top(category, limit, true);
+    }
+
+    public Optional<List<StoreResponse>> recommended(String category, int limit) {
+        return top(category, limit, false);
+    }
+
+    // 商店新增、修改、刪除或評分變動後呼叫；停用或已刪除的商店從排行榜移除
+    // snapshot 為提交後要回傳的內容，之後不可再修改
+    public void storeChanged(Store store, StoreResponse snapshot) {
+        long id = store.getId();
+        if (store.isActive() && !store.isDeleted()) {
+            rankings.applyAfterCommit(current -> current.put(snapshot));
+        } else {
+            rankings.applyAfterCommit(current -> current.remove(id));
+        }
+    }
+
+    // 評分寫回後呼叫：以主鍵重新讀取這些商店並更新排行榜，已停用或刪除的商店移除
+    public void refreshStores(List<Long> storeIds) {
+        if (storeIds.isEmpty() || (rankings.current() == null && !rebuilding.get())) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(storeIds.size(), "?"));
+        List<StoreResponse> stores = jdbcTemplate.query(
+                SELECT_SQL + " AND id IN (" + placeholders + ")", ROW_MAPPER, storeIds.toArray());
+        Set<Long> found = new HashSet<>();
+        stores.forEach(store -> found.add(store.getId()));
+        rankings.apply(current -> {
+            stores.forEach(current::put);
+            storeIds.stream().filter(id -> !found.contains(id)).forEach(current::remove);
+        });
+    }
+
+    private Optional<List<StoreResponse>> top(String category, int limit, boolean popular) {
+        Rankings current = rankings.current();
+        if (current == null) {
+            return Optional.empty();
+        }
+        Optional<List<StoreResponse>> result = current.top(category, limit, popular);
+        if (result.isEmpty()) {
+            requestRebuild();
+        }
+        return result;
+    }
+
+    private void requestRebuild() {
+        if (rebuilding.get()) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            log.debug("Store ranking rebuild rejected during shutdown");
+        }
+    }
+
+    private static int ratingCountOf(StoreResponse store) {
+        return store.getRatingCount() == null ? 0 : store.getRatingCount();
+    }
+
+    private static double ratingOf(StoreResponse store) {
+        return store.getRating() == null ? 0.0 : store.getRating();
+    }
+
+    // 全部與各分類的排行榜，讀寫鎖保護
+    private static final class Rankings {
+        private final int capacity;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Board all;
+        private final Map<String, Board> byCategory = new HashMap<>();
+
+        private Rankings(int capacity) {
+            this.capacity = capacity;
+            this.all = new Board(capacity);
+        }
+
+        private void put(StoreResponse store) {
+            lock.writeLock().lock();
+            try {
+                all.put(store);
+                // 分類可能已變更，先從其他分類移除
+                for (Map.Entry<String, Board> entry : byCategory.entrySet()) {
+                    if (!entry.getKey().equals(store.getCategory())) {
+                        entry.getValue().remove(store.getId());
+                    }
+                }
+                if (store.getCategory() != null) {
+                    byCategory.computeIfAbsent(store.getCategory(), category -> new Board(capacity)).put(store);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                all.remove(id);
+                byCategory.values().forEach(board -> board.remove(id));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // 保留筆數不足時回傳 empty
+        private Optional<List<StoreResponse>> top(String category, int limit, boolean popular) {
+            lock.readLock().lock();
+            try {
+                Board board = category == null ? all : byCategory.get(category);
+                if (board == null) {
+                    return Optional.of(List.of());
+                }
+                TopKLeaderboard<StoreResponse> leaderboard = popular ? board.popular : board.recommended;
+                return leaderboard.canServe(limit) ? Optional.of(leaderboard.top(limit)) : Optional.empty();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static final class Board {
+        private final TopKLeaderboard<StoreResponse> popular;
+        private final TopKLeaderboard<StoreResponse> recommended;
+
+        private Board(int capacity) {
+            this.popular = new TopKLeaderboard<>(capacity, StoreResponse::getId, POPULAR_ORDER);
+            this.recommended = new TopKLeaderboard<>(capacity, StoreResponse::getId, RECOMMENDED_ORDER);
+        }
+
+        private void put(StoreResponse store) {
+            popular.put(store);
+            recommended.put(store);
+        }
+
+        private void remove(long id) {
+            popular.remove(id);
+            recommended.remove(id);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.example._citizencard3.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.StoreRatingConfig;
+import org.example._citizencard3.dto.response.StoreRatingStatsResponse;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.util.StripedSumCount;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 商店評分：評分寫入 store_ratings 後，只把與原本評分的差值(總分、筆數)累加在記憶體的分段累加器，
+// 由排程以 JDBC batch 累加到 stores.rating_sum / rating_count 並重新計算平均，再更新熱門與推薦排行榜
+// 全部與各分類的平均評分也在記憶體增量維護，查詢不需彙總資料表
+// 尚未寫回的累加值在程序異常終止時會遺失(最多一個寫回週期)，因此啟動時與定期依 store_ratings 校正：
+// 上次校正後有評分異動的商店，以 rating_base_* 加上 store_ratings 的彙總重新計算總分與筆數
+@Slf4j
+@Service
+public class StoreRatingService {
+
+    // 同一使用者同時評分同一商店時，條件式更新失敗後重試的次數
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String SELECT_CATEGORY_SQL =
+            "SELECT category FROM stores WHERE id = ? AND active = true AND is_deleted = false";
+    private static final String SELECT_SCORE_SQL =
+            "SELECT score FROM store_ratings WHERE store_id = ? AND user_id = ?";
+    private static final String INSERT_RATING_SQL = "INSERT INTO store_ratings "
+            + "(store_id, user_id, score, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+    // 只在分數仍是讀到的值時更新，確保累加的差值正確
+    private static final String UPDATE_RATING_SQL = "UPDATE store_ratings SET score = ?, updated_at = ? "
+            + "WHERE store_id = ? AND user_id = ? AND score = ?";
+    private static final String ADD_TOTALS_SQL = "UPDATE stores SET rating_sum = rating_sum + ?, "
+            + "rating_count = COALESCE(rating_count, 0) + ? WHERE id = ?";
+    private static final String UPDATE_MEAN_SQL = "UPDATE stores SET rating = CASE WHEN rating_count > 0 "
+            + "THEN rating_sum * 1.0 / rating_count END WHERE id = ?";
+    // 上次校正後有評分異動的商店；啟動時不知道上次的截止時間，以各商店的 rating_reconciled_at 判斷
+    private static final String RECONCILE_CANDIDATES_SQL = "SELECT DISTINCT r.store_id FROM store_ratings r "
+            + "JOIN stores s ON s.id = r.store_id "
+            + "WHERE (s.rating_reconciled_at IS NULL OR r.updated_at >= s.rating_reconciled_at)";
+    private static final String RECONCILE_CANDIDATES_SINCE_SQL = RECONCILE_CANDIDATES_SQL + " AND r.updated_at >= ?";
+    // 最近仍有評分的商店不校正：這些評分的差值可能還在累加器中，同一個陳述式內判斷，不會重複計算
+    private static final String RECONCILE_SQL = "UPDATE stores SET "
+            + "rating_sum = rating_base_sum + (SELECT COALESCE(SUM(score), 0) FROM store_ratings WHERE store_id = ?), "
+            + "rating_count = rating_base_count + (SELECT COUNT(*) FROM store_ratings WHERE store_id = ?), "
+            + "rating_reconciled_at = ? "
+            + "WHERE id = ? AND NOT EXISTS (SELECT 1 FROM store_ratings WHERE store_id = ? AND updated_at >= ?)";
+    private static final String CATEGORY_TOTALS_SQL = "SELECT category, SUM(rating_sum) AS rating_sum, "
+            + "SUM(rating_count) AS rating_count FROM stores WHERE active = true AND is_deleted = false "
+            + "GROUP BY category";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StoreRankingService storeRankingService;
+    private final StoreRatingConfig config;
+    private final StripedSumCount pending;
+    private volatile ConcurrentHashMap<String, Totals> categoryTotals = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedStores = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder reconciledStores = new LongAdder();
+
+    // 上一次校正的截止時間，之前的評分異動都已校正或會在之後被重新選取
+    private LocalDateTime reconciledBefore;
+
+    public StoreRatingService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              StoreRankingService storeRankingService,
+                              StoreRatingConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.storeRankingService = storeRankingService;
+        this.config = config;
+        this.pending = new StripedSumCount(config.getStripes());
+    }
+
+    // 新增或修改使用者對商店的評分(1~5)，平均評分在下一次寫回後更新
+    public void rateStore(long storeId, long userId, int score) {
+        if (score < 1 || score > 5) {
+            throw new CustomException("評分必須介於1到5", HttpStatus.BAD_REQUEST);
+        }
+        List<String> categories = jdbcTemplate.queryForList(SELECT_CATEGORY_SQL, String.class, storeId);
+        if (categories.isEmpty()) {
+            throw new CustomException("商店不存在", HttpStatus.NOT_FOUND);
+        }
+        String category = categories.get(0);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<Integer> previous = jdbcTemplate.queryForList(SELECT_SCORE_SQL, Integer.class, storeId, userId);
+            if (previous.isEmpty()) {
+                try {
+                    jdbcTemplate.update(INSERT_RATING_SQL, storeId, userId, score, now, now);
+                } catch (DuplicateKeyException e) {
+                    // 同一使用者的另一個請求先寫入，改為更新
+                    continue;
+                }
+                record(storeId, category, score, 1);
+                return;
+            }
+            int previousScore = previous.get(0);
+            if (previousScore == score) {
+                return;
+            }
+            if (jdbcTemplate.update(UPDATE_RATING_SQL, score, now, storeId, userId, previousScore) == 1) {
+                record(storeId, category, score - previousScore, 0);
+                return;
+            }
+        }
+        throw new CustomException("評分更新衝突，請稍後再試", HttpStatus.CONFLICT);
+    }
+
+    public StoreRatingStatsResponse getRatingStats() {
+        long sum = 0;
+        long count = 0;
+        List<StoreRatingStatsResponse.CategoryRating> categories = new ArrayList<>();
+        for (Map.Entry<String, Totals> entry : categoryTotals.entrySet()) {
+            long[] totals = entry.getValue().snapshot();
+            sum += totals[0];
+            count += totals[1];
+            categories.add(StoreRatingStatsResponse.CategoryRating.builder()
+                    .category(entry.getKey())
+                    .averageRating(average(totals[0], totals[1]))
+                    .ratingCount(totals[1])
+                    .build());
+        }
+        categories.sort(Comparator.comparing(StoreRatingStatsResponse.CategoryRating::getCategory));
+        return StoreRatingStatsResponse.builder()
+                .averageRating(average(sum, count))
+                .ratingCount(count)
+                .categories(categories)
+                .build();
+    }
+
+    // 啟動時先校正上次執行時可能遺失的累加值，再載入各分類的總分與筆數
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+        loadCategoryTotals();
+    }
+
+    @Scheduled(cron = "${store-rating.reconcile-cron:0 */10 * * * ?}")
+    public void scheduledReconcile() {
+        if (reconcile() > 0) {
+            loadCategoryTotals();
+        }
+    }
+
+    // 依 store_ratings 重新計算上次校正後有評分異動的商店，回傳校正的商店數
+    // 截止時間之後仍有評分的商店本次略過，這些評分的 updated_at 不早於截止時間，下一次會再被選取
+    public synchronized int reconcile() {
+        flush();
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(config.getReconcileQuietPeriod()));
+        Timestamp cutoffTimestamp = Timestamp.valueOf(cutoff);
+        try {
+            List<Long> candidates = reconciledBefore == null
+                    ? jdbcTemplate.queryForList(RECONCILE_CANDIDATES_SQL, Long.class)
+                    : jdbcTemplate.queryForList(RECONCILE_CANDIDATES_SINCE_SQL, Long.class,
+                    Timestamp.valueOf(reconciledBefore));
+            List<Long> reconciled = new ArrayList<>();
+            int batchSize = config.getBatchSize();
+            for (int start = 0; start < candidates.size(); start += batchSize) {
+                List<Long> batch = candidates.subList(start, Math.min(candidates.size(), start + batchSize));
+                reconciled.addAll(reconcile(batch, cutoffTimestamp));
+            }
+            reconciledBefore = cutoff;
+            reconciledStores.add(reconciled.size());
+            if (!reconciled.isEmpty()) {
+                log.info("Reconciled rating totals for {} of {} stores", reconciled.size(), candidates.size());
+                refreshRankings(reconciled);
+            }
+            return reconciled.size();
+        } catch (DataAccessException e) {
+            // 未推進截止時間，下一次排程重試
+            log.warn("Failed to reconcile store rating totals: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    // 從 stores 載入各分類的總分與筆數，之後只做增量更新
+    public void loadCategoryTotals() {
+        ConcurrentHashMap<String, Totals> loaded = new ConcurrentHashMap<>();
+        try {
+            jdbcTemplate.query(CATEGORY_TOTALS_SQL, rs -> {
+                Totals totals = new Totals();
+                totals.add(rs.getLong("rating_sum"), rs.getLong("rating_count"));
+                loaded.put(rs.getString("category"), totals);
+            });
+            categoryTotals = loaded;
+            log.info("Store rating totals loaded for {} categories", loaded.size());
+        } catch (DataAccessException e) {
+            log.warn("Failed to load store rating totals: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${store-rating.flush-interval:1000}")
+    public synchronized void flush() {
+        List<StripedSumCount.Entry> entries = pending.drain();
+        if (entries.isEmpty()) {
+            return;
+        }
+        flushes.increment();
+        int batchSize = config.getBatchSize();
+        for (int start = 0; start < entries.size(); start += batchSize) {
+            write(entries.subList(start, Math.min(entries.size(), start + batchSize)));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingStores", pending.size());
+        stats.put("recorded", recorded.sum());
+        stats.put("flushedStores", flushedStores.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("reconciledStores", reconciledStores.sum());
+        return stats;
+    }
+
+    private void record(long storeId, String category, long sumDelta, long countDelta) {
+        recorded.increment();
+        pending.add(storeId, sumDelta, countDelta);
+        categoryTotals.computeIfAbsent(category, key -> new Totals()).add(sumDelta, countDelta);
+    }
+
+    private void write(List<StripedSumCount.Entry> batch) {
+        List<Object[]> totalsArgs = new ArrayList<>(batch.size());
+        List<Object[]> meanArgs = new ArrayList<>(batch.size());
+        List<Long> storeIds = new ArrayList<>(batch.size());
+        for (StripedSumCount.Entry entry : batch) {
+            if (entry.sum() == 0 && entry.count() == 0) {
+                continue;
+            }
+            totalsArgs.add(new Object[]{entry.sum(), entry.count(), entry.key()});
+            meanArgs.add(new Object[]{entry.key()});
+            storeIds.add(entry.key());
+        }
+        if (storeIds.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(ADD_TOTALS_SQL, totalsArgs);
+                jdbcTemplate.batchUpdate(UPDATE_MEAN_SQL, meanArgs);
+            });
+        } catch (DataAccessException e) {
+            // 放回累加器，下一個週期重試
+            failedBatches.increment();
+            batch.forEach(entry -> pending.add(entry.key(), entry.sum(), entry.count()));
+            log.warn("Failed to write rating totals for {} stores: {}", storeIds.size(), e.getMessage());
+            return;
+        }
+        flushedStores.add(storeIds.size());
+        refreshRankings(storeIds);
+    }
+
+    private void refreshRankings(List<Long> storeIds) {
+        try {
+            storeRankingService.refreshStores(storeIds);
+        } catch (DataAccessException e) {
+            // 排行榜會在下一次定期重建時修正
+            log.warn("Failed to refresh store rankings for {} stores: {}", storeIds.size(), e.getMessage());
+        }
+    }
+
+    private List<Long> reconcile(List<Long> storeIds, Timestamp cutoff) {
+        List<Object[]> args = new ArrayList<>(storeIds.size());
+        for (Long storeId : storeIds) {
+            args.add(new Object[]{storeId, storeId, cutoff, storeId, storeId, cutoff});
+        }
+        List<Long> reconciled = new ArrayList<>(storeIds.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(RECONCILE_SQL, args);
+            List<Object[]> meanArgs = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 0) {
+                    reconciled.add(storeIds.get(i));
+                    meanArgs.add(new Object[]{storeIds.get(i)});
+                }
+            }
+            jdbcTemplate.batchUpdate(UPDATE_MEAN_SQL, meanArgs);
+        });
+        return reconciled;
+    }
+
+    private static double average(long sum, long count) {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // 單一分類的總分與筆數
+    private static final class Totals {
+        private long sum;
+        private long count;
+
+        private synchronized void add(long sumDelta, long countDelta) {
+            sum += sumDelta;
+            count += countDelta;
+        }
+
+        private synchronized long[] snapshot() {
+            return new long[]{sum, count};
+        }
+    }
+}
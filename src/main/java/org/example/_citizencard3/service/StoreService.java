@@ -1,19 +1,33 @@
 package org.example._citizencard3.service;
 
 import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.config.StoreRankingConfig;
 import org.example._citizencard3.dto.request.StoreRequest;
 import org.example._citizencard3.dto.response.StoreResponse;
 import org.example._citizencard3.exception.CustomException;
 import org.example._citizencard3.model.Store;
 
 import org.example._citizencard3.repository.StoreRepository;
+import org.example._citizencard3.util.GeoGridIndex;
+import org.example._citizencard3.util.InvertedIndex;
+import org.example._citizencard3.util.OpeningHours;
+import org.example._citizencard3.util.OpeningHoursIndex;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,11 +35,38 @@ import java.util.stream.Collectors;
 public class StoreService {
 
     private final StoreRepository storeRepository;
+    private final SearchIndexService searchIndexService;
+    private final StoreGeoIndexService storeGeoIndexService;
+    private final StoreRankingService storeRankingService;
+    private final StoreOpeningHoursIndexService storeOpeningHoursIndexService;
+    private final StoreRankingConfig storeRankingConfig;
 
-    // 獲取所有商店
-    public Page<StoreResponse> getAllStores(String keyword, String category, Pageable pageable) {
+    // 附近商店查詢的預設與上限
+    private static final double DEFAULT_NEARBY_RADIUS = 5000;
+    private static final double MAX_NEARBY_RADIUS = 50000;
+    private static final int MAX_NEARBY_LIMIT = 100;
+
+    // 熱門與推薦商店的預設筆數
+    private static final int DEFAULT_POPULAR_LIMIT = 10;
+    private static final int DEFAULT_RECOMMENDED_LIMIT = 20;
+    private static final Sort POPULAR_SORT = Sort.by(Sort.Order.desc("ratingCount"), Sort.Order.desc("rating"),
+            Sort.Order.asc("id"));
+    private static final Sort RECOMMENDED_SORT = Sort.by(Sort.Order.desc("rating"), Sort.Order.desc("ratingCount"),
+            Sort.Order.asc("id"));
+
+    // 獲取所有商店；指定 openAt 時只回傳該時間營業中的商店(依 ID 排序)，可再以經緯度範圍過濾
+    public Page<StoreResponse> getAllStores(String keyword, String category, LocalDateTime openAt,
+                                            Double minLatitude, Double maxLatitude,
+                                            Double minLongitude, Double maxLongitude, Pageable pageable) {
+        OpeningHoursIndex.Area area = resolveArea(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        if (openAt != null) {
+            return getOpenStores(keyword, category, openAt, area, pageable);
+        }
         Page<Store> stores;
-        if (keyword != null && category != null) {
+        if (area != null) {
+            stores = storeRepository.findByFilters(category, keyword, area.minLatitude(), area.maxLatitude(),
+                    area.minLongitude(), area.maxLongitude(), pageable);
+        } else if (keyword != null && category != null) {
             stores = storeRepository.findByNameContainingAndCategoryAndActiveTrue(keyword, category, pageable);
         } else if (keyword != null) {
             stores = storeRepository.findByNameContainingAndActiveTrue(keyword, pageable);
@@ -37,6 +78,54 @@ public class StoreService {
         return stores.map(this::convertToResponse);
     }
 
+    // 經緯度範圍四個參數需同時指定或同時省略
+    private OpeningHoursIndex.Area resolveArea(Double minLatitude, Double maxLatitude,
+                                               Double minLongitude, Double maxLongitude) {
+        if (minLatitude == null && maxLatitude == null && minLongitude == null && maxLongitude == null) {
+            return null;
+        }
+        if (minLatitude == null || maxLatitude == null || minLongitude == null || maxLongitude == null
+                || minLatitude > maxLatitude || minLongitude > maxLongitude
+                || minLatitude < -90 || maxLatitude > 90 || minLongitude < -180 || maxLongitude > 180) {
+            throw new CustomException("經緯度範圍格式錯誤", HttpStatus.BAD_REQUEST);
+        }
+        return new OpeningHoursIndex.Area(minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+
+    // 營業時段索引取得當頁的商店 ID，索引尚未建立完成時以資料庫條件查詢後逐筆解析營業時間
+    private Page<StoreResponse> getOpenStores(String keyword, String category, LocalDateTime openAt,
+                                              OpeningHoursIndex.Area area, Pageable pageable) {
+        PageRequest page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Optional<OpeningHoursIndex.SearchResult> result = storeOpeningHoursIndexService.openAt(
+                openAt, category, keyword, area, (int) pageable.getOffset(), pageable.getPageSize());
+        if (result.isPresent()) {
+            List<Long> ids = result.get().ids();
+            Map<Long, Store> stores = storeRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Store::getId, Function.identity()));
+            List<StoreResponse> content = ids.stream()
+                    .map(stores::get)
+                    .filter(store -> store != null && store.isActive() && !store.isDeleted())
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+            return new PageImpl<>(content, page, result.get().total());
+        }
+
+        int slot = OpeningHours.slotOf(openAt);
+        List<Store> open = storeRepository.findByFilters(category, keyword,
+                        area == null ? null : area.minLatitude(), area == null ? null : area.maxLatitude(),
+                        area == null ? null : area.minLongitude(), area == null ? null : area.maxLongitude(),
+                        Pageable.unpaged(Sort.by("id")))
+                .stream()
+                .filter(store -> OpeningHours.isOpen(OpeningHours.parse(store.getOpeningHours()), slot))
+                .collect(Collectors.toList());
+        int from = (int) Math.min(pageable.getOffset(), open.size());
+        List<StoreResponse> content = open.subList(from, Math.min(from + pageable.getPageSize(), open.size()))
+                .stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, page, open.size());
+    }
+
     // 獲取單個商店
     public StoreResponse getStoreById(Long id) {
         Store store = storeRepository.findByIdAndActiveTrue(id)
@@ -62,9 +151,14 @@ public class StoreService {
                 .latitude(request.getLatitude())
                 .longitude(request.getLongitude())
                 .active(true)
+                .ratingCount(0)
                 .build();
 
         store = storeRepository.save(store);
+        searchIndexService.storeChanged(store);
+        storeGeoIndexService.storeChanged(store);
+        storeOpeningHoursIndexService.storeChanged(store);
+        storeRankingService.storeChanged(store, convertToResponse(store));
         return convertToResponse(store);
     }
 
@@ -90,6 +184,10 @@ public class StoreService {
         store.setLongitude(request.getLongitude());
 
         store = storeRepository.save(store);
+        searchIndexService.storeChanged(store);
+        storeGeoIndexService.storeChanged(store);
+        storeOpeningHoursIndexService.storeChanged(store);
+        storeRankingService.storeChanged(store, convertToResponse(store));
         return convertToResponse(store);
     }
 
@@ -100,6 +198,10 @@ public class StoreService {
                 .orElseThrow(() -> new CustomException("商店不存在", HttpStatus.NOT_FOUND));
         store.softDelete();
         storeRepository.save(store);
+        searchIndexService.storeChanged(store);
+        storeGeoIndexService.storeChanged(store);
+        storeOpeningHoursIndexService.storeChanged(store);
+        storeRankingService.storeChanged(store, convertToResponse(store));
     }
 
     // 獲取所有分類
@@ -115,15 +217,109 @@ public class StoreService {
                 .collect(Collectors.toList());
     }
 
-    // 搜索商店
+    // 搜索商店：使用全文檢索索引依相關度排序，索引尚未建立完成時改用資料庫模糊查詢
     public Page<StoreResponse> searchStores(String query, Pageable pageable) {
+        Optional<InvertedIndex.SearchResult> result = searchIndexService.searchStores(
+                query, pageable.getOffset(), pageable.getPageSize());
+        if (result.isPresent()) {
+            List<Long> ids = result.get().ids();
+            Map<Long, Store> stores = storeRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Store::getId, Function.identity()));
+            List<StoreResponse> content = ids.stream()
+                    .map(stores::get)
+                    .filter(store -> store != null && store.isActive() && !store.isDeleted())
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+            return new PageImpl<>(content, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()),
+                    result.get().total());
+        }
+
         Page<Store> stores = storeRepository.searchStores(query, pageable);
         return stores.map(this::convertToResponse);
     }
 
-    // 獲取推薦商店
-    public List<StoreResponse> getRecommendedStores() {
-        List<Store> stores = storeRepository.findRecommendedStores();
+    // 附近商店：依距離由近到遠回傳 radius 公尺內最多 limit 間商店
+    public List<StoreResponse> getNearbyStores(Double latitude, Double longitude, Double radius,
+                                               Integer limit, String category) {
+        if (latitude == null || longitude == null
+                || latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new CustomException("經緯度格式錯誤", HttpStatus.BAD_REQUEST);
+        }
+        double searchRadius = radius == null ? DEFAULT_NEARBY_RADIUS : radius;
+        if (searchRadius <= 0 || searchRadius > MAX_NEARBY_RADIUS) {
+            throw new CustomException("搜尋半徑必須介於0到" + (int) MAX_NEARBY_RADIUS + "公尺", HttpStatus.BAD_REQUEST);
+        }
+        int maxResults = limit == null ? 20 : limit;
+        if (maxResults <= 0 || maxResults > MAX_NEARBY_LIMIT) {
+            throw new CustomException("查詢筆數必須介於1到" + MAX_NEARBY_LIMIT, HttpStatus.BAD_REQUEST);
+        }
+
+        List<GeoGridIndex.Hit> hits = storeGeoIndexService
+                .nearest(latitude, longitude, maxResults, searchRadius, category)
+                .orElseGet(() -> findNearbyInDatabase(latitude, longitude, searchRadius, maxResults, category));
+
+        Map<Long, Store> stores = storeRepository.findAllById(
+                        hits.stream().map(GeoGridIndex.Hit::id).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Store::getId, Function.identity()));
+        List<StoreResponse> responses = new ArrayList<>(hits.size());
+        for (GeoGridIndex.Hit hit : hits) {
+            Store store = stores.get(hit.id());
+            if (store != null && store.isActive() && !store.isDeleted()) {
+                StoreResponse response = convertToResponse(store);
+                response.setDistance(Math.round(hit.distance() * 10) / 10.0);
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    // 空間索引尚未建立時，以資料庫範圍查詢取得候選商店再計算距離
+    private List<GeoGridIndex.Hit> findNearbyInDatabase(double latitude, double longitude, double radius,
+                                                        int limit, String category) {
+        double latitudeDelta = radius / 111_000;
+        double longitudeDelta = radius / (111_000 * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        return storeRepository.findStoresInArea(latitude - latitudeDelta, latitude + latitudeDelta,
+                        longitude - longitudeDelta, longitude + longitudeDelta)
+                .stream()
+                .filter(store -> !store.isDeleted())
+                .filter(store -> category == null || category.equals(store.getCategory()))
+                .map(store -> new GeoGridIndex.Hit(store.getId(), GeoGridIndex.distance(
+                        latitude, longitude, store.getLatitude(), store.getLongitude())))
+                .filter(hit -> hit.distance() <= radius)
+                .sorted(Comparator.comparingDouble(GeoGridIndex.Hit::distance))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // 推薦商店：平均評分最高的前 limit 間，category 為 null 時不限分類
+    public List<StoreResponse> getRecommendedStores(String category, Integer limit) {
+        int maxResults = resolveRankingLimit(limit, DEFAULT_RECOMMENDED_LIMIT);
+        return storeRankingService.recommended(category, maxResults)
+                .orElseGet(() -> findRankedInDatabase(category, maxResults, RECOMMENDED_SORT));
+    }
+
+    // 熱門商店：評分數最多的前 limit 間，category 為 null 時不限分類
+    public List<StoreResponse> getPopularStores(String category, Integer limit) {
+        int maxResults = resolveRankingLimit(limit, DEFAULT_POPULAR_LIMIT);
+        return storeRankingService.popular(category, maxResults)
+                .orElseGet(() -> findRankedInDatabase(category, maxResults, POPULAR_SORT));
+    }
+
+    private int resolveRankingLimit(Integer limit, int defaultLimit) {
+        int maxResults = limit == null ? defaultLimit : limit;
+        if (maxResults <= 0 || maxResults > storeRankingConfig.getMaxLimit()) {
+            throw new CustomException("查詢筆數必須介於1到" + storeRankingConfig.getMaxLimit(), HttpStatus.BAD_REQUEST);
+        }
+        return maxResults;
+    }
+
+    // 排行榜尚未建立或需要重建時，直接以資料庫排序取前幾筆
+    private List<StoreResponse> findRankedInDatabase(String category, int limit, Sort sort) {
+        PageRequest page = PageRequest.of(0, limit, sort);
+        List<Store> stores = category == null
+                ? storeRepository.findByActiveTrueAndDeletedFalse(page)
+                : storeRepository.findByCategoryAndActiveTrueAndDeletedFalse(category, page);
         return stores.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
@@ -162,15 +358,4 @@ public class StoreService {
                 .ratingCount(store.getRatingCount())
                 .build();
     }
-    public List<StoreResponse> getPopularStores() {
-        // 根據評分數量降序排序，取前10個商店
-        List<Store> popularStores = storeRepository.findByOrderByRatingCountDesc()
-                .stream()
-                .limit(10)
-                .toList();
-
-        return popularStores.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-    }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package org.example._citizencard3.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizencard3.config.ScheduleConfig;
+import org.example._citizencard3.dto.request.ScheduleRequest;
+import org.example._citizencard3.dto.request.TimetableRequest;
+import org.example._citizencard3.dto.response.ScheduleBatchResponse;
+import org.example._citizencard3.dto.response.ScheduleResponse;
+import org.example._citizencard3.dto.response.TimetableResponse;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.model.Movie;
+import org.example._citizencard3.repository.MovieRepository;
+import org.example._citizencard3.util.HallIntervalIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// 自動排片：每天每個影廳從營業開始時間依序往後排，每一場選擇在散場前放得下、目前場次數最少的電影
+// (相同時依請求中的優先順序)，下一場從 放映時間 + 片長 + 清場時間 對齊後開始；遇到既有場次則跳到其結束之後
+// 排片結果由 ScheduleService 批次驗證，非 dryRun 時在同一個交易內批次寫入
+@Service
+@RequiredArgsConstructor
+public class TimetableService {
+
+    private final MovieRepository movieRepository;
+    private final ScheduleService scheduleService;
+    private final ScheduleConflictIndexService scheduleConflictIndexService;
+    private final ScheduleConfig scheduleConfig;
+
+    public TimetableResponse generate(TimetableRequest request) {
+        validateRequest(request);
+        List<Movie> movies = loadMovies(request.getMovieIds());
+
+        List<ScheduleRequest> plan = plan(request, movies);
+        if (plan.isEmpty()) {
+            throw new CustomException("指定的日期與時段內沒有可排入的場次", HttpStatus.BAD_REQUEST);
+        }
+
+        ScheduleBatchResponse result = request.isDryRun()
+                ? scheduleService.validateSchedules(plan)
+                : scheduleService.createSchedules(plan);
+
+        Map<Long, Movie> movieById = movies.stream().collect(Collectors.toMap(Movie::getId, Function.identity()));
+        Map<Long, Integer> showsPerMovie = new LinkedHashMap<>();
+        movies.forEach(movie -> showsPerMovie.put(movie.getId(), 0));
+        List<ScheduleResponse> schedules = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            ScheduleRequest item = plan.get(i);
+            Movie movie = movieById.get(item.getMovieId());
+            showsPerMovie.merge(movie.getId(), 1, Integer::sum);
+            ScheduleResponse response = result.getCreated() != null
+                    ? result.getCreated().get(i)
+                    : planned(item);
+            response.setMovieTitle(movie.getTitle());
+            response.setDuration(movie.getDuration());
+            schedules.add(response);
+        }
+        return TimetableResponse.builder()
+                .dryRun(request.isDryRun())
+                .valid(result.isValid())
+                .total(plan.size())
+                .showsPerMovie(showsPerMovie)
+                .schedules(schedules)
+                .errors(result.getErrors())
+                .build();
+    }
+
+    List<ScheduleRequest> plan(TimetableRequest request, List<Movie> movies) {
+        int step = request.getStartTimeStep();
+        int buffer = scheduleConfig.getCleaningBuffer();
+        LocalDateTime earliest = align(LocalDateTime.now(), step);
+        boolean closesNextDay = !request.getCloseTime().isAfter(request.getOpenTime());
+        int[] shows = new int[movies.size()];
+
+        List<ScheduleRequest> plan = new ArrayList<>();
+        for (LocalDate day = request.getStartDate(); !day.isAfter(request.getEndDate()); day = day.plusDays(1)) {
+            LocalDateTime close = (closesNextDay ? day.plusDays(1) : day).atTime(request.getCloseTime());
+            for (int h = 0; h < request.getHalls().size(); h++) {
+                TimetableRequest.Hall hall = request.getHalls().get(h);
+                LocalDateTime cursor = align(day.atTime(request.getOpenTime())
+                        .plusMinutes((long) h * request.getHallStaggerMinutes()), step);
+                if (cursor.isBefore(earliest)) {
+                    cursor = earliest;
+                }
+                while (true) {
+                    int chosen = choose(movies, shows, cursor, close);
+                    if (chosen < 0) {
+                        break;
+                    }
+                    Movie movie = movies.get(chosen);
+                    HallIntervalIndex.Interval interval = scheduleConflictIndexService.interval(
+                            -1, hall.getName(), cursor, movie.getDuration());
+                    List<ScheduleConflictIndexService.Conflict> conflicts =
+                            scheduleConflictIndexService.findConflicts(List.of(interval));
+                    if (!conflicts.isEmpty()) {
+                        // 與既有場次重疊，從該場次結束後再排
+                        cursor = align(conflicts.get(0).existing().end(), step);
+                        continue;
+                    }
+                    plan.add(new ScheduleRequest(movie.getId(), cursor, hall.getName(),
+                            hall.getTotalSeats(), hall.getTotalSeats(), true));
+                    shows[chosen]++;
+                    cursor = align(cursor.plusMinutes((long) movie.getDuration() + buffer), step);
+                }
+            }
+        }
+        return plan;
+    }
+
+    // 在 start 上映中、且在 close 前散場的電影中，場次數最少的一部；沒有時回傳 -1
+    private int choose(List<Movie> movies, int[] shows, LocalDateTime start, LocalDateTime close) {
+        int chosen = -1;
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if (start.isBefore(movie.getReleaseDate()) || start.isAfter(movie.getEndDate())
+                    || start.plusMinutes(movie.getDuration()).isAfter(close)) {
+                continue;
+            }
+            if (chosen < 0 || shows[i] < shows[chosen]) {
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    private void validateRequest(TimetableRequest request) {
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new CustomException("開始日期不能晚於結束日期", HttpStatus.BAD_REQUEST);
+        }
+        long days = ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1;
+        if (days > scheduleConfig.getMaxTimetableDays()) {
+            throw new CustomException("單次最多排" + scheduleConfig.getMaxTimetableDays() + "天", HttpStatus.BAD_REQUEST);
+        }
+        Set<String> halls = new HashSet<>();
+        for (TimetableRequest.Hall hall : request.getHalls()) {
+            if (!halls.add(hall.getName())) {
+                throw new CustomException("影廳重複：" + hall.getName(), HttpStatus.BAD_REQUEST);
+            }
+        }
+    }
+
+    // 依請求順序回傳，停用的電影不排
+    private List<Movie> loadMovies(List<Long> movieIds) {
+        Map<Long, Movie> found = movieRepository.findAllById(movieIds).stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
+        List<Movie> movies = new ArrayList<>();
+        for (Long movieId : new LinkedHashSet<>(movieIds)) {
+            Movie movie = found.get(movieId);
+            if (movie == null) {
+                throw new CustomException("電影不存在：" + movieId, HttpStatus.NOT_FOUND);
+            }
+            if (Boolean.TRUE.equals(movie.getActive())) {
+                movies.add(movie);
+            }
+        }
+        if (movies.isEmpty()) {
+            throw new CustomException("沒有可排片的電影", HttpStatus.BAD_REQUEST);
+        }
+        return movies;
+    }
+
+    private ScheduleResponse planned(ScheduleRequest item) {
+        ScheduleResponse response = new ScheduleResponse();
+        response.setMovieId(item.getMovieId());
+        response.setShowTime(item.getShowTime());
+        response.setHall(item.getHall());
+        response.setTotalSeats(item.getTotalSeats());
+        response.setAvailableSeats(item.getAvailableSeats());
+        response.setActive(item.getActive());
+        return response;
+    }
+
+    // 向上對齊到 step 分鐘的整數倍
+    private static LocalDateTime align(LocalDateTime time, int step) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        if (minute.isBefore(time)) {
+            minute = minute.plusMinutes(1);
+        }
+        int remainder = (minute.getHour() * 60 + minute.getMinute()) % step;
+        return remainder == 0 ? minute : minute.plusMinutes(step - remainder);
+    }
+}
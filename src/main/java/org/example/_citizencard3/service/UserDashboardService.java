@@ -0,0 +1,182 @@
+package org.example._citizencard3.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.DashboardConfig;
+import org.example._citizencard3.dto.response.DiscountCouponResponse;
+import org.example._citizencard3.dto.response.MovieTicketResponse;
+import org.example._citizencard3.dto.response.UserDashboardResponse;
+import org.example._citizencard3.dto.response.UserResponse;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.util.MoneyUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// 會員總覽：使用者、錢包、最近電影票、最近優惠券與有效數量各自以有上限的查詢讀取，
+// 取代一次 JOIN FETCH 兩個集合造成的笛卡兒積(200 張票 x 100 張券 = 20,000 列)
+// 每次固定 5 個查詢，在專用的有界執行緒池並行執行後組成單一回應；只讀取回應需要的欄位，不載入實體
+@Slf4j
+@Service
+public class UserDashboardService {
+
+    private static final String WALLET_SQL =
+            "SELECT id, balance_minor, created_at, updated_at FROM wallets WHERE user_id = ?";
+    private static final String RECENT_TICKETS_SQL = "SELECT t.id, t.user_id, t.seat_number, t.status, "
+            + "t.created_at, t.updated_at, m.title, m.poster_url, s.hall, s.show_time "
+            + "FROM movie_tickets t JOIN movies m ON m.id = t.movie_id JOIN schedules s ON s.id = t.schedule_id "
+            + "WHERE t.user_id = ? ORDER BY t.created_at DESC, t.id DESC LIMIT ?";
+    private static final String RECENT_COUPONS_SQL = "SELECT id, title, description, discount_type, "
+            + "discount_value, status, expiry_date, created_at, updated_at FROM discount_coupons "
+            + "WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String VALID_COUNTS_SQL = "SELECT "
+            + "(SELECT COUNT(*) FROM movie_tickets WHERE user_id = ? AND status = 'VALID') AS valid_tickets, "
+            + "(SELECT COUNT(*) FROM discount_coupons WHERE user_id = ? AND status = 'VALID') AS valid_coupons";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DashboardConfig dashboardConfig;
+    private final ThreadPoolExecutor executor;
+
+    public UserDashboardService(JdbcTemplate jdbcTemplate, DashboardConfig dashboardConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dashboardConfig = dashboardConfig;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 佇列滿時由請求執行緒自行執行查詢，尖峰時退化為循序查詢而不是拒絕請求
+        this.executor = new ThreadPoolExecutor(dashboardConfig.getThreads(), dashboardConfig.getThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dashboardConfig.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-dashboard-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public UserDashboardResponse getDashboard(long userId) {
+        int limit = dashboardConfig.getRecentLimit();
+        CompletableFuture<UserResponse> user = submit(() -> loadUser(userId));
+        CompletableFuture<UserResponse.WalletInfo> wallet = submit(() -> loadWallet(userId));
+        CompletableFuture<List<MovieTicketResponse>> tickets = submit(() -> loadRecentTickets(userId, limit));
+        CompletableFuture<List<DiscountCouponResponse>> coupons = submit(() -> loadRecentCoupons(userId, limit));
+        CompletableFuture<long[]> counts = submit(() -> loadValidCounts(userId));
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(user, wallet, tickets, coupons, counts);
+        try {
+            all.get(dashboardConfig.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            all.cancel(true);
+            log.warn("Dashboard queries for user {} timed out after {} ms", userId, dashboardConfig.getTimeoutMillis());
+            throw new CustomException("讀取會員資料逾時，請稍後再試", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("讀取會員資料失敗", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (user.join() == null) {
+            throw new CustomException("找不到指定用戶", HttpStatus.NOT_FOUND);
+        }
+        long[] validCounts = counts.join();
+        return UserDashboardResponse.builder()
+                .user(user.join())
+                .wallet(wallet.join())
+                .recentTickets(tickets.join())
+                .recentCoupons(coupons.join())
+                .validTicketsCount(validCounts[0])
+                .validCouponsCount(validCounts[1])
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    private UserResponse loadUser(long userId) {
+        List<UserResponse> users = jdbcTemplate.query(
+                "SELECT " + UserListingService.COLUMNS + " FROM users WHERE id = ?",
+                UserListingService.USER_ROW_MAPPER, userId);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    private UserResponse.WalletInfo loadWallet(long userId) {
+        List<UserResponse.WalletInfo> wallets = jdbcTemplate.query(WALLET_SQL, (rs, rowNum) ->
+                UserResponse.WalletInfo.builder()
+                        .id(rs.getLong("id"))
+                        .balance(MoneyUtils.toAmount(rs.getLong("balance_minor")))
+                        .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                        .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                        .build(), userId);
+        return wallets.isEmpty() ? null : wallets.get(0);
+    }
+
+    private List<MovieTicketResponse> loadRecentTickets(long userId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(RECENT_TICKETS_SQL, (rs, rowNum) -> {
+            String status = rs.getString("status");
+            LocalDateTime showTime = toLocalDateTime(rs.getTimestamp("show_time"));
+            boolean showPassed = showTime != null && showTime.isBefore(now);
+            return MovieTicketResponse.builder()
+                    .id(rs.getLong("id"))
+                    .userId(rs.getLong("user_id"))
+                    .movieTitle(rs.getString("title"))
+                    .moviePoster(rs.getString("poster_url"))
+                    .hall(rs.getString("hall"))
+                    .scheduleHall(rs.getString("hall"))
+                    .seatNumber(rs.getString("seat_number"))
+                    .status(status)
+                    .showTime(showTime)
+                    .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                    .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                    .isValid("VALID".equals(status) && !showPassed)
+                    .isUsed("USED".equals(status))
+                    .isExpired("EXPIRED".equals(status) || showPassed)
+                    .isCancelled("CANCELLED".equals(status))
+                    .build();
+        }, userId, limit);
+    }
+
+    private List<DiscountCouponResponse> loadRecentCoupons(long userId, int limit) {
+        return jdbcTemplate.query(RECENT_COUPONS_SQL, (rs, rowNum) -> DiscountCouponResponse.builder()
+                .id(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .description(rs.getString("description"))
+                .discountType(rs.getString("discount_type"))
+                .discountValue(rs.getDouble("discount_value"))
+                .status(rs.getString("status"))
+                .expiryDate(toLocalDateTime(rs.getTimestamp("expiry_date")))
+                .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .build(), userId, limit);
+    }
+
+    private long[] loadValidCounts(long userId) {
+        return jdbcTemplate.queryForObject(VALID_COUNTS_SQL, (rs, rowNum) ->
+                new long[]{rs.getLong("valid_tickets"), rs.getLong("valid_coupons")}, userId, userId);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,231 @@
+package org.example._citizencard3.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.dto.response.CursorPageResponse;
+import org.example._citizencard3.dto.response.UserResponse;
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// 管理後台使用者列表與匯出
+// 列表以 (created_at, id) 游標分頁，由新到舊，不使用 OFFSET 也不計算總筆數；搜尋只比對姓名與電子郵件的前綴，可使用索引
+// 匯出以固定 fetch size 的唯讀游標逐列讀取並直接寫入回應，記憶體用量與使用者數量無關
+@Slf4j
+@Service
+public class UserListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+    // 每寫出這麼多列就 flush 一次，讓客戶端持續收到資料
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+
+    static final String COLUMNS = "id, name, email, phone, birthday, gender, role, address, avatar, "
+            + "active, email_verified, last_login_time, last_login_ip, created_at, updated_at, version";
+
+    private static final String[] CSV_HEADER = {"id", "name", "email", "phone", "birthday", "gender", "role",
+            "address", "active", "email_verified", "last_login_time", "last_login_ip", "created_at", "updated_at"};
+
+    // 會員總覽也使用，不含密碼
+    static final RowMapper<UserResponse> USER_ROW_MAPPER = (rs, rowNum) -> UserResponse.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .email(rs.getString("email"))
+            .phone(rs.getString("phone"))
+            .birthday(rs.getString("birthday"))
+            .gender(rs.getString("gender"))
+            .role(rs.getString("role"))
+            .address(rs.getString("address"))
+            .avatar(rs.getString("avatar"))
+            .active(rs.getBoolean("active"))
+            .emailVerified(rs.getBoolean("email_verified"))
+            .lastLoginTime(toLocalDateTime(rs.getTimestamp("last_login_time")))
+            .lastLoginIp(rs.getString("last_login_ip"))
+            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+            .version(rs.getObject("version", Integer.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    // 匯出專用，設定 fetch size 讓驅動程式逐批串流結果，不一次載入整個結果集
+    private final JdbcTemplate exportJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UserListingService(JdbcTemplate jdbcTemplate, DataSource dataSource, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.objectMapper = objectMapper;
+    }
+
+    public CursorPageResponse<UserResponse> listUsers(String cursor, int size, String search) {
+        int limit = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM users WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (StringUtils.hasText(cursor)) {
+            Position position = decodeCursor(cursor);
+            Timestamp createdAt = Timestamp.valueOf(position.createdAt());
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(position.id());
+        }
+        appendSearch(sql, args, search);
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        // 多取一筆判斷是否還有下一頁
+        args.add(limit + 1);
+
+        List<UserResponse> users = jdbcTemplate.query(sql.toString(), USER_ROW_MAPPER, args.toArray());
+        boolean hasMore = users.size() > limit;
+        if (hasMore) {
+            users = users.subList(0, limit);
+        }
+        String nextCursor = hasMore ? encodeCursor(users.get(users.size() - 1)) : null;
+        return CursorPageResponse.<UserResponse>builder()
+                .items(users)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // 依 id 順序匯出全部使用者，format 為 csv 或 ndjson
+    public void exportUsers(String format, String search, Writer writer) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM users WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendSearch(sql, args, search);
+        sql.append(" ORDER BY id");
+
+        try {
+            if (csv) {
+                writeCsvRow(writer, CSV_HEADER);
+            }
+            int[] rows = {0};
+            exportJdbcTemplate.query(sql.toString(), rs -> {
+                UserResponse user = USER_ROW_MAPPER.mapRow(rs, rows[0]);
+                try {
+                    if (csv) {
+                        writeCsvRow(writer, toCsvFields(user));
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(user));
+                        writer.write('\n');
+                    }
+                    if (++rows[0] % EXPORT_FLUSH_ROWS == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+            writer.flush();
+            log.info("Exported {} users as {}", rows[0], csv ? "csv" : "ndjson");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 前綴比對，使用者輸入的 % 與 _ 視為一般字元
+    private static void appendSearch(StringBuilder sql, List<Object> args, String search) {
+        if (!StringUtils.hasText(search)) {
+            return;
+        }
+        String prefix = escapeLike(search.trim()) + "%";
+        sql.append(" AND (email LIKE ? OR name LIKE ?)");
+        args.add(prefix.toLowerCase());
+        args.add(prefix);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String encodeCursor(UserResponse user) {
+        String raw = user.getCreatedAt() + "|" + user.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Position(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new CustomException("無效的分頁游標", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static String[] toCsvFields(UserResponse user) {
+        return new String[]{
+                String.valueOf(user.getId()),
+                user.getName(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getBirthday(),
+                user.getGender(),
+                user.getRole(),
+                user.getAddress(),
+                String.valueOf(user.isActive()),
+                String.valueOf(user.isEmailVerified()),
+                user.getLastLoginTime() == null ? null : user.getLastLoginTime().toString(),
+                user.getLastLoginIp(),
+                user.getCreatedAt() == null ? null : user.getCreatedAt().toString(),
+                user.getUpdatedAt() == null ? null : user.getUpdatedAt().toString()
+        };
+    }
+
+    private static void writeCsvRow(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(writer, fields[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 引號跳脫；以 = + - @ 開頭的值前面加上單引號，避免在試算表中被當成公式執行
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            value = "'" + value;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (quote) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private record Position(LocalDateTime createdAt, long id) {
+    }
+}
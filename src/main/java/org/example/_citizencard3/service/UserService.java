@@ -6,6 +6,7 @@ import org.example._citizencard3.dto.response.UserResponse;
 import org.example._citizencard3.exception.CustomException;
 import org.example._citizencard3.model.User;
 import org.example._citizencard3.repository.UserRepository;
+import org.example._citizencard3.security.UserSecurityVersions;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,6 +24,8 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserSecurityVersions securityVersions;
+    private final UserWriteBehind userWriteBehind;
 
     public UserResponse getCurrentUserProfile() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -30,19 +33,29 @@ public class UserService {
         return convertToResponse(user);
     }
 
-    @Transactional
+    // 以只包含個人資料欄位的 UPDATE 寫入，不重寫整列；updated_at 交由 UserWriteBehind 合併後批次寫回
+    // 以讀取時的版本做樂觀鎖，期間被其他寫入修改過則回報衝突，與原本 @Version 的行為相同
     public UserResponse updateProfile(UpdateProfileRequest request) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = findUserByEmail(email);
 
+        Integer version = user.getVersion();
+        int updated = userRepository.updateProfile(user.getId(), version, request.getName(), request.getPhone(),
+                request.getBirthday(), request.getGender(), request.getAddress());
+        if (updated == 0) {
+            throw new CustomException("個人資料已被其他操作修改，請重新整理後再試", HttpStatus.CONFLICT);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        userWriteBehind.touch(user.getId(), now);
+
+        // 版本相符時寫入的內容即為讀取時的資料加上本次修改
         user.setName(request.getName());
         user.setPhone(request.getPhone());
         user.setBirthday(request.getBirthday());
         user.setGender(request.getGender());
         user.setAddress(request.getAddress());
-        user.setUpdatedAt(LocalDateTime.now());
-
-        user = userRepository.save(user);
+        user.setUpdatedAt(now);
+        user.setVersion(version == null ? 1 : version + 1);
         return convertToResponse(user);
     }
 
@@ -72,7 +85,7 @@ public class UserService {
         User user = findUserById(id);
         user.setActive(active);
         user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        bumpSecurityVersion(user);
     }
 
     @Transactional
@@ -83,7 +96,7 @@ public class UserService {
         }
         user.setRole(role);
         user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        bumpSecurityVersion(user);
     }
 
     @Transactional
@@ -91,7 +104,14 @@ public class UserService {
         User user = findUserById(id);
         user.setActive(false);
         user.setUpdatedAt(LocalDateTime.now());
+        bumpSecurityVersion(user);
+    }
+
+    // 遞增安全版本，讓此使用者已簽發的令牌在交易提交後全部失效
+    private void bumpSecurityVersion(User user) {
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
         userRepository.save(user);
+        securityVersions.bump(user.getId(), user.getSecurityVersion());
     }
 
     private User findUserById(Long id) {
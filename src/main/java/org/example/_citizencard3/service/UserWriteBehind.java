@@ -0,0 +1,185 @@
+package org.example._citizencard3.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.config.AuthConfig;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// users 資料表低價值欄位的延後寫入：最後登入時間/IP 與 updated_at
+// 只記錄在記憶體，同一使用者在一個寫回週期內的多次更新合併為一筆，由排程或累積到一批時以 JDBC batch 寫回
+// 待寫回的使用者數量有上限，達到上限時由呼叫端同步寫回(背壓)，寫回仍失敗時捨棄新的更新
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserWriteBehind {
+
+    private static final String UPDATE_LAST_LOGIN_SQL =
+            "UPDATE users SET last_login_time = ?, last_login_ip = ? WHERE id = ?";
+    // 只往後推進，不覆蓋其他寫入路徑已寫入的較新時間；尚未有 updated_at 的使用者直接寫入
+    private static final String UPDATE_UPDATED_AT_SQL =
+            "UPDATE users SET updated_at = ? WHERE id = ? AND (updated_at IS NULL OR updated_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuthConfig authConfig;
+    private final ConcurrentHashMap<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    // 累積到一批時提前寫回，同時最多只排入一次
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder backpressureFlushes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public void recordLogin(long userId, LocalDateTime loginTime, String ipAddress) {
+        enqueue(userId, new PendingWrite(loginTime, ipAddress, null));
+    }
+
+    public void touch(long userId, LocalDateTime updatedAt) {
+        enqueue(userId, new PendingWrite(null, null, updatedAt));
+    }
+
+    private void enqueue(long userId, PendingWrite write) {
+        recorded.increment();
+        if (pending.size() >= authConfig.getWriteBehindCapacity() && !pending.containsKey(userId)) {
+            backpressureFlushes.increment();
+            flush();
+            if (pending.size() >= authConfig.getWriteBehindCapacity()) {
+                dropped.increment();
+                log.warn("User write-behind queue full ({} users), dropping update for user {}",
+                        pending.size(), userId);
+                return;
+            }
+        }
+        pending.merge(userId, write, PendingWrite::merge);
+
+        if (pending.size() >= authConfig.getWriteBehindBatchSize() && flushQueued.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    try {
+                        flush();
+                    } finally {
+                        flushQueued.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.write-behind-flush-interval:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushes.increment();
+        List<Map.Entry<Long, PendingWrite>> batch = new ArrayList<>();
+        for (Map.Entry<Long, PendingWrite> entry : pending.entrySet()) {
+            batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (batch.size() == authConfig.getWriteBehindBatchSize()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    public Map<String, Object> stats() {
+        long recordedCount = recorded.sum();
+        long writtenCount = written.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("capacity", authConfig.getWriteBehindCapacity());
+        stats.put("recorded", recordedCount);
+        stats.put("written", writtenCount);
+        // 每寫入一列平均合併了幾次更新
+        stats.put("coalescingRatio", writtenCount == 0 ? 0.0 : (double) recordedCount / writtenCount);
+        stats.put("flushes", flushes.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("backpressureFlushes", backpressureFlushes.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    private void write(List<Map.Entry<Long, PendingWrite>> batch) {
+        List<Object[]> loginArgs = new ArrayList<>();
+        List<Object[]> updatedAtArgs = new ArrayList<>();
+        for (Map.Entry<Long, PendingWrite> entry : batch) {
+            PendingWrite write = entry.getValue();
+            if (write.loginTime() != null) {
+                loginArgs.add(new Object[]{Timestamp.valueOf(write.loginTime()), write.ipAddress(), entry.getKey()});
+            }
+            if (write.updatedAt() != null) {
+                Timestamp updatedAt = Timestamp.valueOf(write.updatedAt());
+                updatedAtArgs.add(new Object[]{updatedAt, entry.getKey(), updatedAt});
+            }
+        }
+        try {
+            if (!loginArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, loginArgs);
+            }
+            if (!updatedAtArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_UPDATED_AT_SQL, updatedAtArgs);
+            }
+        } catch (DataAccessException e) {
+            // 寫回失敗時保留在記憶體，下一個週期重試
+            failedBatches.increment();
+            log.warn("Failed to write {} user write-behind records: {}", batch.size(), e.getMessage());
+            return;
+        }
+        written.add(batch.size());
+        // 只移除已寫回的值，寫回期間的新更新留到下一批
+        for (Map.Entry<Long, PendingWrite> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // 欄位為 null 表示此次沒有更新該欄位
+    private record PendingWrite(LocalDateTime loginTime, String ipAddress, LocalDateTime updatedAt) {
+
+        private PendingWrite merge(PendingWrite next) {
+            boolean nextLogin = next.loginTime != null
+                    && (loginTime == null || !next.loginTime.isBefore(loginTime));
+            LocalDateTime mergedUpdatedAt = updatedAt == null || (next.updatedAt != null && next.updatedAt.isAfter(updatedAt))
+                    ? next.updatedAt
+                    : updatedAt;
+            return new PendingWrite(
+                    nextLogin ? next.loginTime : loginTime,
+                    nextLogin ? next.ipAddress : ipAddress,
+                    mergedUpdatedAt);
+        }
+    }
+}
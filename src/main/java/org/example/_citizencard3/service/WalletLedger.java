@@ -0,0 +1,175 @@
+package org.example._citizencard3.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizencard3.exception.CustomException;
+import org.example._citizencard3.model.WalletTransaction.TransactionType;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 錢包帳本：餘額異動一律寫入 wallet_transactions 日誌，並以條件式 UPDATE 更新餘額
+// 同一錢包的並行請求會排入佇列，由最先進入的執行緒擔任 leader，在單一交易中批次提交
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WalletLedger {
+
+    static final int MAX_BATCH_SIZE = 256;
+
+    private static final String LOCK_WALLET_SQL =
+            "SELECT balance_minor FROM wallets WHERE id = ? FOR UPDATE";
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE wallets SET balance_minor = balance_minor + ?, updated_at = ? WHERE id = ? AND balance_minor + ? >= 0";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO wallet_transactions (wallet_id, type, amount_minor, balance_after_minor, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<Long, WalletQueue> queues = new ConcurrentHashMap<>();
+
+    // 儲值，回傳交易後餘額(分)
+    public long deposit(long walletId, long amountMinor) {
+        if (amountMinor <= 0) {
+            throw new CustomException("儲值金額必須大於0", HttpStatus.BAD_REQUEST);
+        }
+        return submit(walletId, new PendingOperation(TransactionType.DEPOSIT, amountMinor));
+    }
+
+    // 提領，餘額不足時拋出 CustomException，回傳交易後餘額(分)
+    public long withdraw(long walletId, long amountMinor) {
+        if (amountMinor <= 0) {
+            throw new CustomException("提領金額必須大於0", HttpStatus.BAD_REQUEST);
+        }
+        return submit(walletId, new PendingOperation(TransactionType.WITHDRAW, amountMinor));
+    }
+
+    private long submit(long walletId, PendingOperation operation) {
+        WalletQueue queue = queues.computeIfAbsent(walletId, WalletQueue::new);
+        queue.pending.add(operation);
+        drain(queue);
+        try {
+            return operation.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // 取得 draining 旗標的執行緒負責提交佇列中所有請求；釋放旗標後再檢查一次，避免漏掉剛排入的請求
+    private void drain(WalletQueue queue) {
+        boolean led = false;
+        while (!queue.pending.isEmpty() && queue.draining.compareAndSet(false, true)) {
+            led = true;
+            try {
+                List<PendingOperation> batch = new ArrayList<>();
+                PendingOperation operation;
+                while (batch.size() < MAX_BATCH_SIZE && (operation = queue.pending.poll()) != null) {
+                    batch.add(operation);
+                }
+                if (!batch.isEmpty()) {
+                    commitBatch(queue.walletId, batch);
+                }
+            } finally {
+                queue.draining.set(false);
+            }
+        }
+        if (led && queue.pending.isEmpty()) {
+            // 移除閒置佇列；之後才排入的請求會由自己擔任 leader，並以列鎖保證正確性
+            queues.remove(queue.walletId, queue);
+        }
+    }
+
+    private void commitBatch(long walletId, List<PendingOperation> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Long current = jdbcTemplate.query(LOCK_WALLET_SQL,
+                        rs -> rs.next() ? rs.getLong(1) : null, walletId);
+                if (current == null) {
+                    throw new CustomException("找不到用戶錢包", HttpStatus.NOT_FOUND);
+                }
+
+                long balance = current;
+                List<Object[]> journal = new ArrayList<>(batch.size());
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (PendingOperation operation : batch) {
+                    long delta = operation.delta();
+                    if (balance + delta < 0) {
+                        continue;
+                    }
+                    balance += delta;
+                    operation.accepted = true;
+                    operation.balanceAfter = balance;
+                    journal.add(new Object[]{walletId, operation.type.name(), operation.amountMinor, balance, now});
+                }
+                if (journal.isEmpty()) {
+                    return;
+                }
+
+                long netDelta = balance - current;
+                int updated = jdbcTemplate.update(UPDATE_BALANCE_SQL, netDelta, now, walletId, netDelta);
+                if (updated != 1) {
+                    throw new IllegalStateException("錢包餘額條件更新失敗: " + walletId);
+                }
+                jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, journal);
+            });
+        } catch (RuntimeException e) {
+            RuntimeException failure = e instanceof CustomException ? e
+                    : new CustomException("錢包交易失敗，請稍後再試", HttpStatus.INTERNAL_SERVER_ERROR);
+            if (!(e instanceof CustomException)) {
+                log.error("Wallet {} batch of {} operations failed", walletId, batch.size(), e);
+            }
+            batch.forEach(operation -> operation.result.completeExceptionally(failure));
+            return;
+        }
+
+        for (PendingOperation operation : batch) {
+            if (operation.accepted) {
+                operation.result.complete(operation.balanceAfter);
+            } else {
+                operation.result.completeExceptionally(CustomException.insufficientBalance());
+            }
+        }
+    }
+
+    private static final class WalletQueue {
+        private final long walletId;
+        private final Queue<PendingOperation> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private WalletQueue(long walletId) {
+            this.walletId = walletId;
+        }
+    }
+
+    private static final class PendingOperation {
+        private final TransactionType type;
+        private final long amountMinor;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private boolean accepted;
+        private long balanceAfter;
+
+        private PendingOperation(TransactionType type, long amountMinor) {
+            this.type = type;
+            this.amountMinor = amountMinor;
+        }
+
+        private long delta() {
+            return type == TransactionType.WITHDRAW ? -amountMinor : amountMinor;
+        }
+    }
+}
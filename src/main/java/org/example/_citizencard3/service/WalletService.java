@@ -10,6 +10,7 @@ import org.example._citizencard3.repository.MovieTicketRepository;
 import org.example._citizencard3.repository.DiscountCouponRepository;
 import org.example._citizencard3.repository.UserRepository;
 import org.example._citizencard3.repository.WalletRepository;
+import org.example._citizencard3.util.MoneyUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -26,6 +27,7 @@ public class WalletService {
     private final UserRepository userRepository;
     private final MovieTicketRepository movieTicketRepository;
     private final DiscountCouponRepository discountCouponRepository;
+    private final WalletLedger walletLedger;
 
     public Wallet getWalletByUserId(Long userId) {
         User user = userRepository.findById(userId)
@@ -35,32 +37,25 @@ public class WalletService {
                 .orElseThrow(() -> new CustomException("找不到用戶錢包", HttpStatus.NOT_FOUND));
     }
 
-    @Transactional
+    // 餘額異動交由 WalletLedger 在自己的交易中批次提交，這裡只負責換算金額
     public Wallet deposit(Long userId, Double amount) {
-        if (amount <= 0) {
+        if (amount == null || amount <= 0) {
             throw new CustomException("儲值金額必須大於0", HttpStatus.BAD_REQUEST);
         }
 
         Wallet wallet = getWalletByUserId(userId);
-        wallet.setBalance(wallet.getBalance() + amount);
-        wallet.setUpdatedAt(LocalDateTime.now());
-        return walletRepository.save(wallet);
+        wallet.setBalanceMinor(walletLedger.deposit(wallet.getId(), MoneyUtils.toMinorUnits(amount)));
+        return wallet;
     }
 
-    @Transactional
     public Wallet withdraw(Long userId, Double amount) {
-        if (amount <= 0) {
+        if (amount == null || amount <= 0) {
             throw new CustomException("提領金額必須大於0", HttpStatus.BAD_REQUEST);
         }
 
         Wallet wallet = getWalletByUserId(userId);
-        if (wallet.getBalance() < amount) {
-            throw new CustomException("餘額不足", HttpStatus.BAD_REQUEST);
-        }
-
-        wallet.setBalance(wallet.getBalance() - amount);
-        wallet.setUpdatedAt(LocalDateTime.now());
-        return walletRepository.save(wallet);
+        wallet.setBalanceMinor(walletLedger.withdraw(wallet.getId(), MoneyUtils.toMinorUnits(amount)));
+        return wallet;
     }
 
     public Double getBalance(Long userId) {
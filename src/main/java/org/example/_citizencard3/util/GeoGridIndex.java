@@ -0,0 +1,246 @@
+package org.example._citizencard3.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// 以經緯度網格分區的空間索引，每個格子以基本型別陣列保存座標
+// 最近鄰查詢由所在格子向外一圈一圈擴展，每圈多涵蓋一格高度的距離，列與欄的範圍分別依緯度差與經度差計算
+// 當目前第 k 名的距離不超過上一圈涵蓋的距離時即停止
+public class GeoGridIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private final double cellDegrees;
+    // 一圈緯線上的欄數，欄的範圍不超過這個數量
+    private final int columns;
+    private final int minColumn;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<Long, Long> cellOf = new HashMap<>();
+
+    public GeoGridIndex(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.columns = (int) Math.ceil(360 / cellDegrees - 1e-9);
+        this.minColumn = column(-180);
+    }
+
+    public void put(long id, double latitude, double longitude, String category) {
+        long key = cellKey(latitude, longitude);
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            cells.computeIfAbsent(key, k -> new Cell()).add(id, latitude, longitude, category);
+            cellOf.put(id, key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 距離最近的 k 筆，只搜尋 maxDistance 公尺以內；category 為 null 時不過濾
+    public List<Hit> nearest(double latitude, double longitude, int k, double maxDistance, String category) {
+        if (k <= 0) {
+            return List.of();
+        }
+        double ringMeters = cellDegrees * METERS_PER_DEGREE;
+        int maxRing = (int) Math.ceil(maxDistance / ringMeters);
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distance).reversed());
+        Consumer<Cell> collector = cell -> cell.collect(latitude, longitude, maxDistance, category, hit -> {
+            if (best.size() < k) {
+                best.add(hit);
+            } else if (hit.distance() < best.peek().distance()) {
+                best.poll();
+                best.add(hit);
+            }
+        });
+        lock.readLock().lock();
+        try {
+            Span previous = null;
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // 尚未搜尋的格子都在上一圈的範圍之外
+                if (previous != null && best.size() == k && best.peek().distance() <= previous.reach()) {
+                    break;
+                }
+                Span span = span(latitude, longitude, Math.min(ring * ringMeters, maxDistance));
+                visit(span, previous, collector);
+                previous = span;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, Comparator.comparingDouble(Hit::distance));
+        return Arrays.asList(hits);
+    }
+
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void removeInternal(long id) {
+        Long key = cellOf.remove(id);
+        if (key == null) {
+            return;
+        }
+        Cell cell = cells.get(key);
+        if (cell != null && cell.remove(id) && cell.size == 0) {
+            cells.remove(key);
+        }
+    }
+
+    // 涵蓋與查詢點距離 reach 公尺以內所有位置的格子範圍
+    // 列由緯度差計算；欄由球冠的經度差 asin(sin(角距離) / cos(緯度)) 計算，範圍包含極點時為所有欄
+    private Span span(double latitude, double longitude, double reach) {
+        double angle = reach / EARTH_RADIUS_METERS;
+        double latitudeDelta = Math.toDegrees(angle);
+        int fromRow = row(Math.max(latitude - latitudeDelta, -90));
+        int toRow = row(Math.min(latitude + latitudeDelta, 90));
+
+        double latitudeRadians = Math.toRadians(Math.abs(latitude));
+        if (angle < Math.PI / 2 - latitudeRadians) {
+            double longitudeDelta = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(latitudeRadians)));
+            int fromColumn = column(longitude - longitudeDelta);
+            int toColumn = column(longitude + longitudeDelta);
+            if (toColumn - fromColumn + 1 < columns) {
+                return new Span(reach, fromRow, toRow, fromColumn, toColumn, false);
+            }
+        }
+        int fromColumn = column(longitude) - columns / 2;
+        return new Span(reach, fromRow, toRow, fromColumn, fromColumn + columns - 1, true);
+    }
+
+    // 走訪 span 內、不在 previous 內的格子；非全欄的範圍彼此以同一中心向外擴展，必定包含 previous
+    private void visit(Span span, Span previous, Consumer<Cell> visitor) {
+        for (int r = span.fromRow(); r <= span.toRow(); r++) {
+            if (previous == null || r < previous.fromRow() || r > previous.toRow()) {
+                visitColumns(r, span.fromColumn(), span.toColumn(), visitor);
+            } else if (!previous.allColumns()) {
+                if (span.allColumns()) {
+                    visitColumns(r, previous.toColumn() + 1, previous.fromColumn() + columns - 1, visitor);
+                } else {
+                    visitColumns(r, span.fromColumn(), previous.fromColumn() - 1, visitor);
+                    visitColumns(r, previous.toColumn() + 1, span.toColumn(), visitor);
+                }
+            }
+        }
+    }
+
+    private void visitColumns(int row, int fromColumn, int toColumn, Consumer<Cell> visitor) {
+        for (int c = fromColumn; c <= toColumn; c++) {
+            Cell cell = cells.get(key(row, wrapColumn(c)));
+            if (cell != null) {
+                visitor.accept(cell);
+            }
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    // 經度 180 與 -180 為同一欄
+    private int wrapColumn(int column) {
+        return Math.floorMod(column - minColumn, columns) + minColumn;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return key(row(latitude), wrapColumn(column(longitude)));
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    public record Hit(long id, double distance) {
+    }
+
+    private record Span(double reach, int fromRow, int toRow, int fromColumn, int toColumn, boolean allColumns) {
+    }
+
+    private static final class Cell {
+        private long[] ids = new long[4];
+        private double[] latitudes = new double[4];
+        private double[] longitudes = new double[4];
+        private String[] categories = new String[4];
+        private int size;
+
+        private void add(long id, double latitude, double longitude, String category) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+                categories = Arrays.copyOf(categories, size * 2);
+            }
+            ids[size] = id;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            categories[size] = category;
+            size++;
+        }
+
+        // 以最後一筆補上被移除的位置，格子內不需維持順序
+        private boolean remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    latitudes[i] = latitudes[size];
+                    longitudes[i] = longitudes[size];
+                    categories[i] = categories[size];
+                    categories[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void collect(double latitude, double longitude, double maxDistance, String category,
+                             Consumer<Hit> sink) {
+            for (int i = 0; i < size; i++) {
+                if (category != null && !category.equals(categories[i])) {
+                    continue;
+                }
+                double distance = distance(latitude, longitude, latitudes[i], longitudes[i]);
+                if (distance <= maxDistance) {
+                    sink.accept(new Hit(ids[i], distance));
+                }
+            }
+        }
+    }
+}
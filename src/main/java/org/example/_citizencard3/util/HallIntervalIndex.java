@@ -0,0 +1,78 @@
+package org.example._citizencard3.util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// 依影廳分組的時間區間索引，區間為 [start, end)，前一場結束時間等於下一場開始時間不算重疊
+// 每個影廳以開始時間排序，並記錄曾放入的最長區間長度；與 [start, end) 重疊的區間開始時間必定落在
+// [start - 最長長度, end) 內，查詢只需走訪這段，影廳內場次本身不重疊時為 O(log n)
+// 非執行緒安全，由呼叫端加鎖
+public class HallIntervalIndex {
+
+    private static final Comparator<Interval> ORDER = Comparator
+            .comparing(Interval::start)
+            .thenComparingLong(Interval::id);
+
+    private final Map<String, Hall> halls = new HashMap<>();
+    private final Map<Long, Interval> byId = new HashMap<>();
+
+    // 新增或更新
+    public void put(Interval interval) {
+        remove(interval.id());
+        halls.computeIfAbsent(interval.hall(), hall -> new Hall()).add(interval);
+        byId.put(interval.id(), interval);
+    }
+
+    public void remove(long id) {
+        Interval previous = byId.remove(id);
+        if (previous != null) {
+            Hall hall = halls.get(previous.hall());
+            hall.intervals.remove(previous);
+            if (hall.intervals.isEmpty()) {
+                halls.remove(previous.hall());
+            }
+        }
+    }
+
+    // 與 [start, end) 重疊、且不在 ignoredIds 內的第一個區間，沒有時回傳 null
+    public Interval findOverlap(String hall, LocalDateTime start, LocalDateTime end, Set<Long> ignoredIds) {
+        Hall intervals = halls.get(hall);
+        if (intervals == null) {
+            return null;
+        }
+        Interval from = new Interval(Long.MIN_VALUE, hall, start.minus(intervals.maxLength), start);
+        Interval to = new Interval(Long.MIN_VALUE, hall, end, end);
+        for (Interval interval : intervals.intervals.subSet(from, true, to, false)) {
+            if (interval.end().isAfter(start) && !ignoredIds.contains(interval.id())) {
+                return interval;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public record Interval(long id, String hall, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static final class Hall {
+        private final TreeSet<Interval> intervals = new TreeSet<>(ORDER);
+        // 只增不減，移除長區間後查詢範圍稍大但結果仍正確
+        private Duration maxLength = Duration.ZERO;
+
+        private void add(Interval interval) {
+            intervals.add(interval);
+            Duration length = Duration.between(interval.start(), interval.end());
+            if (length.compareTo(maxLength) > 0) {
+                maxLength = length;
+            }
+        }
+    }
+}
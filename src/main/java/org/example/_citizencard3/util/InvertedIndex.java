@@ -0,0 +1,238 @@
+package org.example._citizencard3.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 記憶體內的倒排索引：每個詞對應依文件ID排序的 posting 陣列，查詢時從最短的 posting 開始取交集
+// 查詢成本取決於最少出現的查詢詞，不會隨文件總數線性成長
+public class InvertedIndex {
+
+    // 英數字查詢的最後一個詞以前綴比對時，最多展開的詞數
+    private static final int MAX_PREFIX_EXPANSION = 64;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    // 詞頻飽和參數 (BM25 k1)
+    private static final float K1 = 1.2f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, String[]> documents = new HashMap<>();
+
+    // 新增或取代文件；fields 為各欄位文字與權重
+    public void put(long id, List<Field> fields) {
+        Map<String, Float> weights = new HashMap<>();
+        for (Field field : fields) {
+            for (String token : TextTokenizer.tokenizeForIndex(field.text())) {
+                weights.merge(token, field.weight(), Float::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (weights.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), key -> new Postings()).put(id, entry.getValue());
+            }
+            documents.put(id, weights.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 所有查詢詞都必須出現(與 LIKE 相同的 AND 語意)，依相關度由高到低排序後分頁
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (tokens.isEmpty() || limit <= 0 || offset < 0) {
+            return SearchResult.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            List<Postings> postings = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean prefix = i == tokens.size() - 1 && isPrefixCandidate(token);
+                Postings termPostings = prefix ? prefixPostings(token) : terms.get(token);
+                if (termPostings == null || termPostings.size == 0) {
+                    return SearchResult.EMPTY;
+                }
+                postings.add(termPostings);
+            }
+            postings.sort(Comparator.comparingInt(p -> p.size));
+
+            float[] idf = new float[postings.size()];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = (float) Math.log(1 + (double) documentCount / postings.get(i).size);
+            }
+
+            int k = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<Hit> top = new PriorityQueue<>(Hit.WORST_FIRST);
+            Postings smallest = postings.get(0);
+            int total = 0;
+            for (int n = 0; n < smallest.size; n++) {
+                long id = smallest.ids[n];
+                float score = saturate(smallest.weights[n]) * idf[0];
+                boolean matched = true;
+                for (int i = 1; i < postings.size() && matched; i++) {
+                    int position = postings.get(i).indexOf(id);
+                    if (position < 0) {
+                        matched = false;
+                    } else {
+                        score += saturate(postings.get(i).weights[position]) * idf[i];
+                    }
+                }
+                if (!matched) {
+                    continue;
+                }
+                total++;
+                Hit hit = new Hit(id, score);
+                if (top.size() < k) {
+                    top.add(hit);
+                } else if (Hit.WORST_FIRST.compare(hit, top.peek()) > 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+
+            Hit[] ranked = top.toArray(new Hit[0]);
+            Arrays.sort(ranked, Hit.WORST_FIRST.reversed());
+            List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, ranked.length - offset)));
+            for (int i = offset; i < ranked.length; i++) {
+                ids.add(ranked[i].id());
+            }
+            return new SearchResult(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(long id) {
+        String[] previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    private boolean isPrefixCandidate(String token) {
+        return token.length() >= MIN_PREFIX_LENGTH && !TextTokenizer.isCjk(token.codePointAt(0));
+    }
+
+    // 合併以 prefix 開頭的詞，同一文件取最高權重
+    private Postings prefixPostings(String prefix) {
+        NavigableMap<String, Postings> matches = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matches.size() == 1) {
+            return matches.firstEntry().getValue();
+        }
+        Map<Long, Float> merged = new HashMap<>();
+        int expanded = 0;
+        for (Map.Entry<String, Postings> entry : matches.entrySet()) {
+            // 完全相符的詞一定納入，其餘依字典順序展開到上限為止
+            if (expanded++ >= MAX_PREFIX_EXPANSION && !entry.getKey().equals(prefix)) {
+                continue;
+            }
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                merged.merge(postings.ids[i], postings.weights[i], Math::max);
+            }
+        }
+        Postings result = new Postings();
+        merged.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private static float saturate(float weight) {
+        return weight * (K1 + 1) / (weight + K1);
+    }
+
+    public record Field(String text, float weight) {
+    }
+
+    public record SearchResult(List<Long> ids, long total) {
+        static final SearchResult EMPTY = new SearchResult(List.of(), 0);
+    }
+
+    private record Hit(long id, float score) {
+        // 分數低者在前；同分時ID較小者視為較差，讓新資料排在前面
+        static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score).thenComparingLong(Hit::id);
+    }
+
+    // 依文件ID排序的 posting；啟動時依ID遞增載入只需附加在尾端
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        private void put(long id, float weight) {
+            int position = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                weights[position] = weight;
+                return;
+            }
+            int insertAt = -(position + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            weights[insertAt] = weight;
+            size++;
+        }
+
+        private boolean remove(long id) {
+            int position = indexOf(id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private int indexOf(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position >= 0 ? position : -1;
+        }
+    }
+}
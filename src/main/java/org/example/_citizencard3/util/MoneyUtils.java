@@ -0,0 +1,33 @@
+package org.example._citizencard3.util;
+
+import org.example._citizencard3.exception.CustomException;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+
+// 金額與最小貨幣單位(分)之間的轉換，避免以浮點數累加餘額
+public final class MoneyUtils {
+
+    public static final int MINOR_UNIT_SCALE = 2;
+
+    private MoneyUtils() {
+    }
+
+    public static long toMinorUnits(Double amount) {
+        if (amount == null || amount.isNaN() || amount.isInfinite()) {
+            throw new CustomException("金額格式錯誤", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return BigDecimal.valueOf(amount).movePointRight(MINOR_UNIT_SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new CustomException("金額最多只能有兩位小數", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    public static Double toAmount(Long minorUnits) {
+        if (minorUnits == null) {
+            return null;
+        }
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE).doubleValue();
+    }
+}
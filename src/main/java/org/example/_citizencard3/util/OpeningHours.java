@@ -0,0 +1,253 @@
+package org.example._citizencard3.util;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 營業時間文字解析為一週 672 個 15 分鐘時段的位元遮罩(11 個 long)，第 0 個時段為週一 00:00~00:15
+// 支援的寫法：「週一至週五 10:00-21:00」「週六、週日 11:00~22:00」「每日 11:00-14:00, 17:00-21:00」
+// 「Mon-Fri 09:00-18:00」「24小時」「週一公休」「11:00-21:00(14:00-17:00休息)」
+// 沒有指定星期的時段套用到每天，跨午夜的時段延續到隔天凌晨
+// 開始時間向後、結束時間向前取整到 15 分鐘，標示為營業的時段整段都在營業時間內
+// 找不到任何營業時段時回傳 null，表示無法判斷
+public final class OpeningHours {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int SLOTS_PER_WEEK = 7 * SLOTS_PER_DAY;
+    public static final int WORDS = (SLOTS_PER_WEEK + 63) / 64;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int ALL_DAYS = 0b1111111;
+    private static final int WEEKDAYS = 0b0011111;
+    private static final int WEEKEND = 0b1100000;
+
+    private static final String TO = "\\s*(?:-|~|–|—|〜|至|到|to)\\s*";
+    private static final String ZH_PREFIX = "(?:週|周|星期|禮拜|礼拜)";
+    private static final String ZH_DAY = "[一二三四五六日天]";
+    private static final String EN_DAY = "\\b(?:mon|tue|wed|thu|fri|sat|sun)[a-z]*\\.?";
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "(?<allDay>24\\s*(?:小時|小时|hours|hrs|hr|h)|24/7|全天)"
+                    + "|(?<time>(?<sh>\\d{1,2})(?::(?<sm>\\d{2}))?" + TO + "(?<eh>\\d{1,2})(?::(?<em>\\d{2}))?)"
+                    + "|(?<zhRange>" + ZH_PREFIX + ZH_DAY + TO + ZH_PREFIX + "?" + ZH_DAY + ")"
+                    + "|(?<zhDay>" + ZH_PREFIX + ZH_DAY + ")"
+                    + "|(?<enRange>" + EN_DAY + TO + EN_DAY + ")"
+                    + "|(?<enDay>" + EN_DAY + ")"
+                    + "|(?<everyDay>每日|每天|天天|全年|daily|every\\s*day)"
+                    + "|(?<weekdays>平日|weekdays?)"
+                    + "|(?<weekend>假日|週末|周末|weekends?)"
+                    + "|(?<closed>公休|店休|休息|休假|closed)");
+
+    private static final Pattern ZH_DAY_NAME = Pattern.compile(ZH_DAY);
+    private static final Pattern EN_DAY_NAME = Pattern.compile("mon|tue|wed|thu|fri|sat|sun");
+
+    private OpeningHours() {
+    }
+
+    public static long[] parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        List<Interval> intervals = new ArrayList<>();
+        int closedDays = 0;
+        // 目前套用的星期；explicit 為 false 時表示沒有指定，時段套用到每天
+        int days = 0;
+        boolean explicit = false;
+        // 目前的星期已經套用過時段，下一個星期寫法開始新的一組
+        boolean used = false;
+        boolean lastWasTime = false;
+
+        Matcher matcher = TOKEN.matcher(normalized);
+        while (matcher.find()) {
+            int tokenDays = daysOf(matcher);
+            if (tokenDays != 0) {
+                if (used) {
+                    days = 0;
+                    used = false;
+                }
+                days |= tokenDays;
+                explicit = true;
+                lastWasTime = false;
+            } else if (matcher.group("allDay") != null || matcher.group("time") != null) {
+                int start = 0;
+                int end = MINUTES_PER_DAY;
+                if (matcher.group("time") != null) {
+                    start = minutes(matcher.group("sh"), matcher.group("sm"));
+                    end = minutes(matcher.group("eh"), matcher.group("em"));
+                    if (start < 0 || end < 0) {
+                        // 不是時間(例如日期)，略過
+                        continue;
+                    }
+                }
+                intervals.add(new Interval(explicit ? days : ALL_DAYS, start, end));
+                used = true;
+                lastWasTime = true;
+            } else if (matcher.group("closed") != null) {
+                if (lastWasTime) {
+                    // 「14:00-17:00休息」：前一個時段為休息時間
+                    intervals.get(intervals.size() - 1).open = false;
+                } else if (explicit && !used) {
+                    // 「週一公休」：之後沒有指定星期的時段套用到其他天
+                    closedDays |= days;
+                    days = 0;
+                    explicit = false;
+                    used = false;
+                }
+                lastWasTime = false;
+            }
+        }
+
+        long[] mask = new long[WORDS];
+        boolean any = false;
+        for (Interval interval : intervals) {
+            if (interval.open) {
+                any |= apply(mask, interval.days & ~closedDays, interval.start, interval.end, true);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        for (Interval interval : intervals) {
+            if (!interval.open) {
+                apply(mask, interval.days & ~closedDays, interval.start, interval.end, false);
+            }
+        }
+        return mask;
+    }
+
+    // 時間所在的時段，以時間本身的星期與時刻計算，不做時區轉換
+    public static int slotOf(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * SLOTS_PER_DAY
+                + (time.getHour() * 60 + time.getMinute()) / SLOT_MINUTES;
+    }
+
+    public static boolean isOpen(long[] mask, int slot) {
+        return mask != null && (mask[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    // 營業時段只標示完整落在區間內的時段，休息時段則清除所有重疊的時段
+    private static boolean apply(long[] mask, int days, int start, int end, boolean open) {
+        if (end <= start) {
+            // 跨午夜；開始與結束相同(例如 00:00-00:00)視為全天
+            end = end == start ? start + MINUTES_PER_DAY : end + MINUTES_PER_DAY;
+        }
+        int first = open ? ceilDiv(start, SLOT_MINUTES) : start / SLOT_MINUTES;
+        int last = open ? end / SLOT_MINUTES : ceilDiv(end, SLOT_MINUTES);
+        boolean any = false;
+        for (int day = 0; day < 7; day++) {
+            if ((days & (1 << day)) == 0) {
+                continue;
+            }
+            for (int slot = first; slot < last; slot++) {
+                int weekSlot = (day * SLOTS_PER_DAY + slot) % SLOTS_PER_WEEK;
+                if (open) {
+                    mask[weekSlot >>> 6] |= 1L << weekSlot;
+                } else {
+                    mask[weekSlot >>> 6] &= ~(1L << weekSlot);
+                }
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private static int daysOf(Matcher matcher) {
+        if (matcher.group("zhRange") != null) {
+            return range(ZH_DAY_NAME, matcher.group("zhRange"), OpeningHours::zhDay);
+        }
+        if (matcher.group("zhDay") != null) {
+            return 1 << zhDay(matcher.group("zhDay").substring(matcher.group("zhDay").length() - 1));
+        }
+        if (matcher.group("enRange") != null) {
+            return range(EN_DAY_NAME, matcher.group("enRange"), OpeningHours::enDay);
+        }
+        if (matcher.group("enDay") != null) {
+            return 1 << enDay(matcher.group("enDay").substring(0, 3));
+        }
+        if (matcher.group("everyDay") != null) {
+            return ALL_DAYS;
+        }
+        if (matcher.group("weekdays") != null) {
+            return WEEKDAYS;
+        }
+        if (matcher.group("weekend") != null) {
+            return WEEKEND;
+        }
+        return 0;
+    }
+
+    // 「週五至週一」這類跨週的範圍繞回週一
+    private static int range(Pattern name, String token, ToIntFunction<String> dayOf) {
+        Matcher matcher = name.matcher(token);
+        matcher.find();
+        int from = dayOf.applyAsInt(matcher.group());
+        matcher.find();
+        int to = dayOf.applyAsInt(matcher.group());
+        int days = 0;
+        for (int day = from; ; day = (day + 1) % 7) {
+            days |= 1 << day;
+            if (day == to) {
+                return days;
+            }
+        }
+    }
+
+    private static int zhDay(String name) {
+        return switch (name) {
+            case "一" -> 0;
+            case "二" -> 1;
+            case "三" -> 2;
+            case "四" -> 3;
+            case "五" -> 4;
+            case "六" -> 5;
+            default -> 6;
+        };
+    }
+
+    private static int enDay(String name) {
+        return switch (name) {
+            case "mon" -> 0;
+            case "tue" -> 1;
+            case "wed" -> 2;
+            case "thu" -> 3;
+            case "fri" -> 4;
+            case "sat" -> 5;
+            default -> 6;
+        };
+    }
+
+    // 不合法的時間回傳 -1
+    private static int minutes(String hour, String minute) {
+        int h = Integer.parseInt(hour);
+        int m = minute == null ? 0 : Integer.parseInt(minute);
+        if (h > 24 || m > 59 || (h == 24 && m > 0)) {
+            return -1;
+        }
+        return h * 60 + m;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static final class Interval {
+        private final int days;
+        private final int start;
+        private final int end;
+        private boolean open = true;
+
+        private Interval(int days, int start, int end) {
+            this.days = days;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
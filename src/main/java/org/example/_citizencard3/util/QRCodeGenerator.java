@@ -1,67 +1,64 @@
 package org.example._citizencard3.util;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.dto.request.QRCodeValidateRequest.QRCodeType;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @Component
 public class QRCodeGenerator {
 
-    private static final int QR_CODE_SIZE = 200;
-    private static final String IMAGE_FORMAT = "PNG";
+    private static final Map<EncodeHintType, Object> ENCODE_HINTS =
+            Map.of(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+
+    private final QRCodePayloadCodec payloadCodec;
+    private final QRCodeConfig qrCodeConfig;
+    private final ErrorCorrectionLevel errorCorrectionLevel;
+
+    public QRCodeGenerator(QRCodePayloadCodec payloadCodec, QRCodeConfig qrCodeConfig) {
+        this.payloadCodec = payloadCodec;
+        this.qrCodeConfig = qrCodeConfig;
+        this.errorCorrectionLevel = ErrorCorrectionLevel.valueOf(qrCodeConfig.getErrorCorrection());
+    }
 
     public String generateQRCodeData(String prefix, Long id, LocalDateTime validUntil) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
-        return String.format("%s-%s-%06d-%s-%s",
-                prefix,
-                timestamp,
-                id,
-                uniqueId,
-                validUntil.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        return payloadCodec.encode(typeOf(prefix), id, validUntil);
     }
 
+    // Base64 內嵌圖片，與 /api/qrcode/image 回傳的 PNG 相同
     public String generateQRCodeImage(String qrCodeData) throws IOException {
         try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 1);
-
-            BitMatrix bitMatrix = qrCodeWriter.encode(
-                    qrCodeData,
-                    BarcodeFormat.QR_CODE,
-                    QR_CODE_SIZE,
-                    QR_CODE_SIZE,
-                    hints
-            );
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, IMAGE_FORMAT, outputStream);
-            byte[] qrCodeBytes = outputStream.toByteArray();
-
-            return Base64.getEncoder().encodeToString(qrCodeBytes);
+            return Base64.getEncoder().encodeToString(renderPng(qrCodeData));
         } catch (WriterException e) {
             throw new IOException("QR碼生成失敗", e);
         }
     }
 
+    // QR碼圖片唯一的產生路徑，模組大小、留白與錯誤修正等級皆依 QRCodeConfig
+    public byte[] renderPng(String qrCodeData) throws WriterException {
+        return QRCodePngEncoder.encode(
+                Encoder.encode(qrCodeData, errorCorrectionLevel, ENCODE_HINTS).getMatrix(),
+                qrCodeConfig.getModuleSize(),
+                qrCodeConfig.getQuietZone());
+    }
+
     public boolean validateQRCodeData(String qrCodeData, String prefix) {
+        QRCodePayloadCodec.Verification verification = payloadCodec.verify(qrCodeData);
+        if (verification.isSigned()) {
+            return verification.isValidFor(typeOf(prefix), null, LocalDateTime.now());
+        }
+
+        // 舊格式QR碼
         try {
             String[] parts = qrCodeData.split("-");
             if (parts.length != 5) {
@@ -94,6 +91,11 @@ public class QRCodeGenerator {
     }
 
     public String extractIdFromQRCode(String qrCodeData) {
+        QRCodePayloadCodec.Verification verification = payloadCodec.verify(qrCodeData);
+        if (verification.isSigned()) {
+            return verification.isValid() ? String.valueOf(verification.id()) : null;
+        }
+
         try {
             String[] parts = qrCodeData.split("-");
             if (parts.length >= 3) {
@@ -104,4 +106,12 @@ public class QRCodeGenerator {
             return null;
         }
     }
+
+    private QRCodeType typeOf(String prefix) {
+        return switch (prefix) {
+            case "TIX" -> QRCodeType.MOVIE_TICKET;
+            case "CPN" -> QRCodeType.DISCOUNT_COUPON;
+            default -> throw new IllegalArgumentException("未知的QR碼前綴: " + prefix);
+        };
+    }
 }
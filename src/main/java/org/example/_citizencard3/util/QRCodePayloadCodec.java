@@ -0,0 +1,204 @@
+package org.example._citizencard3.util;
+
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.dto.request.QRCodeValidateRequest.QRCodeType;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+// 自帶簽章的QR碼內容：版本、類型、ID、到期時間、亂數與截斷的 HMAC-SHA256 標籤，以 Base32 編碼
+// Base32 只含大寫英數字，可使用QR碼的英數模式；驗證只需計算 HMAC，不需查詢資料庫
+@Component
+public class QRCodePayloadCodec {
+
+    private static final int VERSION = 1;
+    // 版本(1) + 類型(1) + ID(8) + 到期時間秒數(4) + 亂數(4)
+    private static final int BODY_LENGTH = 18;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".toCharArray();
+    private static final byte[] DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE_TABLE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final int signatureLength;
+    private final int payloadLength;
+    private final int encodedLength;
+    private final ThreadLocal<Mac> mac;
+    private final SecureRandom random = new SecureRandom();
+
+    public QRCodePayloadCodec(QRCodeConfig qrCodeConfig) {
+        this.signatureLength = qrCodeConfig.getSignatureLength();
+        if (signatureLength < 8 || signatureLength > 32) {
+            throw new IllegalArgumentException("qrcode.signature-length must be between 8 and 32");
+        }
+        this.payloadLength = BODY_LENGTH + signatureLength;
+        this.encodedLength = (payloadLength * 8 + 4) / 5;
+        SecretKeySpec key = new SecretKeySpec(
+                qrCodeConfig.getSigningSecret().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("無法初始化QR碼簽章", e);
+            }
+        });
+    }
+
+    public String encode(QRCodeType type, long id, LocalDateTime validUntil) {
+        byte[] payload = new byte[payloadLength];
+        payload[0] = VERSION;
+        payload[1] = (byte) (type.ordinal() + 1);
+        writeLong(payload, 2, id);
+        writeInt(payload, 10, (int) validUntil.atZone(ZoneId.systemDefault()).toEpochSecond());
+        writeInt(payload, 14, random.nextInt());
+        System.arraycopy(sign(payload), 0, payload, BODY_LENGTH, signatureLength);
+        return toBase32(payload);
+    }
+
+    // 舊格式(含 '-')或長度不符時回傳 MALFORMED，呼叫端可改走資料庫驗證
+    public Verification verify(String qrCodeData) {
+        if (qrCodeData == null || qrCodeData.length() != encodedLength) {
+            return Verification.MALFORMED;
+        }
+        byte[] payload = fromBase32(qrCodeData);
+        if (payload == null || payload[0] != VERSION) {
+            return Verification.MALFORMED;
+        }
+        int typeCode = payload[1] - 1;
+        if (typeCode < 0 || typeCode >= QRCodeType.values().length) {
+            return Verification.INVALID;
+        }
+
+        byte[] expected = sign(payload);
+        if (!MessageDigest.isEqual(
+                Arrays.copyOf(expected, signatureLength),
+                Arrays.copyOfRange(payload, BODY_LENGTH, payloadLength))) {
+            return Verification.INVALID;
+        }
+
+        long expiresAt = Integer.toUnsignedLong(readInt(payload, 10));
+        LocalDateTime validUntil = LocalDateTime.ofInstant(Instant.ofEpochSecond(expiresAt), ZoneId.systemDefault());
+        return new Verification(Status.VALID, QRCodeType.values()[typeCode], readLong(payload, 2), validUntil);
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac instance = mac.get();
+        instance.update(payload, 0, BODY_LENGTH);
+        return instance.doFinal();
+    }
+
+    private String toBase32(byte[] data) {
+        char[] chars = new char[encodedLength];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+        for (byte value : data) {
+            buffer = (buffer << 8) | (value & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                chars[index++] = ALPHABET[(buffer >>> (bits - 5)) & 31];
+                bits -= 5;
+            }
+        }
+        if (bits > 0) {
+            chars[index] = ALPHABET[(buffer << (5 - bits)) & 31];
+        }
+        return new String(chars);
+    }
+
+    private byte[] fromBase32(String text) {
+        byte[] data = new byte[payloadLength];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                return null;
+            }
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                if (index == data.length) {
+                    return null;
+                }
+                data[index++] = (byte) (buffer >>> (bits - 8));
+                bits -= 8;
+            }
+        }
+        // 末端補齊的位元必須為 0，確保每個內容只有一種編碼
+        if (index != data.length || (buffer & ((1 << bits) - 1)) != 0) {
+            return null;
+        }
+        return data;
+    }
+
+    private static void writeLong(byte[] target, int offset, long value) {
+        writeInt(target, offset, (int) (value >>> 32));
+        writeInt(target, offset + 4, (int) value);
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static long readLong(byte[] source, int offset) {
+        return ((long) readInt(source, offset) << 32) | Integer.toUnsignedLong(readInt(source, offset + 4));
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return ((source[offset] & 0xff) << 24) | ((source[offset + 1] & 0xff) << 16)
+                | ((source[offset + 2] & 0xff) << 8) | (source[offset + 3] & 0xff);
+    }
+
+    public enum Status {
+        VALID,      // 簽章正確
+        INVALID,    // 格式正確但簽章或類型錯誤 (偽造或竄改)
+        MALFORMED   // 不是簽章格式 (舊格式QR碼)
+    }
+
+    public record Verification(Status status, QRCodeType type, Long id, LocalDateTime validUntil) {
+
+        static final Verification MALFORMED = new Verification(Status.MALFORMED, null, null, null);
+        static final Verification INVALID = new Verification(Status.INVALID, null, null, null);
+
+        public boolean isSigned() {
+            return status != Status.MALFORMED;
+        }
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+
+        public boolean isExpiredAt(LocalDateTime time) {
+            return !validUntil.isAfter(time);
+        }
+
+        // 簽章正確、類型與ID相符且在指定時間尚未過期
+        public boolean isValidFor(QRCodeType expectedType, Long expectedId, LocalDateTime time) {
+            return isValid() && type == expectedType
+                    && (expectedId == null || expectedId.equals(id))
+                    && !isExpiredAt(time);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example._citizencard3.util;
+
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// 將 QR 碼模組矩陣直接編碼為 1 位元灰階 PNG，不經過 BufferedImage 與 ImageIO
+// 壓縮器、CRC 與暫存緩衝區以執行緒為單位重複使用，每次只配置最後輸出的 byte[]
+public final class QRCodePngEncoder {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private QRCodePngEncoder() {
+    }
+
+    public static byte[] encode(ByteMatrix matrix, int moduleSize, int quietZone) {
+        int modules = matrix.getWidth() + quietZone * 2;
+        int size = modules * moduleSize;
+        int rowBytes = (size + 7) >>> 3;
+        int stride = rowBytes + 1;
+
+        Buffers buffers = BUFFERS.get();
+        byte[] raw = buffers.raw(stride * size);
+        int position = 0;
+        for (int moduleY = 0; moduleY < modules; moduleY++) {
+            int rowStart = position;
+            // 每列開頭為濾波類型 0，像素預設為白色(位元 1)
+            raw[position] = 0;
+            Arrays.fill(raw, position + 1, position + stride, (byte) 0xff);
+            int y = moduleY - quietZone;
+            if (y >= 0 && y < matrix.getHeight()) {
+                for (int x = 0; x < matrix.getWidth(); x++) {
+                    if (matrix.get(x, y) == 1) {
+                        clearPixels(raw, rowStart + 1, (x + quietZone) * moduleSize, moduleSize);
+                    }
+                }
+            }
+            position += stride;
+            // 同一模組列的像素列完全相同，直接複製
+            for (int repeat = 1; repeat < moduleSize; repeat++) {
+                System.arraycopy(raw, rowStart, raw, position, stride);
+                position += stride;
+            }
+        }
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, position);
+        deflater.finish();
+        byte[] compressed = buffers.compressed(position / 4 + 64);
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = buffers.growCompressed();
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        byte[] png = new byte[PNG_SIGNATURE.length + 25 + 12 + compressedLength + 12];
+        System.arraycopy(PNG_SIGNATURE, 0, png, 0, PNG_SIGNATURE.length);
+        int offset = PNG_SIGNATURE.length;
+
+        byte[] header = buffers.header;
+        writeInt(header, 0, size);
+        writeInt(header, 4, size);
+        header[8] = 1;  // 位元深度
+        header[9] = 0;  // 灰階
+        header[10] = 0; // deflate 壓縮
+        header[11] = 0; // 標準濾波
+        header[12] = 0; // 不交錯
+        offset = writeChunk(png, offset, IHDR, header, 13, buffers.crc);
+        offset = writeChunk(png, offset, IDAT, compressed, compressedLength, buffers.crc);
+        writeChunk(png, offset, IEND, header, 0, buffers.crc);
+        return png;
+    }
+
+    private static void clearPixels(byte[] row, int rowOffset, int from, int count) {
+        for (int pixel = from; pixel < from + count; pixel++) {
+            row[rowOffset + (pixel >>> 3)] &= (byte) ~(0x80 >>> (pixel & 7));
+        }
+    }
+
+    private static int writeChunk(byte[] target, int offset, byte[] type, byte[] data, int length, CRC32 crc) {
+        writeInt(target, offset, length);
+        System.arraycopy(type, 0, target, offset + 4, 4);
+        System.arraycopy(data, 0, target, offset + 8, length);
+        crc.reset();
+        crc.update(target, offset + 4, length + 4);
+        writeInt(target, offset + 8 + length, (int) crc.getValue());
+        return offset + 12 + length;
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static final class Buffers {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[13];
+        private byte[] raw = new byte[0];
+        private byte[] compressed = new byte[0];
+
+        private byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        private byte[] compressed(int length) {
+            if (compressed.length < length) {
+                compressed = new byte[length];
+            }
+            return compressed;
+        }
+
+        private byte[] growCompressed() {
+            compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            return compressed;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example._citizencard3.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// 可整份重建、也可增量更新的記憶體索引
+// 重建期間的異動先暫存，重建完成後套用到新索引再換上，避免被較舊的快照覆蓋；同時最多一個重建
+// 索引本身非執行緒安全時，所有異動都經由 apply 在同一把鎖內進行
+public class RebuildableIndex<T> {
+
+    private final Object lock = new Object();
+    private final Object rebuildMutex = new Object();
+
+    private volatile T current;
+    private List<Consumer<T>> pendingChanges;
+
+    // 尚未建立完成時為 null
+    public T current() {
+        return current;
+    }
+
+    // builder 拋出例外時保留原本的索引並原樣拋出
+    public T rebuild(Supplier<T> builder) {
+        synchronized (rebuildMutex) {
+            synchronized (lock) {
+                pendingChanges = new ArrayList<>();
+            }
+            try {
+                T rebuilt = builder.get();
+                synchronized (lock) {
+                    pendingChanges.forEach(change -> change.accept(rebuilt));
+                    current = rebuilt;
+                }
+                return rebuilt;
+            } finally {
+                synchronized (lock) {
+                    pendingChanges = null;
+                }
+            }
+        }
+    }
+
+    // 立即套用到目前的索引，重建中時也套用到建立中的新索引
+    public void apply(Consumer<T> change) {
+        synchronized (lock) {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (current != null) {
+                change.accept(current);
+            }
+        }
+    }
+
+    // 在交易內呼叫時於提交後套用，回滾時不套用；沒有交易時立即套用
+    public void applyAfterCommit(Consumer<T> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    // 在同一把鎖內讀取目前的索引(可能為 null)，供檢查後再 apply 的操作使用
+    public <R> R read(Function<T, R> reader) {
+        synchronized (lock) {
+            return reader.apply(current);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example._citizencard3.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 依 key 分段加鎖的總和/筆數累加器，不同 key 的更新大多落在不同分段，不互相等待
+// 同一筆更新的總和與筆數在同一把鎖內累加，drain 取出時兩者一致
+public class StripedSumCount {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    // stripes 會向上取到 2 的次方
+    public StripedSumCount(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    public void add(long key, long sum, long count) {
+        Stripe stripe = stripes[index(key)];
+        synchronized (stripe) {
+            long[] totals = stripe.totals.get(key);
+            if (totals == null) {
+                stripe.totals.put(key, new long[]{sum, count});
+            } else {
+                totals[0] += sum;
+                totals[1] += count;
+            }
+        }
+    }
+
+    // 取出並清空所有累加值
+    public List<Entry> drain() {
+        List<Entry> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Map<Long, long[]> drained;
+            synchronized (stripe) {
+                if (stripe.totals.isEmpty()) {
+                    continue;
+                }
+                drained = stripe.totals;
+                stripe.totals = new HashMap<>();
+            }
+            drained.forEach((key, totals) -> entries.add(new Entry(key, totals[0], totals[1])));
+        }
+        return entries;
+    }
+
+    // 尚未取出的 key 數量
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.totals.size();
+            }
+        }
+        return size;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    public record Entry(long key, long sum, long count) {
+    }
+
+    private static final class Stripe {
+        private Map<Long, long[]> totals = new HashMap<>();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example._citizencard3.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+// 只保留前 capacity 名的排行榜，記憶體與更新成本只和 capacity 有關，與總筆數無關
+// bound 是所有未保留項目中可能的最佳值：被擠出的項目成為新的 bound，分數降到 bound 之後的項目不再追蹤
+// 保留的項目一定排在 bound 之前，所以名次正確；保留數量不足所需筆數且 bound 存在時，呼叫端需以完整資料重建
+// 非執行緒安全，由呼叫端加鎖；放入的值不可再修改
+public class TopKLeaderboard<T> {
+
+    private final int capacity;
+    private final ToLongFunction<T> idFunction;
+    private final Comparator<T> order;
+    private final Map<Long, T> entries = new HashMap<>();
+    private final TreeSet<T> ranking;
+    // null 表示沒有被捨棄過的項目，保留的就是全部
+    private T bound;
+
+    // order 由好到差，相同時再依 ID 排序
+    public TopKLeaderboard(int capacity, ToLongFunction<T> idFunction, Comparator<T> order) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.idFunction = idFunction;
+        this.order = order.thenComparingLong(idFunction);
+        this.ranking = new TreeSet<>(this.order);
+    }
+
+    // 新增或更新
+    public void put(T value) {
+        long id = idFunction.applyAsLong(value);
+        T previous = entries.remove(id);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        if (bound != null && order.compare(value, bound) >= 0) {
+            // 不比 bound 好，不追蹤；bound 仍是所有未保留項目的上限
+            return;
+        }
+        entries.put(id, value);
+        ranking.add(value);
+        if (ranking.size() > capacity) {
+            T evicted = ranking.pollLast();
+            entries.remove(idFunction.applyAsLong(evicted));
+            bound = evicted;
+        }
+    }
+
+    public void remove(long id) {
+        T previous = entries.remove(id);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    // 前 limit 名，O(limit)
+    public List<T> top(int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<T> iterator = ranking.iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    // 保留的項目足以回答前 limit 名
+    public boolean canServe(int limit) {
+        return bound == null || ranking.size() >= limit;
+    }
+
+    public int size() {
+        return ranking.size();
+    }
+}
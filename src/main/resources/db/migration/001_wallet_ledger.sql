@@ -0,0 +1,19 @@
+-- 錢包帳本：餘額改以最小貨幣單位(分)儲存，並新增只增不改的交易日誌
+ALTER TABLE wallets ADD COLUMN balance_minor BIGINT NOT NULL DEFAULT 0;
+
+UPDATE wallets SET balance_minor = ROUND(balance * 100);
+
+ALTER TABLE wallets ADD CONSTRAINT chk_wallets_balance_minor CHECK (balance_minor >= 0);
+
+ALTER TABLE wallets DROP COLUMN balance;
+
+CREATE TABLE wallet_transactions (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    wallet_id BIGINT NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    amount_minor BIGINT NOT NULL,
+    balance_after_minor BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT fk_wallet_transactions_wallet FOREIGN KEY (wallet_id) REFERENCES wallets (id),
+    INDEX idx_wallet_transactions_wallet (wallet_id, id)
+);
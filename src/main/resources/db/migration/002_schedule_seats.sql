@@ -0,0 +1,12 @@
+-- 場次座位：售出座位由座位庫存批次寫入，(schedule_id, seat_number) 唯一避免重複劃位
+CREATE TABLE schedule_seats (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    schedule_id BIGINT NOT NULL,
+    seat_number VARCHAR(10) NOT NULL,
+    holder VARCHAR(100),
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_schedule_seats_seat UNIQUE (schedule_id, seat_number),
+    CONSTRAINT fk_schedule_seats_schedule FOREIGN KEY (schedule_id) REFERENCES schedules (id)
+);
+
+ALTER TABLE movie_tickets ADD CONSTRAINT uk_movie_tickets_schedule_seat UNIQUE (schedule_id, seat_number);
@@ -0,0 +1,4 @@
+-- 閘門驗票以 qr_code_data 進行條件式更新，需唯一索引避免全表掃描
+ALTER TABLE movie_ticket_qrcodes ADD CONSTRAINT uk_movie_ticket_qrcodes_data UNIQUE (qr_code_data);
+
+ALTER TABLE discount_coupon_qrcodes ADD CONSTRAINT uk_discount_coupon_qrcodes_data UNIQUE (qr_code_data);
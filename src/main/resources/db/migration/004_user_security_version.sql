@@ -0,0 +1,2 @@
+-- 使用者安全版本：停用、刪除或變更角色時遞增，令牌中的版本較舊即視為失效
+ALTER TABLE users ADD COLUMN security_version INT NOT NULL DEFAULT 0;
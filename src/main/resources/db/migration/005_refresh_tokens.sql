@@ -0,0 +1,16 @@
+-- 刷新令牌：只儲存 SHA-256 雜湊，同一次登入輪替出的令牌屬於同一個 family
+-- 已使用的令牌保留到過期，用於偵測重複使用；過期項目由排程批次刪除
+CREATE TABLE refresh_tokens (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(64) NOT NULL,
+    family_id VARCHAR(32) NOT NULL,
+    user_id BIGINT NOT NULL,
+    security_version INT NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    used_at DATETIME(6) NULL,
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_refresh_tokens_hash UNIQUE (token_hash),
+    INDEX idx_refresh_tokens_family (family_id),
+    INDEX idx_refresh_tokens_user (user_id),
+    INDEX idx_refresh_tokens_expires (expires_at)
+);
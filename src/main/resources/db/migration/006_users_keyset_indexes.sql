@@ -0,0 +1,4 @@
+-- 管理後台使用者列表：以 (created_at, id) 游標分頁，姓名與電子郵件以前綴搜尋
+CREATE INDEX idx_users_created_at_id ON users (created_at, id);
+
+CREATE INDEX idx_users_name ON users (name);
@@ -0,0 +1,4 @@
+-- 會員總覽依使用者取最近的電影票與優惠券
+CREATE INDEX idx_movie_tickets_user_created ON movie_tickets (user_id, created_at);
+
+CREATE INDEX idx_discount_coupons_user_created ON discount_coupons (user_id, created_at);
@@ -0,0 +1,57 @@
+-- 主鍵改由序列配號：Hibernate 以 pooled-lo 每次向序列取一段 50 個 ID，IDENTITY 無法批次 INSERT，序列可以
+-- 序列起始值需大於現有最大 ID，CREATE SEQUENCE 只接受常數，因此以動態 SQL 建立
+-- 資料表仍保留 AUTO_INCREMENT，但應用程式寫入時一律帶入序列配發的 ID
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM users);
+SET @ddl = CONCAT('CREATE SEQUENCE users_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM wallets);
+SET @ddl = CONCAT('CREATE SEQUENCE wallets_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM movies);
+SET @ddl = CONCAT('CREATE SEQUENCE movies_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM stores);
+SET @ddl = CONCAT('CREATE SEQUENCE stores_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM schedules);
+SET @ddl = CONCAT('CREATE SEQUENCE schedules_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM movie_tickets);
+SET @ddl = CONCAT('CREATE SEQUENCE movie_tickets_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM discount_coupons);
+SET @ddl = CONCAT('CREATE SEQUENCE discount_coupons_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM movie_ticket_qrcodes);
+SET @ddl = CONCAT('CREATE SEQUENCE movie_ticket_qrcodes_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @start_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM discount_coupon_qrcodes);
+SET @ddl = CONCAT('CREATE SEQUENCE discount_coupon_qrcodes_seq START WITH ', @start_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
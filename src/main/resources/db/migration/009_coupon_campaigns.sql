@@ -0,0 +1,28 @@
+-- 優惠券發放活動：一次發給符合條件的全部使用者，以 checkpoint_user_id 記錄已完整提交的進度
+-- 區塊依使用者 ID 順序讀取、並行寫入，checkpoint 只推進到連續完成的區塊；重新啟動時刪除 checkpoint 之後的部分結果再繼續
+CREATE TABLE coupon_campaigns (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(100) NOT NULL,
+    description TEXT NULL,
+    discount_type VARCHAR(20) NOT NULL,
+    discount_value DOUBLE NOT NULL,
+    store_id BIGINT NULL,
+    expiry_date DATETIME(6) NOT NULL,
+    target_role VARCHAR(20) NULL,
+    target_registered_before DATETIME(6) NULL,
+    status VARCHAR(20) NOT NULL,
+    total_users BIGINT NOT NULL DEFAULT 0,
+    issued_count BIGINT NOT NULL DEFAULT 0,
+    checkpoint_user_id BIGINT NOT NULL DEFAULT 0,
+    error_message VARCHAR(500) NULL,
+    created_by BIGINT NULL,
+    started_at DATETIME(6) NULL,
+    finished_at DATETIME(6) NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    INDEX idx_coupon_campaigns_status (status)
+);
+
+ALTER TABLE discount_coupons ADD COLUMN campaign_id BIGINT NULL;
+
+CREATE INDEX idx_discount_coupons_campaign_user ON discount_coupons (campaign_id, user_id);
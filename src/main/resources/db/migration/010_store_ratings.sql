@@ -0,0 +1,19 @@
+-- 商店評分：每位使用者對每間商店一筆評分(1~5)，可修改
+-- stores.rating_sum / rating_count 由評分服務批次累加，rating 為兩者相除的平均值，查詢時不需彙總 store_ratings
+CREATE TABLE store_ratings (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    store_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    score TINYINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_store_ratings_store_user UNIQUE (store_id, user_id),
+    INDEX idx_store_ratings_user (user_id)
+);
+
+ALTER TABLE stores ADD COLUMN rating_sum BIGINT NOT NULL DEFAULT 0;
+
+-- 既有的平均值與評分數換算回總分
+UPDATE stores
+SET rating_count = COALESCE(rating_count, 0),
+    rating_sum = ROUND(COALESCE(rating, 0) * COALESCE(rating_count, 0));
@@ -0,0 +1,11 @@
+-- 商店評分校正：stores 的總分與筆數可由 rating_base_* 加上 store_ratings 彙總重新計算
+-- rating_base_* 為 store_ratings 建立前既有的評分，rating_reconciled_at 之前的評分都已校正過
+ALTER TABLE stores ADD COLUMN rating_base_sum BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE stores ADD COLUMN rating_base_count INT NOT NULL DEFAULT 0;
+ALTER TABLE stores ADD COLUMN rating_reconciled_at DATETIME(6);
+
+UPDATE stores s
+SET rating_base_sum = s.rating_sum - COALESCE((SELECT SUM(r.score) FROM store_ratings r WHERE r.store_id = s.id), 0),
+    rating_base_count = COALESCE(s.rating_count, 0) - (SELECT COUNT(*) FROM store_ratings r WHERE r.store_id = s.id);
+
+CREATE INDEX idx_store_ratings_updated_at ON store_ratings (updated_at);
@@ -0,0 +1,3 @@
+-- 刷新令牌 family 作廢改為標記 revoked_at 而非刪除：換發時只在 family 未被作廢時寫入新令牌，
+-- 與偵測到重複使用同時進行的換發不會讓已作廢的 family 復活；標記的令牌一樣保留到過期後由排程刪除
+ALTER TABLE refresh_tokens ADD COLUMN revoked_at DATETIME(6) NULL;
@@ -0,0 +1,170 @@
+package org.example._citizencard3.benchmark;
+
+import org.example._citizencard3.config.CouponCampaignConfig;
+import org.example._citizencard3.config.QRCodeConfig;
+import org.example._citizencard3.dto.request.CouponCampaignRequest;
+import org.example._citizencard3.dto.request.QRCodeValidateRequest.QRCodeType;
+import org.example._citizencard3.dto.response.CouponCampaignResponse;
+import org.example._citizencard3.model.DiscountCoupon;
+import org.example._citizencard3.service.CouponCampaignService;
+import org.example._citizencard3.service.QRCodeImageService;
+import org.example._citizencard3.util.QRCodeGenerator;
+import org.example._citizencard3.util.QRCodePayloadCodec;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 大量發放優惠券，每張券的平均耗時 (H2 記憶體資料庫)：
+// 逐張發放：原本的做法，每張券各自 INSERT 並立即產生 QR碼 PNG
+// 發放活動：CouponCampaignService 分段讀取使用者，並行 JDBC batch 寫入，QR碼只做簽章編碼
+// 每張券 20 微秒以下即代表單機每秒可發放 50,000 張以上；H2 與發放執行緒共用 CPU，耗時大多在 H2 的索引維護
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CouponCampaignBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int ROW_BY_ROW_COUPONS = 2_000;
+
+    private static final String INSERT_COUPON_SQL = "INSERT INTO discount_coupons (id, user_id, title, "
+            + "discount_type, discount_value, status, expiry_date, created_at, updated_at) "
+            + "VALUES (?, ?, ?, 'FIXED_AMOUNT', 50, 'VALID', ?, ?, ?)";
+    private static final String INSERT_QRCODE_SQL = "INSERT INTO discount_coupon_qrcodes (id, coupon_id, "
+            + "qr_code_data, qr_code_url, valid_until, is_used, created_at, updated_at) "
+            + "VALUES (NEXT VALUE FOR discount_coupon_qrcodes_seq, ?, ?, ?, ?, false, ?, ?)";
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private QRCodePayloadCodec payloadCodec;
+    private QRCodeImageService qrCodeImageService;
+    private CouponCampaignService campaignService;
+
+    @Setup
+    public void setUp() {
+        dataSource = JdbcConnectionPool.create(
+                "jdbc:h2:mem:coupon_campaign;MODE=MariaDB;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(16);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, role VARCHAR(20) NOT NULL, "
+                + "active BOOLEAN NOT NULL, created_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE stores (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE discount_coupons (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "store_id BIGINT, campaign_id BIGINT, title VARCHAR(100) NOT NULL, description TEXT, "
+                + "discount_type VARCHAR(20) NOT NULL, discount_value DOUBLE NOT NULL, status VARCHAR(20) NOT NULL, "
+                + "expiry_date TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_discount_coupons_campaign_user ON discount_coupons (campaign_id, user_id)");
+        jdbcTemplate.execute("CREATE TABLE discount_coupon_qrcodes (id BIGINT PRIMARY KEY, coupon_id BIGINT NOT NULL, "
+                + "qr_code_data VARCHAR(255) NOT NULL UNIQUE, qr_code_url VARCHAR(255) NOT NULL, "
+                + "valid_until TIMESTAMP NOT NULL, is_used BOOLEAN NOT NULL, used_at TIMESTAMP, "
+                + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE coupon_campaigns (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "title VARCHAR(100) NOT NULL, description TEXT, discount_type VARCHAR(20) NOT NULL, "
+                + "discount_value DOUBLE NOT NULL, store_id BIGINT, expiry_date TIMESTAMP NOT NULL, "
+                + "target_role VARCHAR(20), target_registered_before TIMESTAMP, status VARCHAR(20) NOT NULL, "
+                + "total_users BIGINT NOT NULL, issued_count BIGINT NOT NULL, checkpoint_user_id BIGINT NOT NULL, "
+                + "error_message VARCHAR(500), created_by BIGINT, started_at TIMESTAMP, finished_at TIMESTAMP, "
+                + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE SEQUENCE discount_coupons_seq START WITH 1 INCREMENT BY 50");
+        jdbcTemplate.execute("CREATE SEQUENCE discount_coupon_qrcodes_seq START WITH 1 INCREMENT BY 50");
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> users = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "ROLE_USER", true, now});
+            if (users.size() == 1000) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, role, active, created_at) VALUES (?, ?, ?, ?)", users);
+                users.clear();
+            }
+        }
+
+        QRCodeConfig qrCodeConfig = new QRCodeConfig();
+        payloadCodec = new QRCodePayloadCodec(qrCodeConfig);
+        qrCodeImageService = new QRCodeImageService(qrCodeConfig, new QRCodeGenerator(payloadCodec, qrCodeConfig),
+                null, null, "/api");
+        campaignService = new CouponCampaignService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                payloadCodec, qrCodeImageService, new CouponCampaignConfig());
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCoupons() {
+        jdbcTemplate.execute("TRUNCATE TABLE discount_coupon_qrcodes");
+        jdbcTemplate.execute("TRUNCATE TABLE discount_coupons");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        campaignService.shutdown();
+        dataSource.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_BY_ROW_COUPONS)
+    public long rowByRowWithImage() {
+        LocalDateTime expiry = LocalDateTime.now().plusDays(30);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long issued = 0;
+        for (long userId = 1; userId <= ROW_BY_ROW_COUPONS; userId++) {
+            Long couponId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR discount_coupons_seq", Long.class);
+            jdbcTemplate.update(INSERT_COUPON_SQL, couponId, userId, "週年慶優惠券", Timestamp.valueOf(expiry), now, now);
+            String data = payloadCodec.encode(QRCodeType.DISCOUNT_COUPON, couponId, expiry);
+            jdbcTemplate.update(INSERT_QRCODE_SQL, couponId, data, qrCodeImageService.prerender(data),
+                    Timestamp.valueOf(expiry), now, now);
+            issued++;
+        }
+        return issued;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public long campaign() throws InterruptedException {
+        CouponCampaignRequest request = new CouponCampaignRequest();
+        request.setTitle("週年慶優惠券");
+        request.setDiscountType(DiscountCoupon.DiscountType.FIXED_AMOUNT);
+        request.setDiscountValue(50.0);
+        request.setExpiryDate(LocalDateTime.now().plusDays(30));
+        CouponCampaignResponse response = campaignService.startCampaign(request, null);
+        while ("RUNNING".equals(response.getStatus())) {
+            Thread.sleep(5);
+            response = campaignService.getCampaign(response.getId());
+        }
+        if (response.getIssuedCount() != USERS) {
+            throw new IllegalStateException("Campaign ended as " + response.getStatus() + " with "
+                    + response.getIssuedCount() + " coupons: " + response.getErrorMessage());
+        }
+        return response.getIssuedCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CouponCampaignBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
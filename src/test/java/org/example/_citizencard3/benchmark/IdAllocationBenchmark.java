@@ -0,0 +1,210 @@
+package org.example._citizencard3.benchmark;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// 主鍵配號方式對大量 INSERT 的影響 (H2 TCP 伺服器，保留每次往返的成本)：
+// 每次寫入 100,000 張優惠券與 100,000 個 QR 碼
+// IDENTITY：Hibernate 必須逐筆執行 INSERT 取回自動編號，無法批次
+// 序列 pooled-lo：每 50 筆向序列取一次號，依資料表排序後以 batch_size=50 批次寫入 (hibernate.order_inserts)
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class IdAllocationBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_COUPON_SQL = "INSERT INTO discount_coupons (user_id, title, discount_type, "
+            + "discount_value, status, expiry_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_COUPON_WITH_ID_SQL = "INSERT INTO discount_coupons (id, user_id, title, "
+            + "discount_type, discount_value, status, expiry_date, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_QRCODE_SQL = "INSERT INTO discount_coupon_qrcodes (coupon_id, qr_code_data, "
+            + "qr_code_url, valid_until, is_used, created_at, updated_at) VALUES (?, ?, ?, ?, false, ?, ?)";
+    private static final String INSERT_QRCODE_WITH_ID_SQL = "INSERT INTO discount_coupon_qrcodes (id, coupon_id, "
+            + "qr_code_data, qr_code_url, valid_until, is_used, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, false, ?, ?)";
+
+    private Server server;
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        connection = DriverManager.getConnection(
+                "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:id_allocation;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE discount_coupons (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id BIGINT NOT NULL, title VARCHAR(100) NOT NULL, discount_type VARCHAR(20) NOT NULL, "
+                    + "discount_value DOUBLE NOT NULL, status VARCHAR(20) NOT NULL, expiry_date TIMESTAMP NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE discount_coupon_qrcodes (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "coupon_id BIGINT NOT NULL, qr_code_data VARCHAR(255) NOT NULL UNIQUE, "
+                    + "qr_code_url VARCHAR(255) NOT NULL, valid_until TIMESTAMP NOT NULL, is_used BOOLEAN NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE SEQUENCE discount_coupons_seq START WITH 1 INCREMENT BY " + ALLOCATION_SIZE);
+            statement.execute("CREATE SEQUENCE discount_coupon_qrcodes_seq START WITH 1 INCREMENT BY " + ALLOCATION_SIZE);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTables() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE discount_coupon_qrcodes");
+            statement.execute("TRUNCATE TABLE discount_coupons");
+        }
+        connection.commit();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        server.stop();
+    }
+
+    // Hibernate 在 IDENTITY 下的行為：每個實體 persist 時立即 INSERT 並取回產生的主鍵
+    @Benchmark
+    public long identityRowByRow() throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expiry = Timestamp.valueOf(LocalDateTime.now().plusDays(30));
+        long inserted = 0;
+        try (PreparedStatement coupons = connection.prepareStatement(INSERT_COUPON_SQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement qrCodes = connection.prepareStatement(INSERT_QRCODE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bindCoupon(coupons, 1, i, expiry, now);
+                coupons.executeUpdate();
+                long couponId = generatedKey(coupons);
+
+                bindQRCode(qrCodes, 1, couponId, i, expiry, now);
+                qrCodes.executeUpdate();
+                generatedKey(qrCodes);
+                inserted += 2;
+            }
+        }
+        connection.commit();
+        return inserted;
+    }
+
+    // 序列 pooled-lo：主鍵在記憶體中配發，flush 時依資料表分組批次 INSERT
+    @Benchmark
+    public long sequencePooledLoBatched() throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expiry = Timestamp.valueOf(LocalDateTime.now().plusDays(30));
+        PooledLo couponIds = new PooledLo("discount_coupons_seq");
+        PooledLo qrCodeIds = new PooledLo("discount_coupon_qrcodes_seq");
+        long[] batchCouponIds = new long[BATCH_SIZE];
+        long inserted = 0;
+        try (PreparedStatement coupons = connection.prepareStatement(INSERT_COUPON_WITH_ID_SQL);
+             PreparedStatement qrCodes = connection.prepareStatement(INSERT_QRCODE_WITH_ID_SQL)) {
+            for (int start = 0; start < ROWS; start += BATCH_SIZE) {
+                int end = Math.min(ROWS, start + BATCH_SIZE);
+                for (int i = start; i < end; i++) {
+                    long couponId = couponIds.next();
+                    batchCouponIds[i - start] = couponId;
+                    coupons.setLong(1, couponId);
+                    bindCoupon(coupons, 2, i, expiry, now);
+                    coupons.addBatch();
+                }
+                coupons.executeBatch();
+                for (int i = start; i < end; i++) {
+                    qrCodes.setLong(1, qrCodeIds.next());
+                    bindQRCode(qrCodes, 2, batchCouponIds[i - start], i, expiry, now);
+                    qrCodes.addBatch();
+                }
+                qrCodes.executeBatch();
+                inserted += 2L * (end - start);
+            }
+        }
+        connection.commit();
+        return inserted;
+    }
+
+    private static void bindCoupon(PreparedStatement statement, int index, int i, Timestamp expiry, Timestamp now)
+            throws SQLException {
+        statement.setLong(index, i % 1000 + 1);
+        statement.setString(index + 1, "週年慶優惠券");
+        statement.setString(index + 2, "FIXED_AMOUNT");
+        statement.setDouble(index + 3, 50.0);
+        statement.setString(index + 4, "VALID");
+        statement.setTimestamp(index + 5, expiry);
+        statement.setTimestamp(index + 6, now);
+        statement.setTimestamp(index + 7, now);
+    }
+
+    private static void bindQRCode(PreparedStatement statement, int index, long couponId, int i, Timestamp expiry,
+                                   Timestamp now) throws SQLException {
+        statement.setLong(index, couponId);
+        statement.setString(index + 1, "CPN-" + couponId + "-" + i);
+        statement.setString(index + 2, "/qrcodes/coupons/" + couponId);
+        statement.setTimestamp(index + 3, expiry);
+        statement.setTimestamp(index + 4, now);
+        statement.setTimestamp(index + 5, now);
+    }
+
+    private static long generatedKey(PreparedStatement statement) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    // 與 Hibernate 的 pooled-lo 相同：序列值為區段的起點，之後 ALLOCATION_SIZE - 1 個號碼不需再查詢
+    private final class PooledLo {
+        private final String sequence;
+        private long next;
+        private long limit;
+
+        private PooledLo(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private long next() throws SQLException {
+            if (next == limit) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT NEXT VALUE FOR " + sequence)) {
+                    rs.next();
+                    next = rs.getLong(1);
+                    limit = next + ALLOCATION_SIZE;
+                }
+            }
+            return next++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdAllocationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,143 @@
+package org.example._citizencard3.benchmark;
+
+import org.example._citizencard3.config.AuthConfig;
+import org.example._citizencard3.service.UserWriteBehind;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 登入流程的資料庫成本比較 (H2)：
+// 原本為 existsByEmail、findByEmail、loadUserByUsername 三次查詢加上整列 UPDATE，
+// 新流程為一次精簡欄位查詢，最後登入資訊交由 UserWriteBehind 每秒批次寫回
+// 兩者使用相同的低成本 BCrypt(4) 以凸顯資料庫往返的差異
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class LoginBenchmark {
+
+    private static final int USERS = 1000;
+    private static final String PASSWORD = "password123";
+
+    private static final String SELECT_USER_SQL = "SELECT id, name, email, password, phone, birthday, gender, role, "
+            + "address, avatar, active, email_verified, last_login_time, last_login_ip, created_at, updated_at, "
+            + "version FROM users WHERE email = ?";
+    private static final String UPDATE_USER_SQL = "UPDATE users SET name = ?, email = ?, password = ?, phone = ?, "
+            + "birthday = ?, gender = ?, role = ?, address = ?, avatar = ?, active = ?, email_verified = ?, "
+            + "last_login_time = ?, last_login_ip = ?, updated_at = ?, version = ? WHERE id = ? AND version = ?";
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PasswordEncoder passwordEncoder;
+    private UserWriteBehind userWriteBehind;
+    private ScheduledExecutorService flusher;
+
+    @Setup
+    public void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:login_benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(16);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50) NOT NULL, "
+                + "email VARCHAR(100) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, phone VARCHAR(20), "
+                + "birthday VARCHAR(10), gender VARCHAR(10), role VARCHAR(20) NOT NULL, address VARCHAR(500), "
+                + "avatar VARCHAR(200), active BOOLEAN NOT NULL, email_verified BOOLEAN NOT NULL, "
+                + "last_login_time TIMESTAMP, last_login_ip VARCHAR(50), created_at TIMESTAMP NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL, version INT)");
+
+        passwordEncoder = new BCryptPasswordEncoder(4);
+        String hash = passwordEncoder.encode(PASSWORD);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            rows.add(new Object[]{"user" + i, email(i), hash, "0912345678", "ROLE_USER", now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, password, phone, role, active, email_verified, "
+                + "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, true, false, ?, ?, 0)", rows);
+
+        userWriteBehind = new UserWriteBehind(jdbcTemplate, new AuthConfig());
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(userWriteBehind::flush, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        userWriteBehind.flush();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Benchmark
+    public Object legacyLogin() {
+        String email = email(ThreadLocalRandom.current().nextInt(USERS));
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email);
+        if (exists == null || exists == 0) {
+            throw new IllegalStateException("missing user");
+        }
+        Map<String, Object> user = jdbcTemplate.queryForMap(SELECT_USER_SQL, email);
+        Map<String, Object> userDetails = jdbcTemplate.queryForMap(SELECT_USER_SQL, email);
+        if (!passwordEncoder.matches(PASSWORD, (String) userDetails.get("PASSWORD"))) {
+            throw new IllegalStateException("bad password");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int version = (Integer) user.get("VERSION");
+        jdbcTemplate.update(UPDATE_USER_SQL, user.get("NAME"), user.get("EMAIL"), user.get("PASSWORD"),
+                user.get("PHONE"), user.get("BIRTHDAY"), user.get("GENDER"), user.get("ROLE"), user.get("ADDRESS"),
+                user.get("AVATAR"), user.get("ACTIVE"), user.get("EMAIL_VERIFIED"), now, "127.0.0.1", now,
+                version + 1, user.get("ID"), version);
+        return user;
+    }
+
+    @Benchmark
+    public Object singleQueryLogin() {
+        String email = email(ThreadLocalRandom.current().nextInt(USERS));
+        Map<String, Object> credentials = jdbcTemplate.queryForMap("SELECT id, email, password, name, role, active, "
+                + "email_verified FROM users WHERE email = ?", email);
+        if (!passwordEncoder.matches(PASSWORD, (String) credentials.get("PASSWORD"))) {
+            throw new IllegalStateException("bad password");
+        }
+        userWriteBehind.recordLogin((Long) credentials.get("ID"), LocalDateTime.now(), "127.0.0.1");
+        return credentials;
+    }
+
+    private static String email(int index) {
+        return "user" + index + "@example.com";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoginBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example._citizencard3.benchmark;
+
+import org.example._citizencard3.util.OpeningHours;
+import org.example._citizencard3.util.OpeningHoursIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// 100,000 間商店查詢某時間營業中、指定分類的第一頁 20 筆與總筆數：
+// 原本的做法需載入全部商店後逐筆解析營業時間(此處不含資料庫讀取與實體建立的成本)
+// 索引以時段與分類的位元集合做 AND，未指定區域與名稱時總筆數只需 bitCount
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpeningHoursIndexBenchmark {
+
+    private static final int STORES = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] CATEGORIES = {"餐飲", "購物", "娛樂", "生活", "教育"};
+    private static final String[] HOURS = {
+            "每日 10:00-22:00",
+            "週一至週五 09:00-18:00",
+            "週二至週日 11:00-14:00, 17:00-21:00 週一公休",
+            "18:00-02:00",
+            "24小時",
+            "週六、週日 10:00-20:00"};
+    private static final LocalDateTime OPEN_AT = LocalDateTime.of(2026, 10, 16, 19, 30);
+
+    private final List<Row> rows = new ArrayList<>(STORES);
+    private OpeningHoursIndex index;
+    private OpeningHoursIndex.Area area;
+
+    private record Row(long id, String category, String openingHours) {
+    }
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        index = new OpeningHoursIndex();
+        for (long id = 1; id <= STORES; id++) {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String openingHours = HOURS[random.nextInt(HOURS.length)];
+            double latitude = 22 + random.nextDouble() * 3;
+            double longitude = 120 + random.nextDouble() * 2;
+            rows.add(new Row(id, category, openingHours));
+            index.put(id, "商店" + id, category, latitude, longitude, OpeningHours.parse(openingHours));
+        }
+        area = new OpeningHoursIndex.Area(25.0, 25.1, 121.4, 121.6);
+    }
+
+    @Benchmark
+    public long parseAllThenFilter() {
+        int slot = OpeningHours.slotOf(OPEN_AT);
+        List<Long> page = new ArrayList<>(PAGE_SIZE);
+        long total = 0;
+        for (Row row : rows) {
+            if ("餐飲".equals(row.category()) && OpeningHours.isOpen(OpeningHours.parse(row.openingHours()), slot)) {
+                if (page.size() < PAGE_SIZE) {
+                    page.add(row.id());
+                }
+                total++;
+            }
+        }
+        return total + page.size();
+    }
+
+    @Benchmark
+    public OpeningHoursIndex.SearchResult indexCategory() {
+        return index.query(OpeningHours.slotOf(OPEN_AT), "餐飲", null, null, 0, PAGE_SIZE);
+    }
+
+    // 區域條件需逐筆檢查座標
+    @Benchmark
+    public OpeningHoursIndex.SearchResult indexCategoryAndArea() {
+        return index.query(OpeningHours.slotOf(OPEN_AT), "餐飲", null, area, 0, PAGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OpeningHoursIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example._citizencard3.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import org.example._citizencard3.util.LruCache;
+import org.example._citizencard3.util.QRCodePngEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// QR碼圖片產生路徑比較：原本的 QRCodeWriter + MatrixToImageWriter + Base64，
+// 與直接由模組矩陣編碼 1 位元 PNG、以及快取命中的成本
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class QRCodeImageBenchmark {
+
+    private static final String QR_CODE_DATA = "TIX-2024-000123-5f2c9a1e";
+    private static final Map<EncodeHintType, Object> HINTS = Map.of(EncodeHintType.CHARACTER_SET, "UTF-8");
+
+    private LruCache<String, byte[]> cache;
+
+    @Setup
+    public void setUp() throws Exception {
+        cache = new LruCache<>(8 * 1024 * 1024, png -> png.length);
+        cache.put(QR_CODE_DATA, encodeDirect());
+    }
+
+    @Benchmark
+    public String matrixToImageWriterBase64() throws Exception {
+        BitMatrix bitMatrix = new QRCodeWriter().encode(QR_CODE_DATA, BarcodeFormat.QR_CODE, 200, 200);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+
+    @Benchmark
+    public byte[] matrixToImageWriterBytes() throws Exception {
+        BitMatrix bitMatrix = new QRCodeWriter().encode(QR_CODE_DATA, BarcodeFormat.QR_CODE, 200, 200);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] directPngEncoder() throws Exception {
+        return encodeDirect();
+    }
+
+    @Benchmark
+    public byte[] cachedImage() {
+        return cache.get(QR_CODE_DATA);
+    }
+
+    private static byte[] encodeDirect() throws Exception {
+        ByteMatrix matrix = Encoder.encode(QR_CODE_DATA, ErrorCorrectionLevel.L, HINTS).getMatrix();
+        return QRCodePngEncoder.encode(matrix, 6, 4);
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        new Runner(new OptionsBuilder()
+                .include(QRCodeImageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
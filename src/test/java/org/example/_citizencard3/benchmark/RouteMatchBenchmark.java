@@ -0,0 +1,115 @@
+package org.example._citizencard3.benchmark;
+
+import org.example._citizencard3.security.RouteRules;
+import org.example._citizencard3.security.RouteTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 公開路徑判斷比較：原本 JwtAuthenticationFilter 以 AntPathMatcher 逐一比對兩組規則，
+// 與啟動時編譯的 RouteTable 片段 trie
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteMatchBenchmark {
+
+    private static final List<String> PUBLIC_PATHS = Arrays.asList(
+            "/auth/**",
+            "/public/**",
+            "/error",
+            "/swagger-ui/**",
+            "/v3/api-docs/**",
+            "/system/**"
+    );
+
+    private static final List<String> PUBLIC_GET_PATHS = Arrays.asList(
+            "/movies/**",
+            "/stores/**",
+            "/schedules/**",
+            "/discounts/public/**"
+    );
+
+    // 方法與路徑，混合公開與需要認證的請求
+    private static final String[][] REQUESTS = {
+            {"GET", "/movies/now-showing"},
+            {"GET", "/movies/123/schedules"},
+            {"POST", "/auth/login"},
+            {"GET", "/wallet/balance"},
+            {"POST", "/movies"},
+            {"GET", "/stores/nearby"},
+            {"GET", "/users/profile"},
+            {"PUT", "/users/42/password"},
+            {"GET", "/system/stats"},
+            {"DELETE", "/stores/7"}
+    };
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private RouteTable routeTable;
+
+    @Setup
+    public void setUp() {
+        routeTable = RouteRules.tokenSkipTable();
+        for (String[] request : REQUESTS) {
+            if (antPathMatcherIsPublic(request[0], request[1]) != routeTableIsPublic(request[0], request[1])) {
+                throw new IllegalStateException("Route classification differs for " + request[0] + " " + request[1]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void antPathMatcherStream(Blackhole blackhole) {
+        for (String[] request : REQUESTS) {
+            blackhole.consume(antPathMatcherIsPublic(request[0], request[1]));
+        }
+    }
+
+    @Benchmark
+    public void routeTableTrie(Blackhole blackhole) {
+        for (String[] request : REQUESTS) {
+            blackhole.consume(routeTableIsPublic(request[0], request[1]));
+        }
+    }
+
+    private boolean antPathMatcherIsPublic(String method, String path) {
+        if ("OPTIONS".equalsIgnoreCase(method)) {
+            return true;
+        }
+        boolean isPublic = PUBLIC_PATHS.stream()
+                .anyMatch(pattern -> pathMatcher.match(pattern, path));
+        if (!isPublic && "GET".equalsIgnoreCase(method)) {
+            isPublic = PUBLIC_GET_PATHS.stream()
+                    .anyMatch(pattern -> pathMatcher.match(pattern, path));
+        }
+        return isPublic;
+    }
+
+    private boolean routeTableIsPublic(String method, String path) {
+        return routeTable.classify(method, path) == RouteTable.Access.PUBLIC;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteMatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example._citizencard3.benchmark;
+
+import org.example._citizencard3.dto.response.StoreResponse;
+import org.example._citizencard3.util.TopKLeaderboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 500,000 間商店取熱門前 10 名：
+// 原本的做法在載入全部商店後排序再取前 10 (此處不含資料庫讀取與實體建立的成本)
+// 排行榜只保留前 200 名，查詢為 O(10)，評分變動的更新為 O(log 200)
+// 執行方式：mvn test-compile 後以測試 classpath 執行本類別的 main 方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreRankingBenchmark {
+
+    private static final int STORES = 500_000;
+    private static final int CAPACITY = 200;
+    private static final int LIMIT = 10;
+
+    private static final Comparator<StoreResponse> POPULAR_ORDER = Comparator
+            .comparingInt(StoreResponse::getRatingCount).reversed()
+            .thenComparing(Comparator.comparingDouble(StoreResponse::getRating).reversed());
+
+    private List<StoreResponse> stores;
+    private TopKLeaderboard<StoreResponse> leaderboard;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        stores = new ArrayList<>(STORES);
+        leaderboard = new TopKLeaderboard<>(CAPACITY, StoreResponse::getId, POPULAR_ORDER);
+        for (long id = 1; id <= STORES; id++) {
+            StoreResponse store = store(id, random.nextInt(10_000), 1 + random.nextDouble() * 4);
+            stores.add(store);
+            leaderboard.put(store);
+        }
+    }
+
+    @Benchmark
+    public List<StoreResponse> sortAllThenLimit() {
+        return stores.stream()
+                .sorted(POPULAR_ORDER.thenComparingLong(StoreResponse::getId))
+                .limit(LIMIT)
+                .toList();
+    }
+
+    @Benchmark
+    public List<StoreResponse> leaderboardTop() {
+        return leaderboard.top(LIMIT);
+    }
+
+    // 隨機一間商店多了一筆評分
+    @Benchmark
+    public int leaderboardUpdate() {
+        StoreResponse current = stores.get(ThreadLocalRandom.current().nextInt(STORES));
+        StoreResponse updated = store(current.getId(), current.getRatingCount() + 1, current.getRating());
+        leaderboard.put(updated);
+        return leaderboard.size();
+    }
+
+    private static StoreResponse store(long id, int ratingCount, double rating) {
+        return StoreResponse.builder()
+                .id(id)
+                .name("商店" + id)
+                .category("餐飲")
+                .ratingCount(ratingCount)
+                .rating(rating)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StoreRankingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package org.example._citizencard3.security;
+
+import org.example._citizencard3.config.JwtConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.example._citizencard3.support.TestSupport.count;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RefreshTokenStoreTest {
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:refresh_tokens;MODE=MariaDB;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE refresh_tokens (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "token_hash CHAR(64) NOT NULL UNIQUE, family_id VARCHAR(32) NOT NULL, user_id BIGINT NOT NULL, "
+                + "security_version INT NOT NULL, expires_at TIMESTAMP NOT NULL, used_at TIMESTAMP, "
+                + "revoked_at TIMESTAMP, created_at TIMESTAMP NOT NULL)");
+        store = new RefreshTokenStore(jdbcTemplate, new JwtConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void rotationConsumesTheOldToken() {
+        String first = store.issue(1, 0);
+        RefreshTokenStore.Grant grant = store.consume(first);
+        String second = store.issue(grant.familyId(), 1, 0);
+
+        assertEquals(grant.familyId(), store.consume(second).familyId());
+        assertEquals(2, count(jdbcTemplate, "SELECT COUNT(*) FROM refresh_tokens WHERE used_at IS NOT NULL"));
+    }
+
+    @Test
+    void reuseDuringRotationDoesNotReviveTheFamily() {
+        String token = store.issue(1, 0);
+        // A 先標記為已使用
+        RefreshTokenStore.Grant grant = store.consume(token);
+        // B 以同一個令牌換發，偵測到重複使用並作廢 family
+        assertStatus(HttpStatus.UNAUTHORIZED, () -> store.consume(token));
+
+        // A 隨後簽發同 family 的新令牌被拒絕，family 內沒有可用的令牌
+        assertStatus(HttpStatus.UNAUTHORIZED, () -> store.issue(grant.familyId(), 1, 0));
+        assertEquals(0, count(jdbcTemplate, "SELECT COUNT(*) FROM refresh_tokens WHERE revoked_at IS NULL"));
+    }
+
+    @Test
+    void tokensIssuedBeforeRevocationCannotBeUsed() {
+        String first = store.issue(1, 0);
+        RefreshTokenStore.Grant grant = store.consume(first);
+        String second = store.issue(grant.familyId(), 1, 0);
+
+        store.revoke(first);
+
+        assertStatus(HttpStatus.UNAUTHORIZED, () -> store.consume(second));
+        // 其他 family 不受影響
+        String other = store.issue(1, 0);
+        assertEquals(1, store.consume(other).userId());
+    }
+
+    private static void assertStatus(HttpStatus status, Runnable action) {
+        CustomException e = assertThrows(CustomException.class, action::run);
+        assertEquals(status, e.getStatus());
+    }
+}
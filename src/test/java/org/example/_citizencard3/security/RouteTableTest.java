@@ -0,0 +1,188 @@
+package org.example._citizencard3.security;
+
+import org.example._citizencard3.security.RouteTable.Access;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RouteTableTest {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    // 改為 RouteTable 前 SecurityConfig 的 requestMatchers，依宣告順序第一個符合者為準
+    private static final List<BaselineRule> BASELINE_AUTHORIZATION = List.of(
+            new BaselineRule(null, "/auth/**", Access.PUBLIC),
+            new BaselineRule("OPTIONS", "/**", Access.PUBLIC),
+            new BaselineRule("GET", "/movies/**", Access.PUBLIC),
+            new BaselineRule("GET", "/schedules/**", Access.PUBLIC),
+            new BaselineRule("GET", "/stores/**", Access.PUBLIC),
+            new BaselineRule(null, "/users/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/wallets/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/movie-tickets/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/movie-ticket-qrcodes/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/discount-coupons/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/discount-coupon-qrcodes/**", Access.AUTHENTICATED),
+            new BaselineRule(null, "/admin/**", Access.ADMIN));
+
+    // 改為 RouteTable 前 JwtAuthenticationFilter 的 PUBLIC_PATHS、OPTIONS 與 PUBLIC_GET_PATHS
+    private static final List<BaselineRule> BASELINE_TOKEN_SKIP = List.of(
+            new BaselineRule(null, "/auth/**", Access.PUBLIC),
+            new BaselineRule(null, "/public/**", Access.PUBLIC),
+            new BaselineRule(null, "/error", Access.PUBLIC),
+            new BaselineRule(null, "/swagger-ui/**", Access.PUBLIC),
+            new BaselineRule(null, "/v3/api-docs/**", Access.PUBLIC),
+            new BaselineRule(null, "/system/**", Access.PUBLIC),
+            new BaselineRule("OPTIONS", "/**", Access.PUBLIC),
+            new BaselineRule("GET", "/movies/**", Access.PUBLIC),
+            new BaselineRule("GET", "/stores/**", Access.PUBLIC),
+            new BaselineRule("GET", "/schedules/**", Access.PUBLIC),
+            new BaselineRule("GET", "/discounts/public/**", Access.PUBLIC));
+
+    private static final List<String> METHODS = List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS", "HEAD", "TRACE");
+
+    private static final List<String> PATHS = List.of(
+            "/", "/auth", "/auth/login", "/auth/refresh/", "/authx", "/public/banner.png", "/error", "/error/detail",
+            "/swagger-ui/index.html", "/v3/api-docs", "/v3/api-docs/swagger-config", "/system/stats",
+            "/movies", "/movies/1", "/movies/search", "/moviesx", "/schedules/7/seats", "/stores", "/stores/nearby",
+            "/stores/1/ratings", "/discounts/public/list", "/discounts/private", "/users/me", "/wallets/1/transactions",
+            "/movie-tickets/1", "/movie-ticket-qrcodes/abc", "/discount-coupons", "/discount-coupon-qrcodes/x/y",
+            "/admin", "/admin/system/cache-stats", "/administrator", "/unknown/path");
+
+    @Test
+    void authorizationTableMatchesTheBaselineRules() {
+        assertMatchesBaseline(RouteRules.authorizationTable(), BASELINE_AUTHORIZATION, Access.AUTHENTICATED);
+    }
+
+    @Test
+    void tokenSkipTableMatchesTheBaselineFilter() {
+        assertMatchesBaseline(RouteRules.tokenSkipTable(), BASELINE_TOKEN_SKIP, Access.AUTHENTICATED);
+    }
+
+    @Test
+    void methodSpecificRulesOnlyApplyToThatMethod() {
+        RouteTable table = RouteRules.authorizationTable();
+
+        assertEquals(Access.PUBLIC, table.classify("GET", "/stores/1"));
+        assertEquals(Access.PUBLIC, table.classify("get", "/stores/1"));
+        assertEquals(Access.AUTHENTICATED, table.classify("POST", "/stores/1"));
+        assertEquals(Access.AUTHENTICATED, table.classify("DELETE", "/stores/1"));
+        // 不限方法的規則對所有方法都有效，包括未列出的方法
+        assertEquals(Access.PUBLIC, table.classify("POST", "/auth/login"));
+        assertEquals(Access.PUBLIC, table.classify("TRACE", "/auth/login"));
+        assertEquals(Access.PUBLIC, table.classify("OPTIONS", "/admin/users"));
+    }
+
+    @Test
+    void earlierRulesWin() {
+        RouteTable table = RouteTable.builder()
+                .rule(null, "/stores/**", Access.ADMIN)
+                .rule("GET", "/stores/**", Access.PUBLIC)
+                .rule("GET", "/stores/open", Access.AUTHENTICATED)
+                .build();
+        assertEquals(Access.ADMIN, table.classify("GET", "/stores/open"));
+
+        table = RouteTable.builder()
+                .rule("GET", "/stores/open", Access.AUTHENTICATED)
+                .rule("GET", "/stores/**", Access.PUBLIC)
+                .rule(null, "/**", Access.ADMIN)
+                .build();
+        assertEquals(Access.AUTHENTICATED, table.classify("GET", "/stores/open"));
+        assertEquals(Access.PUBLIC, table.classify("GET", "/stores/open/now"));
+        assertEquals(Access.ADMIN, table.classify("POST", "/stores/open"));
+    }
+
+    @Test
+    void exactPatternOnlyMatchesThatPathWhileWildcardIncludesItsRoot() {
+        RouteTable table = RouteTable.builder()
+                .rule(null, "/error", Access.PUBLIC)
+                .rule(null, "/admin/**", Access.ADMIN)
+                .defaultAccess(Access.AUTHENTICATED)
+                .build();
+
+        assertEquals(Access.PUBLIC, table.classify("GET", "/error"));
+        assertEquals(Access.AUTHENTICATED, table.classify("GET", "/error/detail"));
+        assertEquals(Access.AUTHENTICATED, table.classify("GET", "/errors"));
+        assertEquals(Access.ADMIN, table.classify("GET", "/admin"));
+        assertEquals(Access.ADMIN, table.classify("GET", "/admin/a/b/c"));
+        assertEquals(Access.AUTHENTICATED, table.classify("GET", "/administrator"));
+    }
+
+    @Test
+    void stripsTheContextPath() {
+        RouteTable table = RouteRules.authorizationTable();
+
+        assertEquals(Access.ADMIN, table.classify(request("DELETE", "/api", "/api/admin/movies/1")));
+        assertEquals(Access.PUBLIC, table.classify(request("GET", "/api", "/api/movies/1")));
+        assertEquals(Access.PUBLIC, table.classify(request("GET", "", "/movies/1")));
+        // 未以 context path 開頭時依完整路徑分類
+        assertEquals(Access.AUTHENTICATED, table.classify(request("GET", "/api", "/other/movies/1")));
+    }
+
+    @Test
+    void trailingAndDoubledSlashesAreIgnored() {
+        RouteTable table = RouteRules.authorizationTable();
+
+        assertEquals(Access.ADMIN, table.classify("GET", "/admin/"));
+        assertEquals(Access.ADMIN, table.classify("GET", "//admin"));
+        assertEquals(Access.ADMIN, table.classify("GET", "/admin//users///1/"));
+        assertEquals(Access.PUBLIC, table.classify("GET", "/movies//1"));
+        assertEquals(Access.PUBLIC, table.classify(request("GET", "/api", "/api//movies/")));
+        assertEquals(Access.PUBLIC, RouteRules.tokenSkipTable().classify("GET", "/error/"));
+    }
+
+    @Test
+    void adminPathsRequireAdmin() {
+        RouteTable table = RouteRules.authorizationTable();
+
+        for (String method : METHODS) {
+            if (!method.equals("OPTIONS")) {
+                assertEquals(Access.ADMIN, table.classify(method, "/admin/system/cache-stats"), method);
+                assertEquals(Access.ADMIN, table.classify(method, "/admin"), method);
+            }
+        }
+        // 令牌解析不略過管理端點
+        assertEquals(Access.AUTHENTICATED, RouteRules.tokenSkipTable().classify("GET", "/admin/system/cache-stats"));
+    }
+
+    @Test
+    void rejectsUnsupportedPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> RouteTable.builder().rule(null, "movies/**", Access.PUBLIC));
+        assertThrows(IllegalArgumentException.class,
+                () -> RouteTable.builder().rule(null, "/movies/**/seats", Access.PUBLIC).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> RouteTable.builder().rule(null, "/movies/{id}", Access.PUBLIC).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> RouteTable.builder().rule("CONNECT", "/movies", Access.PUBLIC).build());
+    }
+
+    private static void assertMatchesBaseline(RouteTable table, List<BaselineRule> baseline, Access defaultAccess) {
+        for (String method : METHODS) {
+            for (String path : PATHS) {
+                Access expected = baseline.stream()
+                        .filter(rule -> rule.matches(method, path))
+                        .map(BaselineRule::access)
+                        .findFirst()
+                        .orElse(defaultAccess);
+                assertEquals(expected, table.classify(method, path), method + " " + path);
+                assertEquals(expected, table.classify(request(method, "/api", "/api" + path)), method + " /api" + path);
+            }
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String contextPath, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContextPath(contextPath);
+        return request;
+    }
+
+    private record BaselineRule(String method, String pattern, Access access) {
+        private boolean matches(String requestMethod, String path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && MATCHER.match(pattern, path);
+        }
+    }
+}
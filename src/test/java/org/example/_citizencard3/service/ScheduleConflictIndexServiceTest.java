@@ -0,0 +1,155 @@
+package org.example._citizencard3.service;
+
+import org.example._citizencard3.config.ScheduleConfig;
+import org.example._citizencard3.service.ScheduleConflictIndexService.Conflict;
+import org.example._citizencard3.util.HallIntervalIndex.Interval;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduleConflictIndexServiceTest {
+
+    // 片長 100 分鐘，加上清場 15 分鐘，每場占用影廳 115 分鐘
+    private static final int DURATION = 100;
+    private static final LocalDateTime BASE = LocalDate.now().plusDays(2).atTime(10, 0);
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ScheduleConflictIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:schedule_conflict;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE movies (id BIGINT PRIMARY KEY, duration INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE schedules (id BIGINT PRIMARY KEY, movie_id BIGINT NOT NULL, "
+                + "hall VARCHAR(50) NOT NULL, show_time TIMESTAMP NOT NULL, active BOOLEAN NOT NULL)");
+        jdbcTemplate.update("INSERT INTO movies (id, duration) VALUES (1, ?)", DURATION);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        service = new ScheduleConflictIndexService(jdbcTemplate, new ScheduleConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void findsOverlapsWithinTheBatch() {
+        List<Interval> batch = List.of(
+                service.interval(-1, "A", at(0), 300),
+                service.interval(-2, "B", at(0), DURATION),
+                // 被第一場完整涵蓋的兩場，彼此不重疊
+                service.interval(-3, "A", at(60), 30),
+                service.interval(-4, "A", at(200), 30),
+                // 前一場占用到 115 分，剛好接上不算重疊
+                service.interval(-5, "B", at(115), DURATION),
+                service.interval(-6, "B", at(229), DURATION));
+
+        List<Conflict> conflicts = service.findConflicts(batch);
+
+        assertEquals(3, conflicts.size());
+        assertConflict(conflicts.get(0), 2, 0);
+        assertConflict(conflicts.get(1), 3, 0);
+        assertConflict(conflicts.get(2), 5, 4);
+    }
+
+    @Test
+    void findsOverlapsWithExistingSchedules() {
+        insertSchedule(1, "A", at(0), true);
+        insertSchedule(2, "A", at(200), false);
+        service.rebuild();
+
+        List<Conflict> conflicts = service.findConflicts(List.of(
+                service.interval(-1, "A", at(114), DURATION),
+                service.interval(-2, "B", at(0), DURATION),
+                // 與已停用的場次重疊不算衝突
+                service.interval(-3, "A", at(250), DURATION)));
+
+        assertEquals(1, conflicts.size());
+        assertEquals(0, conflicts.get(0).index());
+        assertEquals(1, conflicts.get(0).existing().id());
+        assertTrue(service.findConflicts(List.of(service.interval(-1, "A", at(115), DURATION))).isEmpty());
+        // 修改既有場次時，原本的區間視為被取代
+        assertTrue(service.findConflicts(List.of(service.interval(1, "A", at(10), DURATION))).isEmpty());
+    }
+
+    @Test
+    void fallsBackToDatabaseBeforeTheIndexIsBuilt() {
+        insertSchedule(1, "A", at(0), true);
+
+        List<Conflict> conflicts = service.findConflicts(List.of(service.interval(-1, "A", at(100), DURATION)));
+
+        assertEquals(1, conflicts.size());
+        assertEquals(1, conflicts.get(0).existing().id());
+        // 未建立索引時不預留
+        assertTrue(service.reserve(List.of(service.interval(-2, "B", at(0), DURATION))).isEmpty());
+        assertTrue(service.findConflicts(List.of(service.interval(-3, "B", at(0), DURATION))).isEmpty());
+    }
+
+    @Test
+    void reserveRejectsOverlapsUntilRolledBack() {
+        service.rebuild();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(service.reserve(List.of(service.interval(10, "A", at(0), DURATION))).isEmpty());
+            List<Conflict> conflicts = service.reserve(List.of(service.interval(11, "A", at(60), DURATION)));
+            assertEquals(1, conflicts.size());
+            assertEquals(10, conflicts.get(0).existing().id());
+            status.setRollbackOnly();
+        });
+
+        // 回滾後依資料庫內容移除，該時段可再排
+        assertTrue(service.findConflicts(List.of(service.interval(11, "A", at(60), DURATION))).isEmpty());
+    }
+
+    @Test
+    void committedReservationStaysAndRemovalAppliesAfterCommit() {
+        service.rebuild();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            insertSchedule(10, "A", at(0), true);
+            assertTrue(service.reserve(List.of(service.interval(10, "A", at(0), DURATION))).isEmpty());
+        });
+        assertEquals(10, service.findConflicts(List.of(service.interval(-1, "A", at(60), DURATION)))
+                .get(0).existing().id());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE schedules SET active = false WHERE id = 10");
+            service.scheduleRemoved(10);
+            // 提交前仍保留
+            assertEquals(1, service.findConflicts(List.of(service.interval(-1, "A", at(60), DURATION))).size());
+        });
+        assertTrue(service.findConflicts(List.of(service.interval(-1, "A", at(60), DURATION))).isEmpty());
+    }
+
+    private static void assertConflict(Conflict conflict, int index, int otherIndex) {
+        assertEquals(index, conflict.index());
+        assertEquals(otherIndex, conflict.otherIndex());
+        assertNull(conflict.existing());
+    }
+
+    private void insertSchedule(long id, String hall, LocalDateTime showTime, boolean active) {
+        jdbcTemplate.update("INSERT INTO schedules (id, movie_id, hall, show_time, active) VALUES (?, 1, ?, ?, ?)",
+                id, hall, Timestamp.valueOf(showTime), active);
+    }
+
+    private static LocalDateTime at(int minute) {
+        return BASE.plusMinutes(minute);
+    }
+}
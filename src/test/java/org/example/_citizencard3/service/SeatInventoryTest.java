@@ -0,0 +1,259 @@
+package org.example._citizencard3.service;
+
+import org.example._citizencard3.config.SeatInventoryConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.example._citizencard3.support.TestSupport.count;
+import static org.example._citizencard3.support.TestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatInventoryTest {
+
+    private static final long SCHEDULE_ID = 1L;
+    private static final int TOTAL_SEATS = 100;
+    private static final int THREADS = 16;
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SeatInventoryConfig config;
+    private SeatInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:seat_inventory;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(THREADS);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE schedules (id BIGINT PRIMARY KEY, available_seats INT, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE schedule_seats (id BIGINT AUTO_INCREMENT PRIMARY KEY, schedule_id BIGINT NOT NULL, "
+                + "seat_number VARCHAR(10) NOT NULL, holder VARCHAR(100), created_at TIMESTAMP NOT NULL, "
+                + "CONSTRAINT uk_schedule_seats_seat UNIQUE (schedule_id, seat_number))");
+        jdbcTemplate.execute("CREATE TABLE movie_tickets (id BIGINT AUTO_INCREMENT PRIMARY KEY, schedule_id BIGINT, "
+                + "seat_number VARCHAR(10), status VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO schedules (id, available_seats) VALUES (?, ?)", SCHEDULE_ID, TOTAL_SEATS);
+        config = new SeatInventoryConfig();
+        inventory = newInventory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void parsesRowLettersAndPlainNumbers() {
+        assertEquals(0, inventory.parseSeat("A1", TOTAL_SEATS));
+        assertEquals(21, inventory.parseSeat(" b2 ", TOTAL_SEATS));
+        assertEquals(99, inventory.parseSeat("E20", TOTAL_SEATS));
+        assertEquals(41, inventory.parseSeat("42", TOTAL_SEATS));
+        for (int seat = 0; seat < TOTAL_SEATS; seat++) {
+            assertEquals(seat, inventory.parseSeat(inventory.seatLabel(seat), TOTAL_SEATS));
+        }
+    }
+
+    @Test
+    void rejectsSeatsOutsideTheHall() {
+        for (String seatNumber : new String[]{null, "", "A0", "A21", "F1", "0", "101", "AA1", "A1B", "-1"}) {
+            CustomException e = assertThrows(CustomException.class, () -> inventory.parseSeat(seatNumber, TOTAL_SEATS));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    @Test
+    void concurrentHoldsOnOneSeatClaimItOnce() throws Exception {
+        AtomicInteger held = new AtomicInteger();
+        runConcurrently(THREADS, 20, () -> {
+            try {
+                inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("C5", "C6"), "user");
+                held.incrementAndGet();
+            } catch (CustomException e) {
+                assertEquals(HttpStatus.CONFLICT, e.getStatus());
+            }
+        });
+
+        assertEquals(1, held.get());
+        assertEquals(List.of("C5", "C6"), inventory.heldSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(TOTAL_SEATS - 2, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+    }
+
+    @Test
+    void concurrentBookingsNeverSellASeatTwice() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        List<String> sold = Collections.synchronizedList(new ArrayList<>());
+        runConcurrently(THREADS, 20, () -> {
+            try {
+                sold.addAll(inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, 1, "user"));
+                booked.incrementAndGet();
+            } catch (CustomException e) {
+                assertEquals(CustomException.noAvailableSeats().getMessage(), e.getMessage());
+            }
+        });
+
+        assertEquals(TOTAL_SEATS, booked.get());
+        assertEquals(TOTAL_SEATS, new HashSet<>(sold).size());
+        assertEquals(TOTAL_SEATS, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+        assertEquals(0, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+    }
+
+    @Test
+    void releasedHoldFreesItsSeats() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1", "A2"), "user");
+        assertThrows(CustomException.class, () -> inventory.release(SCHEDULE_ID, hold.holdId(), "other"));
+
+        inventory.release(SCHEDULE_ID, hold.holdId(), "user");
+
+        assertEquals(TOTAL_SEATS, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1", "A2"), "other");
+    }
+
+    @Test
+    void expiredHoldCannotBeConfirmed() {
+        config.setHoldTtl(0);
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1"), "user");
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> inventory.confirm(SCHEDULE_ID, hold.holdId(), "user"));
+
+        assertEquals(HttpStatus.GONE, e.getStatus());
+        assertEquals(TOTAL_SEATS, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(0, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+    }
+
+    @Test
+    void sweepReleasesExpiredHolds() {
+        config.setHoldTtl(0);
+        inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1", "B1"), "user");
+        config.setHoldTtl(600_000);
+        SeatInventory.SeatHold live = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("C1"), "user");
+
+        inventory.sweepExpiredHolds();
+
+        assertEquals(List.of("C1"), inventory.heldSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertTrue(inventory.confirm(SCHEDULE_ID, live.holdId(), "user").confirmed());
+    }
+
+    @Test
+    void confirmPersistsBeforeReturning() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1", "A2"), "user");
+
+        inventory.confirm(SCHEDULE_ID, hold.holdId(), "user");
+
+        assertEquals(List.of("A1", "A2"), jdbcTemplate.queryForList(
+                "SELECT seat_number FROM schedule_seats ORDER BY seat_number", String.class));
+        // 重新啟動後依資料庫載入，已售出的座位不會再次售出
+        SeatInventory restarted = newInventory();
+        assertEquals(List.of("A1", "A2"), restarted.soldSeats(SCHEDULE_ID, TOTAL_SEATS));
+    }
+
+    @Test
+    void failedInsertReleasesSeatsAndFailsTheCall() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1"), "user");
+        jdbcTemplate.execute("ALTER TABLE schedule_seats RENAME TO schedule_seats_offline");
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> inventory.confirm(SCHEDULE_ID, hold.holdId(), "user"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        e = assertThrows(CustomException.class, () -> inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, 2, "user"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+
+        assertEquals(TOTAL_SEATS, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(List.of(), inventory.soldSeats(SCHEDULE_ID, TOTAL_SEATS));
+    }
+
+    @Test
+    void bookingMoreSeatsThanTheHallHasFailsWithoutClaimingAny() {
+        inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, 3, "user");
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, Integer.MAX_VALUE, "user"));
+
+        assertEquals(CustomException.noAvailableSeats().getMessage(), e.getMessage());
+        assertEquals(TOTAL_SEATS - 3, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(3, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+    }
+
+    @Test
+    void seatSoldElsewhereIsRejectedByTheUniqueKey() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1", "A2"), "user");
+        jdbcTemplate.update("INSERT INTO schedule_seats (schedule_id, seat_number, holder, created_at) VALUES (?, ?, ?, ?)",
+                SCHEDULE_ID, "A2", "other-node", LocalDateTime.now());
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> inventory.confirm(SCHEDULE_ID, hold.holdId(), "user"));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        assertEquals(List.of("A2"), inventory.soldSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(TOTAL_SEATS - 1, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(1, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+    }
+
+    @Test
+    void reloadMovesLiveHoldsToTheNewSeatMap() {
+        SeatInventory.SeatHold kept = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1"), "user");
+        SeatInventory.SeatHold dropped = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("E20"), "user");
+
+        inventory.reload(SCHEDULE_ID, 80);
+
+        assertEquals(List.of("A1"), inventory.heldSeats(SCHEDULE_ID, 80));
+        assertThrows(CustomException.class, () -> inventory.hold(SCHEDULE_ID, 80, List.of("A1"), "other"));
+        assertThrows(CustomException.class, () -> inventory.confirm(SCHEDULE_ID, dropped.holdId(), "user"));
+
+        inventory.confirm(SCHEDULE_ID, kept.holdId(), "user");
+        assertEquals(List.of("A1"), inventory.soldSeats(SCHEDULE_ID, 80));
+        assertEquals(79, inventory.availableSeats(SCHEDULE_ID, 80));
+    }
+
+    @Test
+    void resetClearsHoldsAndSales() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1"), "user");
+        inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, 3, "user");
+
+        inventory.reset(SCHEDULE_ID, TOTAL_SEATS);
+
+        assertThrows(CustomException.class, () -> inventory.confirm(SCHEDULE_ID, hold.holdId(), "user"));
+        assertEquals(TOTAL_SEATS, inventory.availableSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(0, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+        inventory.flush();
+        assertEquals(TOTAL_SEATS, count(jdbcTemplate, "SELECT available_seats FROM schedules WHERE id = " + SCHEDULE_ID));
+    }
+
+    @Test
+    void dropEvictsTheSeatMapAndItsHolds() {
+        SeatInventory.SeatHold hold = inventory.hold(SCHEDULE_ID, TOTAL_SEATS, List.of("A1"), "user");
+        inventory.bookAny(SCHEDULE_ID, TOTAL_SEATS, 2, "user");
+
+        inventory.drop(SCHEDULE_ID);
+
+        assertEquals(Set.of(), inventory.loadedSchedules());
+        assertEquals(TOTAL_SEATS - 2, count(jdbcTemplate, "SELECT available_seats FROM schedules WHERE id = " + SCHEDULE_ID));
+        assertThrows(CustomException.class, () -> inventory.confirm(SCHEDULE_ID, hold.holdId(), "user"));
+        // 再次存取時依資料庫重新載入，已售出的座位仍保留
+        assertEquals(List.of("A2", "A3"), inventory.soldSeats(SCHEDULE_ID, TOTAL_SEATS));
+        assertEquals(List.of(), inventory.heldSeats(SCHEDULE_ID, TOTAL_SEATS));
+
+        inventory.deleteSoldSeats(SCHEDULE_ID);
+        assertEquals(0, count(jdbcTemplate, "SELECT COUNT(*) FROM schedule_seats"));
+    }
+
+    private SeatInventory newInventory() {
+        return new SeatInventory(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)), config);
+    }
+}
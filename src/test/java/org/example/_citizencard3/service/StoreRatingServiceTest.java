@@ -0,0 +1,167 @@
+package org.example._citizencard3.service;
+
+import org.example._citizencard3.config.StoreRankingConfig;
+import org.example._citizencard3.config.StoreRatingConfig;
+import org.example._citizencard3.exception.CustomException;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.example._citizencard3.support.TestSupport.count;
+import static org.example._citizencard3.support.TestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StoreRatingServiceTest {
+
+    private static final int STORES = 8;
+    private static final int USERS = 50;
+    private static final int THREADS = 16;
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private StoreRatingConfig config;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:store_rating;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(THREADS + 1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE stores (id BIGINT PRIMARY KEY, category VARCHAR(20), active BOOLEAN NOT NULL, "
+                + "is_deleted BOOLEAN NOT NULL, rating DOUBLE, rating_count INT, rating_sum BIGINT NOT NULL DEFAULT 0, "
+                + "rating_base_sum BIGINT NOT NULL DEFAULT 0, rating_base_count INT NOT NULL DEFAULT 0, "
+                + "rating_reconciled_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE store_ratings (id BIGINT AUTO_INCREMENT PRIMARY KEY, store_id BIGINT NOT NULL, "
+                + "user_id BIGINT NOT NULL, score TINYINT NOT NULL, created_at TIMESTAMP NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL, CONSTRAINT uk_store_ratings_store_user UNIQUE (store_id, user_id))");
+        for (long id = 1; id <= STORES; id++) {
+            jdbcTemplate.update("INSERT INTO stores (id, category, active, is_deleted, rating_count) VALUES (?, ?, true, false, 0)",
+                    id, id % 2 == 0 ? "餐飲" : "購物");
+        }
+        config = new StoreRatingConfig();
+        config.setStripes(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void concurrentRatingsAndFlushesKeepExactTotals() throws Exception {
+        StoreRatingService service = newService();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                service.flush();
+            }
+        });
+        flusher.start();
+        try {
+            runConcurrently(THREADS, 100, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    service.rateStore(random.nextLong(1, STORES + 1), random.nextLong(1, USERS + 1), random.nextInt(1, 6));
+                } catch (CustomException e) {
+                    // 同一使用者同時評分同一商店，重試用盡
+                    assertEquals("評分更新衝突，請稍後再試", e.getMessage());
+                }
+            });
+        } finally {
+            running.set(false);
+            flusher.join();
+        }
+        service.flush();
+
+        assertTotalsMatchRatings();
+        service.loadCategoryTotals();
+        long count = count(jdbcTemplate, "SELECT COUNT(*) FROM store_ratings");
+        assertEquals(count, service.getRatingStats().getRatingCount());
+        assertEquals((double) count(jdbcTemplate, "SELECT SUM(score) FROM store_ratings") / count,
+                service.getRatingStats().getAverageRating(), 1e-9);
+    }
+
+    @Test
+    void reconcileRestoresDeltasLostInACrash() {
+        jdbcTemplate.update("UPDATE stores SET rating_base_sum = 40, rating_base_count = 10, rating_sum = 40, "
+                + "rating_count = 10 WHERE id = 1");
+        StoreRatingService crashed = newService();
+        crashed.rateStore(1, 1, 5);
+        crashed.rateStore(2, 1, 3);
+        crashed.flush();
+        // 寫回前異常終止：評分已寫入 store_ratings，差值只在累加器中
+        crashed.rateStore(1, 2, 1);
+        crashed.rateStore(1, 1, 2);
+        crashed.rateStore(2, 3, 4);
+
+        config.setReconcileQuietPeriod(0);
+        StoreRatingService restarted = newService();
+        assertEquals(2, restarted.reconcile());
+
+        assertTotalsMatchRatings();
+        assertEquals(43, count(jdbcTemplate, "SELECT rating_sum FROM stores WHERE id = 1"));
+        assertEquals(12, count(jdbcTemplate, "SELECT rating_count FROM stores WHERE id = 1"));
+        // 沒有新的評分時不再重新計算
+        assertEquals(0, restarted.reconcile());
+    }
+
+    @Test
+    void recentlyRatedStoresWaitForTheQuietPeriod() {
+        StoreRatingService crashed = newService();
+        crashed.rateStore(1, 1, 5);
+
+        StoreRatingService restarted = newService();
+        assertEquals(0, restarted.reconcile());
+        assertEquals(0, count(jdbcTemplate, "SELECT rating_count FROM stores WHERE id = 1"));
+
+        config.setReconcileQuietPeriod(0);
+        assertEquals(1, restarted.reconcile());
+        assertTotalsMatchRatings();
+    }
+
+    @Test
+    void reconcileDoesNotCountPendingDeltasTwice() {
+        config.setReconcileQuietPeriod(0);
+        StoreRatingService service = newService();
+        service.rateStore(1, 1, 5);
+        service.rateStore(1, 2, 4);
+
+        service.reconcile();
+        service.rateStore(1, 3, 3);
+        service.flush();
+
+        assertTotalsMatchRatings();
+        assertEquals(3, count(jdbcTemplate, "SELECT rating_count FROM stores WHERE id = 1"));
+    }
+
+    private StoreRatingService newService() {
+        return new StoreRatingService(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new StoreRankingService(jdbcTemplate, new StoreRankingConfig()), config);
+    }
+
+    private void assertTotalsMatchRatings() {
+        List<Map<String, Object>> stores = jdbcTemplate.queryForList("SELECT s.id, s.rating, s.rating_sum, s.rating_count, "
+                + "s.rating_base_sum + COALESCE(SUM(r.score), 0) AS expected_sum, "
+                + "s.rating_base_count + COUNT(r.id) AS expected_count FROM stores s "
+                + "LEFT JOIN store_ratings r ON r.store_id = s.id "
+                + "GROUP BY s.id, s.rating, s.rating_sum, s.rating_count, s.rating_base_sum, s.rating_base_count");
+        for (Map<String, Object> store : stores) {
+            long expectedSum = ((Number) store.get("expected_sum")).longValue();
+            long expectedCount = ((Number) store.get("expected_count")).longValue();
+            assertEquals(expectedSum, ((Number) store.get("rating_sum")).longValue(), "rating_sum of " + store.get("id"));
+            assertEquals(expectedCount, ((Number) store.get("rating_count")).longValue(), "rating_count of " + store.get("id"));
+            if (expectedCount > 0) {
+                assertEquals((double) expectedSum / expectedCount, ((Number) store.get("rating")).doubleValue(), 1e-9);
+            }
+        }
+    }
+}
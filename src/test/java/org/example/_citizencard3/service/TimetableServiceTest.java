@@ -0,0 +1,150 @@
+package org.example._citizencard3.service;
+
+import org.example._citizencard3.config.ScheduleConfig;
+import org.example._citizencard3.dto.request.ScheduleRequest;
+import org.example._citizencard3.dto.request.TimetableRequest;
+import org.example._citizencard3.model.Movie;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimetableServiceTest {
+
+    // 日期在未來，不受目前時間影響
+    private static final LocalDate DAY = LocalDate.now().plusDays(2);
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ScheduleConflictIndexService scheduleConflictIndexService;
+    private TimetableService timetableService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:timetable;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE movies (id BIGINT PRIMARY KEY, duration INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE schedules (id BIGINT PRIMARY KEY, movie_id BIGINT NOT NULL, "
+                + "hall VARCHAR(50) NOT NULL, show_time TIMESTAMP NOT NULL, active BOOLEAN NOT NULL)");
+        jdbcTemplate.update("INSERT INTO movies (id, duration) VALUES (1, 100), (2, 90)");
+        ScheduleConfig config = new ScheduleConfig();
+        scheduleConflictIndexService = new ScheduleConflictIndexService(jdbcTemplate, config);
+        timetableService = new TimetableService(null, null, scheduleConflictIndexService, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void packsFewestShowsFirstUntilClose() {
+        scheduleConflictIndexService.rebuild();
+        TimetableRequest request = request(LocalTime.of(10, 0), LocalTime.of(16, 0), 1, hall("A"));
+
+        List<ScheduleRequest> plan = timetableService.plan(request, List.of(movie(1, 100), movie(2, 90)));
+
+        // 下一場從 放映時間 + 片長 + 15 分鐘清場 開始；15:35 之後兩部都無法在 16:00 前散場
+        assertPlan(plan,
+                show(1, "A", DAY.atTime(10, 0)),
+                show(2, "A", DAY.atTime(11, 55)),
+                show(1, "A", DAY.atTime(13, 40)));
+    }
+
+    @Test
+    void closeTimeNotAfterOpenTimeEndsOnTheNextDay() {
+        scheduleConflictIndexService.rebuild();
+        TimetableRequest request = request(LocalTime.of(22, 0), LocalTime.of(2, 0), 2, hall("A"));
+        request.setStartTimeStep(10);
+
+        List<ScheduleRequest> plan = timetableService.plan(request, List.of(movie(1, 100)));
+
+        // 23:55 對齊到 00:00，01:40 散場；下一場 01:55 對齊到 02:00 已超過營業時間
+        assertPlan(plan,
+                show(1, "A", DAY.atTime(22, 0)),
+                show(1, "A", DAY.plusDays(1).atTime(0, 0)),
+                show(1, "A", DAY.plusDays(1).atTime(22, 0)),
+                show(1, "A", DAY.plusDays(2).atTime(0, 0)));
+    }
+
+    @Test
+    void skipsPastExistingSchedulesInTheSameHall() {
+        jdbcTemplate.update("INSERT INTO schedules (id, movie_id, hall, show_time, active) VALUES (1, 1, 'A', ?, true)",
+                Timestamp.valueOf(DAY.atTime(11, 0)));
+        scheduleConflictIndexService.rebuild();
+        TimetableRequest request = request(LocalTime.of(10, 0), LocalTime.of(15, 0), 1, hall("A"), hall("B"));
+        request.setHallStaggerMinutes(10);
+
+        List<ScheduleRequest> plan = timetableService.plan(request, List.of(movie(1, 100), movie(2, 90)));
+
+        // A 廳 10:00 與既有場次(11:00 ~ 12:55)重疊，跳到其結束後；B 廳錯開 10 分鐘開始
+        assertPlan(plan,
+                show(1, "A", DAY.atTime(12, 55)),
+                show(2, "B", DAY.atTime(10, 10)),
+                show(1, "B", DAY.atTime(11, 55)));
+    }
+
+    @Test
+    void onlySchedulesMoviesWithinTheirShowingPeriod() {
+        scheduleConflictIndexService.rebuild();
+        TimetableRequest request = request(LocalTime.of(10, 0), LocalTime.of(14, 0), 2, hall("A"));
+        Movie later = movie(2, 90);
+        later.setReleaseDate(DAY.plusDays(1).atStartOfDay());
+
+        List<ScheduleRequest> plan = timetableService.plan(request, List.of(movie(1, 100), later));
+
+        assertPlan(plan,
+                show(1, "A", DAY.atTime(10, 0)),
+                show(1, "A", DAY.atTime(11, 55)),
+                show(2, "A", DAY.plusDays(1).atTime(10, 0)),
+                show(2, "A", DAY.plusDays(1).atTime(11, 45)));
+    }
+
+    private static void assertPlan(List<ScheduleRequest> plan, ScheduleRequest... expected) {
+        assertEquals(expected.length, plan.size(), () -> "plan: " + plan);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getMovieId(), plan.get(i).getMovieId(), "movie of show " + i);
+            assertEquals(expected[i].getHall(), plan.get(i).getHall(), "hall of show " + i);
+            assertEquals(expected[i].getShowTime(), plan.get(i).getShowTime(), "show time of show " + i);
+        }
+    }
+
+    private static TimetableRequest request(LocalTime openTime, LocalTime closeTime, int days,
+                                            TimetableRequest.Hall... halls) {
+        TimetableRequest request = new TimetableRequest();
+        request.setHalls(List.of(halls));
+        request.setStartDate(DAY);
+        request.setEndDate(DAY.plusDays(days - 1));
+        request.setOpenTime(openTime);
+        request.setCloseTime(closeTime);
+        return request;
+    }
+
+    private static TimetableRequest.Hall hall(String name) {
+        return new TimetableRequest.Hall(name, 100);
+    }
+
+    private static Movie movie(long id, int duration) {
+        return Movie.builder()
+                .id(id)
+                .duration(duration)
+                .releaseDate(DAY.minusDays(30).atStartOfDay())
+                .endDate(DAY.plusDays(30).atStartOfDay())
+                .active(true)
+                .build();
+    }
+
+    private static ScheduleRequest show(long movieId, String hall, LocalDateTime showTime) {
+        return new ScheduleRequest(movieId, showTime, hall, 100, 100, true);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example._citizencard3.service;
+
+import org.example._citizencard3.exception.CustomException;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.example._citizencard3.support.TestSupport.count;
+import static org.example._citizencard3.support.TestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalletLedgerTest {
+
+    private static final long WALLET_ID = 1L;
+    private static final int THREADS = 32;
+
+    private JdbcConnectionPool dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private WalletLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:wallet_ledger;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(THREADS);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE wallets (id BIGINT PRIMARY KEY, balance_minor BIGINT NOT NULL, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE wallet_transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, wallet_id BIGINT NOT NULL, "
+                + "type VARCHAR(20) NOT NULL, amount_minor BIGINT NOT NULL, balance_after_minor BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+        ledger = new WalletLedger(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    @Test
+    void concurrentDepositsAndWithdrawalsKeepExactBalance() throws Exception {
+        long initial = 50_000L;
+        jdbcTemplate.update("INSERT INTO wallets (id, balance_minor) VALUES (?, ?)", WALLET_ID, initial);
+
+        AtomicLong expected = new AtomicLong(initial);
+        AtomicInteger accepted = new AtomicInteger();
+        runConcurrently(THREADS, 500, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long amount = random.nextLong(1, 10_000);
+            if (random.nextBoolean()) {
+                ledger.deposit(WALLET_ID, amount);
+                expected.addAndGet(amount);
+                accepted.incrementAndGet();
+            } else {
+                try {
+                    ledger.withdraw(WALLET_ID, amount);
+                    expected.addAndGet(-amount);
+                    accepted.incrementAndGet();
+                } catch (CustomException e) {
+                    assertEquals("餘額不足", e.getMessage());
+                }
+            }
+        });
+
+        assertEquals(expected.get(), balance());
+        assertEquals(accepted.get(), (int) count(jdbcTemplate, "SELECT COUNT(*) FROM wallet_transactions"));
+        assertEquals(expected.get() - initial, count(jdbcTemplate, "SELECT COALESCE(SUM(CASE WHEN type = 'DEPOSIT' "
+                + "THEN amount_minor ELSE -amount_minor END), 0) FROM wallet_transactions"));
+        assertTrue(count(jdbcTemplate, "SELECT MIN(balance_after_minor) FROM wallet_transactions") >= 0);
+        assertEquals(expected.get(), count(jdbcTemplate, "SELECT balance_after_minor FROM wallet_transactions "
+                + "ORDER BY id DESC LIMIT 1"));
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws Exception {
+        jdbcTemplate.update("INSERT INTO wallets (id, balance_minor) VALUES (?, ?)", WALLET_ID, 100_000L);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, 200, () -> {
+            try {
+                ledger.withdraw(WALLET_ID, 30L);
+                succeeded.incrementAndGet();
+            } catch (CustomException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(3333, succeeded.get());
+        assertEquals(THREADS * 200 - 3333, rejected.get());
+        assertEquals(10L, balance());
+    }
+
+    private long balance() {
+        return count(jdbcTemplate, "SELECT balance_minor FROM wallets WHERE id = " + WALLET_ID);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example._citizencard3.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// 測試共用的並行執行與查詢輔助方法
+public final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    // 所有執行緒同時開始，各自執行 iterationsPerThread 次；任一執行緒拋出例外時整個測試失敗
+    public static void runConcurrently(int threads, int iterationsPerThread, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterationsPerThread; i++) {
+                        task.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 查詢單一數值，查無資料(例如 SUM 沒有資料列)時為 0
+    public static long count(JdbcTemplate jdbcTemplate, String sql) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        return value == null ? 0 : value;
+    }
+}
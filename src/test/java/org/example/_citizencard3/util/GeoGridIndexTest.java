@@ -0,0 +1,97 @@
+package org.example._citizencard3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoGridIndexTest {
+
+    private static final double CELL_DEGREES = 0.01;
+
+    @Test
+    void matchesBruteForceAroundTaiwan() {
+        assertMatchesBruteForce(new Random(1), 23.5, 121.0, 0.5);
+    }
+
+    @Test
+    void matchesBruteForceNearThePoles() {
+        assertMatchesBruteForce(new Random(2), 89.8, 0.0, 0.2);
+        assertMatchesBruteForce(new Random(3), -89.8, 90.0, 0.2);
+    }
+
+    @Test
+    void findsStoresAcrossTheAntimeridian() {
+        GeoGridIndex index = new GeoGridIndex(CELL_DEGREES);
+        index.put(1, 10.0, 179.999, null);
+        index.put(2, 10.0, -179.999, null);
+        index.put(3, 10.0, 180.0, null);
+
+        List<GeoGridIndex.Hit> hits = index.nearest(10.0, -180.0, 10, 1000, null);
+
+        // 經度 180 與 -180 為同一點，兩側約 110 公尺的商店都找得到
+        assertEquals(3, hits.size());
+        assertEquals(3, hits.get(0).id());
+        assertEquals(0, hits.get(0).distance(), 1e-6);
+        assertEquals(Set.of(1L, 2L), Set.of(hits.get(1).id(), hits.get(2).id()));
+    }
+
+    @Test
+    void stopsAtMaxDistanceAndFiltersByCategory() {
+        GeoGridIndex index = new GeoGridIndex(CELL_DEGREES);
+        index.put(1, 25.0, 121.0, "餐飲");
+        index.put(2, 25.0, 121.001, "購物");
+        index.put(3, 25.0, 121.1, "餐飲");
+        index.remove(3);
+        index.put(4, 25.05, 121.0, "餐飲");
+
+        assertEquals(List.of(1L, 2L), ids(index.nearest(25.0, 121.0, 10, 1000, null)));
+        assertEquals(List.of(1L, 4L), ids(index.nearest(25.0, 121.0, 10, 10_000, "餐飲")));
+        assertEquals(List.of(1L), ids(index.nearest(25.0, 121.0, 1, 10_000, null)));
+        assertEquals(List.of(), ids(index.nearest(25.0, 121.0, 0, 10_000, null)));
+    }
+
+    private static void assertMatchesBruteForce(Random random, double latitude, double longitude, double spread) {
+        GeoGridIndex index = new GeoGridIndex(CELL_DEGREES);
+        List<double[]> points = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            double lat = Math.max(-90, Math.min(90, latitude + (random.nextDouble() * 2 - 1) * spread));
+            double lng = random.nextDouble() * 360 - 180;
+            if (id % 2 == 0) {
+                lng = longitude + (random.nextDouble() * 2 - 1) * spread * 10;
+                lng = ((lng + 180) % 360 + 360) % 360 - 180;
+            }
+            points.add(new double[]{lat, lng});
+            index.put(id, lat, lng, null);
+        }
+        for (int query = 0; query < 50; query++) {
+            double lat = Math.max(-90, Math.min(90, latitude + (random.nextDouble() * 2 - 1) * spread));
+            double lng = longitude + (random.nextDouble() * 2 - 1) * spread;
+            double maxDistance = 1000 + random.nextDouble() * 49_000;
+            int k = 1 + random.nextInt(20);
+
+            List<Double> expected = new ArrayList<>();
+            for (double[] point : points) {
+                double distance = GeoGridIndex.distance(lat, lng, point[0], point[1]);
+                if (distance <= maxDistance) {
+                    expected.add(distance);
+                }
+            }
+            expected.sort(Comparator.naturalOrder());
+            List<Double> actual = index.nearest(lat, lng, k, maxDistance, null).stream()
+                    .map(GeoGridIndex.Hit::distance).toList();
+
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), actual,
+                    "query (" + lat + ", " + lng + ") k=" + k + " maxDistance=" + maxDistance);
+        }
+    }
+
+    private static List<Long> ids(List<GeoGridIndex.Hit> hits) {
+        return hits.stream().map(GeoGridIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example._citizencard3.util;
+
+import org.example._citizencard3.util.HallIntervalIndex.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HallIntervalIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    @Test
+    void findsLongIntervalThatStartedBeforeTheQueryWindow() {
+        HallIntervalIndex index = new HallIntervalIndex();
+        index.put(interval(1, "A", 0, 600));
+        index.put(interval(2, "A", 610, 700));
+
+        // 開始時間早於查詢起點，只有往前延伸最長區間長度才找得到
+        assertEquals(1, index.findOverlap("A", at(300), at(320), Set.of()).id());
+        assertEquals(2, index.findOverlap("A", at(650), at(660), Set.of()).id());
+        assertNull(index.findOverlap("A", at(600), at(610), Set.of()));
+    }
+
+    @Test
+    void touchingIntervalsDoNotOverlap() {
+        HallIntervalIndex index = new HallIntervalIndex();
+        index.put(interval(1, "A", 60, 120));
+
+        assertNull(index.findOverlap("A", at(0), at(60), Set.of()));
+        assertNull(index.findOverlap("A", at(120), at(180), Set.of()));
+        assertEquals(1, index.findOverlap("A", at(0), at(61), Set.of()).id());
+        assertEquals(1, index.findOverlap("A", at(119), at(180), Set.of()).id());
+        assertEquals(1, index.findOverlap("A", at(70), at(80), Set.of()).id());
+    }
+
+    @Test
+    void ignoredIdsAndOtherHallsAreSkipped() {
+        HallIntervalIndex index = new HallIntervalIndex();
+        index.put(interval(1, "A", 0, 120));
+        index.put(interval(2, "A", 60, 180));
+        index.put(interval(3, "B", 0, 180));
+
+        assertEquals(2, index.findOverlap("A", at(100), at(110), Set.of(1L)).id());
+        assertNull(index.findOverlap("A", at(100), at(110), Set.of(1L, 2L)));
+        assertNull(index.findOverlap("C", at(0), at(180), Set.of()));
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsById() {
+        HallIntervalIndex index = new HallIntervalIndex();
+        index.put(interval(1, "A", 0, 120));
+        // 同 id 改到另一個影廳與時段
+        index.put(interval(1, "B", 300, 400));
+
+        assertEquals(1, index.size());
+        assertNull(index.findOverlap("A", at(0), at(120), Set.of()));
+        assertEquals(1, index.findOverlap("B", at(350), at(360), Set.of()).id());
+
+        index.remove(1);
+        index.remove(99);
+        assertEquals(0, index.size());
+        assertNull(index.findOverlap("B", at(350), at(360), Set.of()));
+    }
+
+    private static Interval interval(long id, String hall, int startMinute, int endMinute) {
+        return new Interval(id, hall, at(startMinute), at(endMinute));
+    }
+
+    private static LocalDateTime at(int minute) {
+        return BASE.plusMinutes(minute);
+    }
+}
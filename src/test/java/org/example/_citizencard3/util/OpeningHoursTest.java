@@ -0,0 +1,127 @@
+package org.example._citizencard3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpeningHoursTest {
+
+    private static final int MON = 0;
+    private static final int TUE = 1;
+    private static final int WED = 2;
+    private static final int THU = 3;
+    private static final int FRI = 4;
+    private static final int SAT = 5;
+    private static final int SUN = 6;
+
+    @Test
+    void parsesChineseDayRanges() {
+        assertMask(expected().open("10:00", "21:00", MON, TUE, WED, THU, FRI), "週一至週五 10:00-21:00");
+        assertMask(expected().open("11:00", "22:00", SAT, SUN), "週六、週日 11:00~22:00");
+    }
+
+    @Test
+    void parsesSeveralIntervalsEveryDay() {
+        assertMask(expected().open("11:00", "14:00", all()).open("17:00", "21:00", all()),
+                "每日 11:00-14:00, 17:00-21:00");
+    }
+
+    @Test
+    void parsesEnglishDayRanges() {
+        assertMask(expected().open("09:00", "18:00", MON, TUE, WED, THU, FRI), "Mon-Fri 09:00-18:00");
+    }
+
+    @Test
+    void parsesAllDay() {
+        assertMask(expected().open("00:00", "24:00", all()), "24小時");
+    }
+
+    @Test
+    void closedDayAppliesFollowingIntervalsToTheOtherDays() {
+        assertMask(expected().open("11:00", "21:00", TUE, WED, THU, FRI, SAT, SUN), "週一公休 11:00-21:00");
+    }
+
+    @Test
+    void breakTimeIsRemovedFromTheInterval() {
+        assertMask(expected().open("11:00", "14:00", all()).open("17:00", "21:00", all()),
+                "11:00-21:00(14:00-17:00休息)");
+    }
+
+    @Test
+    void intervalsPastMidnightContinueIntoTheNextDay() {
+        long[] mask = OpeningHours.parse("週五、週六 18:00-02:00");
+
+        assertArrayEquals(expected().open("18:00", "24:00", FRI, SAT).open("00:00", "02:00", SAT, SUN).mask, mask);
+        assertTrue(OpeningHours.isOpen(mask, OpeningHours.slotOf(LocalDateTime.of(2024, 1, 6, 1, 45))));
+        assertFalse(OpeningHours.isOpen(mask, OpeningHours.slotOf(LocalDateTime.of(2024, 1, 6, 2, 0))));
+        // 週日深夜的時段繞回週一凌晨
+        assertMask(expected().open("22:00", "24:00", SUN).open("00:00", "01:00", MON), "週日 22:00-01:00");
+    }
+
+    @Test
+    void dayRangesWrapAroundTheWeek() {
+        assertMask(expected().open("10:00", "20:00", FRI, SAT, SUN, MON), "週五至週一 10:00-20:00");
+        assertMask(expected().open("10:00", "20:00", SAT, SUN, MON), "Sat-Mon 10:00-20:00");
+    }
+
+    @Test
+    void openSlotsLieWithinTheOpeningHours() {
+        assertMask(expected().open("10:15", "20:45", all()), "10:05-20:50");
+        // 休息時間清除所有重疊的時段
+        assertMask(expected().open("11:00", "13:45", all()).open("17:15", "21:00", all()),
+                "11:00-21:00(13:50-17:10休息)");
+    }
+
+    @Test
+    void slotOfCountsFromMondayMidnight() {
+        assertEquals(0, OpeningHours.slotOf(LocalDateTime.of(2024, 1, 1, 0, 14)));
+        assertEquals(OpeningHours.SLOTS_PER_WEEK - 1, OpeningHours.slotOf(LocalDateTime.of(2024, 1, 7, 23, 59)));
+    }
+
+    @Test
+    void returnsNullWhenNoOpeningHoursAreFound() {
+        assertNull(OpeningHours.parse(null));
+        assertNull(OpeningHours.parse("  "));
+        assertNull(OpeningHours.parse("請來電洽詢"));
+        assertNull(OpeningHours.parse("週一公休"));
+        assertNull(OpeningHours.parse("25:00-26:00"));
+        assertFalse(OpeningHours.isOpen(null, 0));
+    }
+
+    private static void assertMask(Expected expected, String text) {
+        assertArrayEquals(expected.mask, OpeningHours.parse(text), text);
+    }
+
+    private static Expected expected() {
+        return new Expected();
+    }
+
+    private static int[] all() {
+        return new int[]{MON, TUE, WED, THU, FRI, SAT, SUN};
+    }
+
+    private static final class Expected {
+        private final long[] mask = new long[OpeningHours.WORDS];
+
+        private Expected open(String from, String to, int... days) {
+            for (int day : days) {
+                for (int slot = minutes(from) / 15; slot < minutes(to) / 15; slot++) {
+                    int weekSlot = day * OpeningHours.SLOTS_PER_DAY + slot;
+                    mask[weekSlot / 64] |= 1L << (weekSlot % 64);
+                }
+            }
+            return this;
+        }
+
+        private static int minutes(String time) {
+            String[] parts = time.split(":");
+            return Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+        }
+    }
+}